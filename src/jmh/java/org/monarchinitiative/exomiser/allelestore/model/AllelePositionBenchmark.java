@@ -0,0 +1,113 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares creating minimised alleles via an {@link AllelePosition} with building them directly from the
+ * {@link AllelePosition#trim(CharSequence, CharSequence)} offsets, as the VCF parsers do. The ref and alt are a mix
+ * similar to dbSNP: mostly SNVs, then short deletions and insertions with a VCF padding base, multi-allelic lines where
+ * the alt has to be right trimmed and a few MNVs.
+ * <p>
+ * Run using {@code ./gradlew jmh}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AllelePositionBenchmark {
+
+    private static final int NUM_ALLELES = 10_000;
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    private int[] positions;
+    private String[] refs;
+    private String[] alts;
+
+    @Setup(Level.Trial)
+    public void makeAlleles() {
+        Random random = new Random(42);
+        positions = new int[NUM_ALLELES];
+        refs = new String[NUM_ALLELES];
+        alts = new String[NUM_ALLELES];
+        for (int i = 0; i < NUM_ALLELES; i++) {
+            positions[i] = 1 + random.nextInt(100_000_000);
+            String anchor = bases(random, 1);
+            int type = random.nextInt(100);
+            if (type < 85) {
+                // SNV
+                refs[i] = anchor;
+                alts[i] = otherBase(random, anchor.charAt(0));
+            } else if (type < 92) {
+                // deletion
+                refs[i] = anchor + bases(random, 1 + random.nextInt(6));
+                alts[i] = anchor;
+            } else if (type < 97) {
+                // insertion
+                refs[i] = anchor;
+                alts[i] = anchor + bases(random, 1 + random.nextInt(6));
+            } else if (type < 99) {
+                // the shorter alt of a multi-allelic deletion e.g. CTT C,CT
+                String suffix = bases(random, 1 + random.nextInt(3));
+                refs[i] = anchor + bases(random, 1 + random.nextInt(3)) + suffix;
+                alts[i] = anchor + suffix;
+            } else {
+                // MNV
+                int length = 2 + random.nextInt(2);
+                refs[i] = bases(random, length);
+                alts[i] = bases(random, length);
+            }
+            refs[i] = AlleleBases.canonical(refs[i]);
+            alts[i] = AlleleBases.canonical(alts[i]);
+        }
+    }
+
+    private static String bases(Random random, int length) {
+        StringBuilder stringBuilder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            stringBuilder.append(BASES[random.nextInt(4)]);
+        }
+        return stringBuilder.toString();
+    }
+
+    private static String otherBase(Random random, char base) {
+        char other;
+        do {
+            other = BASES[random.nextInt(4)];
+        } while (other == base);
+        return String.valueOf(other);
+    }
+
+    @Benchmark
+    public void minimise(Blackhole blackhole) {
+        for (int i = 0; i < NUM_ALLELES; i++) {
+            AllelePosition allelePosition = AllelePosition.minimise(positions[i], refs[i], alts[i]);
+            blackhole.consume(new Allele(1, allelePosition.getPos(), allelePosition.getRef(), allelePosition.getAlt()));
+        }
+    }
+
+    @Benchmark
+    public void trim(Blackhole blackhole) {
+        for (int i = 0; i < NUM_ALLELES; i++) {
+            String ref = refs[i];
+            String alt = alts[i];
+            long trim = AllelePosition.trim(ref, alt);
+            if (trim == AllelePosition.NO_TRIM) {
+                blackhole.consume(new Allele(1, positions[i], ref, alt));
+            } else {
+                int leftTrim = AllelePosition.leftTrim(trim);
+                int rightTrim = AllelePosition.rightTrim(trim);
+                String minimisedRef = AlleleBases.canonical(ref, leftTrim, ref.length() - rightTrim);
+                String minimisedAlt = AlleleBases.canonical(alt, leftTrim, alt.length() - rightTrim);
+                blackhole.consume(new Allele(1, positions[i] + leftTrim, minimisedRef, minimisedAlt));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link FloatParser} with {@link Float#parseFloat(String)} on values written in the same way as they are
+ * found in the source files: the dbSNP CAF frequencies, the ESP MAF percentages, the dbNSFP SIFT, PolyPhen and
+ * MutationTaster scores and the Float.toString() percentages of the merged Exomiser file. The setup checks that both
+ * parsers return identical floats for every value.
+ * <p>
+ * The jdk benchmark includes the substring needed to get a String from a VCF line, as the parsers did before.
+ * <p>
+ * Run using {@code ./gradlew jmh}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FloatParserBenchmark {
+
+    private static final int NUM_VALUES = 10_000;
+
+    @Param({"dbSnp", "esp", "dbNsfp", "exomiser"})
+    public String source;
+
+    // the values are held in a single line, as they are read by the tokenizer
+    private String line;
+    private int[] starts;
+    private int[] ends;
+
+    @Setup(Level.Trial)
+    public void makeValues() {
+        Random random = new Random(42);
+        StringBuilder stringBuilder = new StringBuilder();
+        starts = new int[NUM_VALUES];
+        ends = new int[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            starts[i] = stringBuilder.length();
+            stringBuilder.append(makeValue(random));
+            ends[i] = stringBuilder.length();
+            stringBuilder.append(',');
+        }
+        line = stringBuilder.toString();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            String value = line.substring(starts[i], ends[i]);
+            if (Float.floatToRawIntBits(Float.parseFloat(value)) != Float.floatToRawIntBits(FloatParser.parseFloat(line, starts[i], ends[i]))) {
+                throw new IllegalStateException("FloatParser and JDK differ for " + value);
+            }
+        }
+    }
+
+    private String makeValue(Random random) {
+        switch (source) {
+            case "dbSnp":
+                // CAF=0.9413,0.05871 - 1000 genomes frequencies with up to 5 decimal places
+                return stripTrailingZeros(String.format(Locale.ROOT, "%.5f", random.nextDouble() * random.nextDouble()));
+            case "esp":
+                // MAF=44.9781,47.7489,45.9213
+                return String.format(Locale.ROOT, "%.4f", random.nextDouble() * 50);
+            case "dbNsfp":
+                // SIFT_score=0.001, Polyphen2_HVAR_score=0.999, MutationTaster_score=1
+                return random.nextInt(10) == 0 ? "1" : stripTrailingZeros(String.format(Locale.ROOT, "%.3f", random.nextDouble()));
+            case "exomiser":
+            default:
+                // KG=5.8710003;EXAC_NFE=0.0031847
+                return Float.toString(100f * (float) (random.nextDouble() * random.nextDouble()));
+        }
+    }
+
+    private static String stripTrailingZeros(String value) {
+        int end = value.length();
+        while (value.charAt(end - 1) == '0' && value.charAt(end - 2) != '.') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    @Benchmark
+    public float jdk() {
+        float sum = 0;
+        for (int i = 0; i < NUM_VALUES; i++) {
+            sum += Float.parseFloat(line.substring(starts[i], ends[i]));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float floatParser() {
+        float sum = 0;
+        for (int i = 0; i < NUM_VALUES; i++) {
+            sum += FloatParser.parseFloat(line, starts[i], ends[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,164 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.*;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares looking up the alleles of a sample VCF one at a time with looking them up as a batch using
+ * {@link AlleleReader#getAll(Collection)}. The index holds alleles spread over the chromosomes in proportion to their
+ * length, as they are in dbSNP. Nine in ten of the alleles of each batch are in the index, the rest are novel.
+ * <p>
+ * Run using {@code ./gradlew jmh}. Building the indexes takes a while, use {@code -p indexSize=200000} for a quick run.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AlleleReaderBenchmark {
+
+    // GRCh37 chromosome lengths in Mb for chromosomes 1-22, X, Y and MT
+    private static final int[] CHROMOSOME_LENGTHS = {249, 243, 198, 191, 181, 171, 159, 146, 141, 136, 135, 134, 115,
+            107, 103, 90, 81, 78, 59, 63, 48, 51, 155, 59, 1};
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+
+    @Param({"mvStore", "mapDB", "lucene", "berkeley", "mapped"})
+    public String store;
+
+    @Param({"10000", "1000000"})
+    public int batchSize;
+
+    @Param({"2000000"})
+    public int indexSize;
+
+    private Path workingDir;
+    private AlleleReader reader;
+    private List<Allele> batch;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException {
+        Random random = new Random(42);
+        List<Allele> alleles = makeAlleles(random, indexSize);
+        Collections.sort(alleles);
+        workingDir = Files.createTempDirectory("allele-reader-benchmark");
+        Path alleleFile = workingDir.resolve("exomiser-all.vcf");
+        try (BufferedWriter writer = Files.newBufferedWriter(alleleFile)) {
+            for (Allele allele : alleles) {
+                writer.write(allele.getChr() + "\t" + allele.getPos() + "\t" + allele.getRsId() + "\t" + allele.getRef() + "\t" + allele.getAlt() + "\t.\t.\t" + allele.generateInfoField() + "\n");
+            }
+        }
+        Path indexPath = Files.createDirectory(workingDir.resolve(store));
+        newIndexer(indexPath).buildIndex(alleleFile, indexPath);
+        reader = newReader(indexPath);
+
+        batch = new ArrayList<>(batchSize);
+        List<Allele> novelAlleles = makeAlleles(random, batchSize / 10);
+        batch.addAll(novelAlleles);
+        while (batch.size() < batchSize) {
+            batch.add(alleles.get(random.nextInt(alleles.size())));
+        }
+        Collections.shuffle(batch, random);
+    }
+
+    private static List<Allele> makeAlleles(Random random, int numAlleles) {
+        int totalLength = 0;
+        for (int length : CHROMOSOME_LENGTHS) {
+            totalLength += length;
+        }
+        List<Allele> alleles = new ArrayList<>(numAlleles);
+        for (int i = 0; i < numAlleles; i++) {
+            int chr = pickChromosome(random.nextInt(totalLength));
+            int pos = 1 + random.nextInt(CHROMOSOME_LENGTHS[chr - 1] * 1_000_000);
+            Allele allele = new Allele(chr, pos, BASES[random.nextInt(4)], BASES[random.nextInt(4)]);
+            allele.setRsNumber(i + 1);
+            allele.addValue(AlleleProperty.KG, random.nextFloat());
+            allele.addValue(AlleleProperty.EXAC_NFE, random.nextFloat());
+            alleles.add(allele);
+        }
+        return alleles;
+    }
+
+    private static int pickChromosome(int randomLength) {
+        int cumulativeLength = 0;
+        for (int i = 0; i < CHROMOSOME_LENGTHS.length; i++) {
+            cumulativeLength += CHROMOSOME_LENGTHS[i];
+            if (randomLength < cumulativeLength) {
+                return i + 1;
+            }
+        }
+        return CHROMOSOME_LENGTHS.length;
+    }
+
+    private AlleleIndexer newIndexer(Path indexPath) {
+        switch (store) {
+            case "mvStore":
+                return new MvStoreAlleleIndexer(indexPath, true);
+            case "mapDB":
+                return new MapDBAlleleIndexer(indexPath, true);
+            case "berkeley":
+                return new SleepyCatAlleleIndexer(indexPath);
+            case "mapped":
+                return new MappedAlleleIndexer(indexPath);
+            case "lucene":
+            default:
+                return new LuceneAlleleIndexer(indexPath);
+        }
+    }
+
+    private AlleleReader newReader(Path indexPath) throws IOException {
+        switch (store) {
+            case "mvStore":
+                return new MvStoreAlleleReader(indexPath);
+            case "mapDB":
+                return new MapDBAlleleReader(indexPath);
+            case "berkeley":
+                return new SleepyCatAlleleReader(indexPath);
+            case "mapped":
+                return new MappedAlleleReader(indexPath);
+            case "lucene":
+            default:
+                return new LuceneAlleleReader(indexPath);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteIndex() throws IOException {
+        reader.close();
+        try (Stream<Path> files = Files.walk(workingDir)) {
+            Path[] paths = files.sorted(Comparator.reverseOrder()).toArray(Path[]::new);
+            for (Path path : paths) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int getEach() {
+        int found = 0;
+        for (Allele allele : batch) {
+            if (reader.get(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt()) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getAll() {
+        return reader.getAll(batch).size();
+    }
+}
@@ -0,0 +1,110 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the throughput of the {@link AlleleAppendingFileWriter} when flushing after every allele, as it used to, with
+ * only flushing once all the alleles have been written. Each invocation writes a batch of alleles spread over the
+ * chromosomes in proportion to their length, as they are in dbSNP.
+ * <p>
+ * Run using {@code ./gradlew jmh}. The difference in write system calls can be seen by running a single fork under
+ * {@code strace -f -c -e trace=write}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AlleleAppendingFileWriterBenchmark {
+
+    private static final int NUM_ALLELES = 100_000;
+
+    // GRCh37 chromosome lengths in Mb for chromosomes 1-22, X, Y and MT
+    private static final int[] CHROMOSOME_LENGTHS = {249, 243, 198, 191, 181, 171, 159, 146, 141, 136, 135, 134, 115,
+            107, 103, 90, 81, 78, 59, 63, 48, 51, 155, 59, 1};
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+
+    @Param({"true", "false"})
+    public boolean flushEveryWrite;
+
+    @Param({"8192", "65536", "1048576"})
+    public int bufferSize;
+
+    private List<Allele> alleles;
+    private Path workingDir;
+    private AlleleAppendingFileWriter instance;
+
+    @Setup(Level.Trial)
+    public void makeAlleles() {
+        Random random = new Random(42);
+        int totalLength = 0;
+        for (int length : CHROMOSOME_LENGTHS) {
+            totalLength += length;
+        }
+        alleles = new ArrayList<>(NUM_ALLELES);
+        for (int i = 0; i < NUM_ALLELES; i++) {
+            int chr = pickChromosome(random.nextInt(totalLength));
+            int pos = 1 + random.nextInt(CHROMOSOME_LENGTHS[chr - 1] * 1_000_000);
+            Allele allele = new Allele(chr, pos, BASES[random.nextInt(4)], BASES[random.nextInt(4)]);
+            allele.setRsNumber(i + 1);
+            allele.addValue(AlleleProperty.KG, random.nextFloat());
+            alleles.add(allele);
+        }
+    }
+
+    private int pickChromosome(int randomLength) {
+        int cumulativeLength = 0;
+        for (int i = 0; i < CHROMOSOME_LENGTHS.length; i++) {
+            cumulativeLength += CHROMOSOME_LENGTHS[i];
+            if (randomLength < cumulativeLength) {
+                return i + 1;
+            }
+        }
+        return CHROMOSOME_LENGTHS.length;
+    }
+
+    @Setup(Level.Invocation)
+    public void createWriter() throws IOException {
+        workingDir = Files.createTempDirectory("allele-writer-benchmark");
+        instance = new AlleleAppendingFileWriter(workingDir, bufferSize);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteWriter() throws IOException {
+        instance.close();
+        try (Stream<Path> files = Files.list(workingDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(workingDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ALLELES)
+    public long writeAlleles() {
+        for (Allele allele : alleles) {
+            instance.write(allele);
+            if (flushEveryWrite) {
+                instance.flush();
+            }
+        }
+        instance.flush();
+        return instance.count();
+    }
+}
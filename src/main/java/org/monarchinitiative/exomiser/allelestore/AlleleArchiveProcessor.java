@@ -5,6 +5,8 @@ import org.monarchinitiative.exomiser.allelestore.archive.AlleleArchive;
 import org.monarchinitiative.exomiser.allelestore.archive.ArchiveFileReader;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
 import org.monarchinitiative.exomiser.allelestore.parsers.AlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.AsciiAlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.AsciiLine;
 import org.monarchinitiative.exomiser.allelestore.writers.AlleleWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,12 +17,34 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
+ * Reads the data files contained in an {@link AlleleArchive}, parses each line into {@link Allele} and hands these to
+ * an {@link AlleleWriter}.
+ * <p>
+ * Archives containing several data files (e.g. the per-chromosome dbNSFP files) can be processed in parallel using
+ * {@link #process(AlleleWriter, int)}, in which case each file is read, parsed and written by a single worker thread.
+ * The files of an archive are expected to be disjoint (one file per chromosome), so the order in which the workers
+ * write does not change the merged output.
+ * <p>
+ * Archives holding a single large file (e.g. the dbSNP and ExAC VCF) or whose files can only be read one at a time
+ * are instead processed with an {@link AlleleParsingPipeline}, so that decompression, parsing and writing of the same
+ * file overlap.
+ * <p>
+ * Files parsed by an {@link AsciiAlleleParser} are read as bytes using an {@link AsciiLineReader}, rather than being
+ * decoded into a String per line.
+ *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class AlleleArchiveProcessor {
@@ -28,33 +52,143 @@ public class AlleleArchiveProcessor {
     private static final Logger logger = LoggerFactory.getLogger(AlleleArchiveProcessor.class);
 
     private final AlleleArchive alleleArchive;
-    private final AlleleParser alleleParser;
+    private final Supplier<AlleleParser> alleleParserSupplier;
 
+    /**
+     * Creates a processor which will use the same {@link AlleleParser} instance for every file in the archive. Use
+     * {@link #AlleleArchiveProcessor(AlleleArchive, Supplier)} if the parser holds per-file state and the archive is
+     * to be processed in parallel.
+     */
     public AlleleArchiveProcessor(AlleleArchive alleleArchive, AlleleParser alleleParser) {
+        this(alleleArchive, () -> alleleParser);
+    }
+
+    /**
+     * @param alleleArchive        the archive to process
+     * @param alleleParserSupplier called once per archive file, so stateful parsers such as the
+     *                             {@link org.monarchinitiative.exomiser.allelestore.parsers.DbNsfpAlleleParser} are
+     *                             never shared between worker threads.
+     */
+    public AlleleArchiveProcessor(AlleleArchive alleleArchive, Supplier<AlleleParser> alleleParserSupplier) {
         this.alleleArchive = alleleArchive;
-        this.alleleParser = alleleParser;
+        this.alleleParserSupplier = alleleParserSupplier;
     }
 
     public void process(AlleleWriter alleleWriter) {
-        ArchiveFileReader archiveFileReader = new ArchiveFileReader(alleleArchive);
+        process(alleleWriter, 1);
+    }
+
+    /**
+     * Processes the archive using up to numWorkers threads. The {@link AlleleWriter} must be thread-safe if numWorkers
+     * is greater than 1. Archives which cannot have their files read concurrently, or which only contain a single
+     * file, have each file processed in turn using numWorkers parser threads.
+     *
+     * @param alleleWriter the destination for the parsed alleles
+     * @param numWorkers   maximum number of files or line batches to process concurrently
+     */
+    public void process(AlleleWriter alleleWriter, int numWorkers) {
+        ArchiveFileReader archiveFileReader = new ArchiveFileReader(alleleArchive, numWorkers);
+        List<FileObject> fileObjects = archiveFileReader.getFileObjects();
         Instant startTime = Instant.now();
         AlleleLogger alleleLogger = new AlleleLogger(startTime);
-        for (FileObject fileObject : archiveFileReader.getFileObjects()) {
-            try (InputStream archiveFileInputStream = archiveFileReader.readFileObject(fileObject);
-                 BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(archiveFileInputStream))) {
-                bufferedReader.lines()
-                        .flatMap(toAlleleStream())
-                        .peek(alleleLogger.logCount())
-                        .forEach(alleleWriter::write);
-            } catch (IOException e) {
-                logger.error("Error reading archive file {}", fileObject.getName(), e);
+        if (numWorkers > 1 && fileObjects.size() > 1 && archiveFileReader.supportsConcurrentReads()) {
+            processInParallel(archiveFileReader, fileObjects, alleleWriter, alleleLogger, numWorkers);
+        } else if (numWorkers > 1) {
+            for (FileObject fileObject : fileObjects) {
+                processFileObjectInPipeline(archiveFileReader, fileObject, alleleWriter, alleleLogger, numWorkers);
+            }
+        } else {
+            for (FileObject fileObject : fileObjects) {
+                processFileObject(archiveFileReader, fileObject, alleleWriter, alleleLogger);
             }
         }
+        alleleWriter.flush();
         long seconds = Duration.between(startTime, Instant.now()).getSeconds();
         logger.info("Finished - processed {} variants total in {} sec", alleleWriter.count(), seconds);
     }
 
-    private Function<String, Stream<Allele>> toAlleleStream() {
+    private void processInParallel(ArchiveFileReader archiveFileReader, List<FileObject> fileObjects, AlleleWriter alleleWriter, AlleleLogger alleleLogger, int numWorkers) {
+        int numThreads = Math.min(numWorkers, fileObjects.size());
+        logger.info("Processing {} archive files using {} threads", fileObjects.size(), numThreads);
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (FileObject fileObject : fileObjects) {
+                futures.add(executorService.submit(() -> processFileObject(archiveFileReader, fileObject, alleleWriter, alleleLogger)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                awaitCompletion(futures.get(i), fileObjects.get(i));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void awaitCompletion(Future<?> future, FileObject fileObject) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while processing archive file {}", fileObject.getName(), e);
+        } catch (ExecutionException e) {
+            logger.error("Error processing archive file {}", fileObject.getName(), e.getCause());
+        }
+    }
+
+    private void processFileObject(ArchiveFileReader archiveFileReader, FileObject fileObject, AlleleWriter alleleWriter, AlleleLogger alleleLogger) {
+        AlleleParser alleleParser = alleleParserSupplier.get();
+        if (alleleParser instanceof AsciiAlleleParser) {
+            processFileObjectAsBytes(archiveFileReader, fileObject, (AsciiAlleleParser) alleleParser, alleleWriter, alleleLogger);
+            return;
+        }
+        try (InputStream archiveFileInputStream = archiveFileReader.readFileObject(fileObject);
+             BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(archiveFileInputStream))) {
+            bufferedReader.lines()
+                    .flatMap(toAlleleStream(alleleParser))
+                    .peek(alleleLogger.logCount())
+                    .forEach(alleleWriter::write);
+        } catch (IOException e) {
+            logger.error("Error reading archive file {}", fileObject.getName(), e);
+        }
+    }
+
+    private void processFileObjectAsBytes(ArchiveFileReader archiveFileReader, FileObject fileObject, AsciiAlleleParser alleleParser, AlleleWriter alleleWriter, AlleleLogger alleleLogger) {
+        Consumer<Allele> logCount = alleleLogger.logCount();
+        try (AsciiLineReader asciiLineReader = new AsciiLineReader(archiveFileReader.readFileObject(fileObject))) {
+            AsciiLine line;
+            while ((line = asciiLineReader.readLine()) != null) {
+                List<Allele> alleles = line.startsWith('#') ? alleleParser.parseLine(line.toString()) : alleleParser.parseLine(line);
+                for (Allele allele : alleles) {
+                    logCount.accept(allele);
+                    alleleWriter.write(allele);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error reading archive file {}", fileObject.getName(), e);
+        }
+    }
+
+    private void processFileObjectInPipeline(ArchiveFileReader archiveFileReader, FileObject fileObject, AlleleWriter alleleWriter, AlleleLogger alleleLogger, int numParsers) {
+        AlleleParser alleleParser = alleleParserSupplier.get();
+        AlleleParsingPipeline alleleParsingPipeline = new AlleleParsingPipeline(alleleParser, numParsers);
+        logger.info("Processing archive file {} using {}", fileObject.getName(), alleleParsingPipeline);
+        if (alleleParser instanceof AsciiAlleleParser) {
+            try (AsciiLineReader asciiLineReader = new AsciiLineReader(archiveFileReader.readFileObject(fileObject))) {
+                alleleParsingPipeline.run(asciiLineReader, alleleWriter, alleleLogger.logCount());
+            } catch (IOException e) {
+                logger.error("Error reading archive file {}", fileObject.getName(), e);
+            }
+            return;
+        }
+        try (InputStream archiveFileInputStream = archiveFileReader.readFileObject(fileObject);
+             BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(archiveFileInputStream))) {
+            alleleParsingPipeline.run(bufferedReader, alleleWriter, alleleLogger.logCount());
+        } catch (IOException e) {
+            logger.error("Error reading archive file {}", fileObject.getName(), e);
+        }
+    }
+
+    private Function<String, Stream<Allele>> toAlleleStream(AlleleParser alleleParser) {
         return line -> alleleParser.parseLine(line).stream();
     }
 
@@ -70,10 +204,10 @@ public class AlleleArchiveProcessor {
 
         public Consumer<Allele> logCount() {
             return allele -> {
-                counter.incrementAndGet();
-                if (counter.get() % 1000000 == 0) {
+                int count = counter.incrementAndGet();
+                if (count % 1000000 == 0) {
                     long seconds = Duration.between(startTime, Instant.now()).getSeconds();
-                    logger.info("Processed {} variants total in {} sec", counter.get(), seconds);
+                    logger.info("Processed {} variants total in {} sec", count, seconds);
                     logger.info("{}", allele);
                 }
             };
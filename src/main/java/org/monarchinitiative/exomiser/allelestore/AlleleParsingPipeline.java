@@ -0,0 +1,277 @@
+package org.monarchinitiative.exomiser.allelestore;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.parsers.AlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.AsciiAlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.AsciiLine;
+import org.monarchinitiative.exomiser.allelestore.writers.AlleleWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Three stage pipeline for processing a single large archive file, such as the dbSNP or ExAC VCF, using several cores.
+ * <p>
+ * A reader thread decompresses and reads the file, grouping the lines into batches which are handed to a pool of
+ * parser threads. The pending batches are queued in their original order in a bounded queue, from which the writer
+ * stage (the calling thread) takes each parsed batch in turn and hands the alleles to the {@link AlleleWriter}. As
+ * the queue is bounded the reader will block once the parsers or the writer fall behind, so the memory used is
+ * limited to a few batches per parser thread. The alleles are written in exactly the same order as they would be by a
+ * single thread.
+ * <p>
+ * Header lines are passed to the parser on the reader thread before any following data lines are submitted, so
+ * parsers configured from the header, like the dbNSFP parser, are ready before the parser threads use them. Other
+ * than this the {@link AlleleParser} will be called concurrently and must be thread-safe.
+ * <p>
+ * An {@link AsciiAlleleParser} can instead be run over an {@link AsciiLineReader}, in which case each batch is a copy
+ * of the bytes of its lines and no line is ever decoded into a String.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class AlleleParsingPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlleleParsingPipeline.class);
+
+    static final int DEFAULT_BATCH_SIZE = 5000;
+
+    // a distinct instance, as the parsers return Collections.emptyList() for header lines
+    private static final List<Allele> END_OF_INPUT = Collections.unmodifiableList(new ArrayList<>());
+
+    private final AlleleParser alleleParser;
+    private final int numParsers;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    AlleleParsingPipeline(AlleleParser alleleParser, int numParsers) {
+        this(alleleParser, numParsers, DEFAULT_BATCH_SIZE, numParsers * 4);
+    }
+
+    /**
+     * @param alleleParser  a thread-safe parser
+     * @param numParsers    number of threads parsing the lines
+     * @param batchSize     number of lines handed to a parser thread at a time
+     * @param queueCapacity maximum number of batches read but not yet written
+     */
+    AlleleParsingPipeline(AlleleParser alleleParser, int numParsers, int batchSize, int queueCapacity) {
+        this.alleleParser = alleleParser;
+        this.numParsers = numParsers;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Reads all the lines from the reader, parses them and writes the resulting alleles to the writer. Returns once all
+     * the alleles have been handed to the writer.
+     *
+     * @param bufferedReader source of the lines to parse
+     * @param alleleWriter   destination of the parsed alleles
+     * @param alleleConsumer called for each allele before it is written - used for logging progress
+     * @throws IOException if the reader threw an exception while reading the input
+     */
+    void run(BufferedReader bufferedReader, AlleleWriter alleleWriter, Consumer<Allele> alleleConsumer) throws IOException {
+        run((parserExecutor, pendingBatches) -> readBatches(bufferedReader, parserExecutor, pendingBatches), alleleWriter, alleleConsumer);
+    }
+
+    /**
+     * As {@link #run(BufferedReader, AlleleWriter, Consumer)}, but reading the lines as bytes.
+     *
+     * @throws IllegalStateException if the parser is not an {@link AsciiAlleleParser}
+     */
+    void run(AsciiLineReader asciiLineReader, AlleleWriter alleleWriter, Consumer<Allele> alleleConsumer) throws IOException {
+        if (!(alleleParser instanceof AsciiAlleleParser)) {
+            throw new IllegalStateException(alleleParser.getClass().getSimpleName() + " cannot parse lines as bytes");
+        }
+        AsciiAlleleParser asciiAlleleParser = (AsciiAlleleParser) alleleParser;
+        run((parserExecutor, pendingBatches) -> readBatches(asciiLineReader, asciiAlleleParser, parserExecutor, pendingBatches), alleleWriter, alleleConsumer);
+    }
+
+    private void run(BatchReader batchReader, AlleleWriter alleleWriter, Consumer<Allele> alleleConsumer) throws IOException {
+        BlockingQueue<Future<List<Allele>>> pendingBatches = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService parserExecutor = Executors.newFixedThreadPool(numParsers, namedThreadFactory("allele-parser"));
+        ExecutorService readerExecutor = Executors.newSingleThreadExecutor(namedThreadFactory("allele-reader"));
+        try {
+            Future<?> reader = readerExecutor.submit(() -> {
+                readAll(batchReader, parserExecutor, pendingBatches);
+                return null;
+            });
+            writeBatches(pendingBatches, alleleWriter, alleleConsumer);
+            reader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing alleles", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            readerExecutor.shutdownNow();
+            parserExecutor.shutdownNow();
+        }
+    }
+
+    private void readAll(BatchReader batchReader, ExecutorService parserExecutor, BlockingQueue<Future<List<Allele>>> pendingBatches) throws IOException, InterruptedException {
+        try {
+            batchReader.readBatches(parserExecutor, pendingBatches);
+            pendingBatches.put(CompletableFuture.completedFuture(END_OF_INPUT));
+        } catch (Throwable e) {
+            // pass any failure, including an Error, on to the writer stage, otherwise it would wait forever for the end
+            // of the input
+            CompletableFuture<List<Allele>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            pendingBatches.put(failed);
+            throw e;
+        }
+    }
+
+    private void readBatches(BufferedReader bufferedReader, ExecutorService parserExecutor, BlockingQueue<Future<List<Allele>>> pendingBatches) throws IOException, InterruptedException {
+        List<String> batch = new ArrayList<>(batchSize);
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                submitBatch(batch, parserExecutor, pendingBatches);
+                batch = new ArrayList<>(batchSize);
+                pendingBatches.put(CompletableFuture.completedFuture(alleleParser.parseLine(line)));
+                continue;
+            }
+            batch.add(line);
+            if (batch.size() == batchSize) {
+                submitBatch(batch, parserExecutor, pendingBatches);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        submitBatch(batch, parserExecutor, pendingBatches);
+    }
+
+    private void readBatches(AsciiLineReader asciiLineReader, AsciiAlleleParser asciiAlleleParser, ExecutorService parserExecutor, BlockingQueue<Future<List<Allele>>> pendingBatches) throws IOException, InterruptedException {
+        ByteBatch batch = new ByteBatch();
+        AsciiLine line;
+        while ((line = asciiLineReader.readLine()) != null) {
+            if (line.startsWith('#')) {
+                submitBatch(batch, asciiAlleleParser, parserExecutor, pendingBatches);
+                batch = new ByteBatch();
+                pendingBatches.put(CompletableFuture.completedFuture(asciiAlleleParser.parseLine(line.toString())));
+                continue;
+            }
+            batch.add(line);
+            if (batch.numLines == batchSize) {
+                submitBatch(batch, asciiAlleleParser, parserExecutor, pendingBatches);
+                batch = new ByteBatch();
+            }
+        }
+        submitBatch(batch, asciiAlleleParser, parserExecutor, pendingBatches);
+    }
+
+    private void submitBatch(ByteBatch batch, AsciiAlleleParser asciiAlleleParser, ExecutorService parserExecutor, BlockingQueue<Future<List<Allele>>> pendingBatches) throws InterruptedException {
+        if (batch.numLines == 0) {
+            return;
+        }
+        pendingBatches.put(parserExecutor.submit(() -> batch.parse(asciiAlleleParser)));
+    }
+
+    private void submitBatch(List<String> batch, ExecutorService parserExecutor, BlockingQueue<Future<List<Allele>>> pendingBatches) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        pendingBatches.put(parserExecutor.submit(() -> parseBatch(batch)));
+    }
+
+    private List<Allele> parseBatch(List<String> lines) {
+        List<Allele> alleles = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            alleles.addAll(alleleParser.parseLine(line));
+        }
+        return alleles;
+    }
+
+    private void writeBatches(BlockingQueue<Future<List<Allele>>> pendingBatches, AlleleWriter alleleWriter, Consumer<Allele> alleleConsumer) throws InterruptedException, ExecutionException {
+        List<Allele> alleles;
+        while ((alleles = pendingBatches.take().get()) != END_OF_INPUT) {
+            for (Allele allele : alleles) {
+                alleleConsumer.accept(allele);
+                alleleWriter.write(allele);
+            }
+        }
+    }
+
+    private IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    @FunctionalInterface
+    private interface BatchReader {
+        /**
+         * Reads the input, submitting batches of lines to the parser executor and adding their futures to the pending
+         * batches in the order they were read.
+         */
+        void readBatches(ExecutorService parserExecutor, BlockingQueue<Future<List<Allele>>> pendingBatches) throws IOException, InterruptedException;
+    }
+
+    /**
+     * The bytes of a batch of lines, each followed by a '\n'.
+     */
+    private static class ByteBatch {
+
+        private byte[] bytes = new byte[64 * 1024];
+        private int length;
+        private int numLines;
+
+        void add(AsciiLine line) {
+            int lineLength = line.length();
+            if (length + lineLength + 1 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + lineLength + 1));
+            }
+            line.copyTo(bytes, length);
+            length += lineLength;
+            bytes[length++] = '\n';
+            numLines++;
+        }
+
+        List<Allele> parse(AsciiAlleleParser asciiAlleleParser) {
+            List<Allele> alleles = new ArrayList<>(numLines);
+            AsciiLine line = new AsciiLine();
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] == '\n') {
+                    alleles.addAll(asciiAlleleParser.parseLine(line.set(bytes, start, i - start)));
+                    start = i + 1;
+                }
+            }
+            return alleles;
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "AlleleParsingPipeline{" +
+                "numParsers=" + numParsers +
+                ", batchSize=" + batchSize +
+                ", queueCapacity=" + queueCapacity +
+                '}';
+    }
+}
@@ -7,7 +7,15 @@ import org.monarchinitiative.exomiser.allelestore.archive.EspAlleleArchive;
 import org.monarchinitiative.exomiser.allelestore.archive.TabixAlleleArchive;
 import org.monarchinitiative.exomiser.allelestore.indexers.*;
 import org.monarchinitiative.exomiser.allelestore.parsers.*;
+import org.monarchinitiative.exomiser.allelestore.readers.AlleleReader;
+import org.monarchinitiative.exomiser.allelestore.readers.MappedAlleleReader;
+import org.monarchinitiative.exomiser.allelestore.readers.QuantisationValidator;
 import org.monarchinitiative.exomiser.allelestore.writers.AlleleAppendingFileWriter;
+import org.monarchinitiative.exomiser.allelestore.writers.AlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.ExternalSortAlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.InMemoryAlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.OffHeapAlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.TempFileFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -19,6 +27,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
@@ -28,12 +37,20 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(AlleleArchiveProcessor.class);
 
+    private static final String QUANTISED_INDEX_SUFFIX = "-quantised";
+
     private final Path workingDir;
-    private final AlleleAppendingFileWriter alleleWriter;
+    private AlleleAppendingFileWriter alleleWriter;
+
+    private int numThreads = 1;
+    private TempFileFormat tempFileFormat = TempFileFormat.TEXT;
+    private int sortWindowSize = 0;
+    private boolean usePackedKeys = false;
+    private boolean useQuantisedValues = false;
+    private AlleleMerger alleleMerger = new InMemoryAlleleMerger();
 
     public AlleleStoreApplicationRunner(Path workingDir) {
         this.workingDir = workingDir;
-        this.alleleWriter = new AlleleAppendingFileWriter(workingDir);
     }
 
     @Override
@@ -42,6 +59,35 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
         //--working-directory=
         //--loadDbSnp=C:/Users/hhx640/Downloads/00-All.vcf.gz --loadExac=C:/Users/hhx640/Downloads/ExAC.r0.3.1.sites.vep.vcf.gz --loadEsp=C:/Users/hhx640/Downloads/ESP6500SI-V2-SSA137.GRCh38-liftover.snps_indels.vcf.tar.gz --out=exomiser_frequencies.allele
 
+        if (applicationArguments.containsOption("threads")) {
+            //--threads=8
+            setNumThreads(applicationArguments.getOptionValues("threads"));
+        }
+
+        if (applicationArguments.containsOption("mergeMemoryMb")) {
+            //--mergeMemoryMb=2048
+            setMergeMemory(applicationArguments.getOptionValues("mergeMemoryMb"));
+        }
+
+        if (applicationArguments.containsOption("mergeOffHeap")) {
+            //--mergeOffHeap
+            alleleMerger = new OffHeapAlleleMerger();
+            logger.info("Merging using off-heap tables");
+        }
+
+        if (applicationArguments.containsOption("tempFormat")) {
+            //--tempFormat=binary
+            setTempFileFormat(applicationArguments.getOptionValues("tempFormat"));
+        }
+
+        if (applicationArguments.containsOption("streamingMerge")) {
+            //--streamingMerge
+            sortWindowSize = AlleleAppendingFileWriter.DEFAULT_SORT_WINDOW_SIZE;
+            logger.info("Writing temp files as sorted runs for a streaming merge");
+        }
+
+        alleleWriter = new AlleleAppendingFileWriter(workingDir, AlleleAppendingFileWriter.DEFAULT_BUFFER_SIZE, tempFileFormat, sortWindowSize);
+
         if (applicationArguments.containsOption("loadExac")) {
             //--loadExac=C:/Users/hhx640/Downloads/ExAC.r0.3.1.sites.vep.vcf.gz
             processExac(applicationArguments.getOptionValues("loadExac"));
@@ -63,23 +109,57 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
         }
         if (applicationArguments.containsOption("out")) {
             //--out=exomiser_merged.allele
-            // use VM options: -XX:+UseG1GC -Xmx10G
+            // use VM options: -XX:+UseG1GC -Xmx10G or --mergeMemoryMb to merge using less RAM or --mergeOffHeap to keep the alleles off the heap
             mergeToOutfile(applicationArguments.getOptionValues("out"));
         }
 
         if (applicationArguments.containsOption("indexer")) {
+            //--indexer=mvStore --packedKeys
+            //--indexer=mapped --quantised
+            usePackedKeys = applicationArguments.containsOption("packedKeys");
+            useQuantisedValues = applicationArguments.containsOption("quantised");
             createIndex(applicationArguments.getOptionValues("indexer"));
         }
 
+        if (applicationArguments.containsOption("validateQuantised")) {
+            //--validateQuantised compares the mapped and mapped-quantised indexes built from the same file
+            validateQuantisedIndex();
+        }
+
         logger.info("Done");
     }
 
+    private void setNumThreads(List<String> threadsOption) {
+        if (threadsOption.isEmpty()) {
+            throw new IllegalArgumentException("Please specify the number of threads to use");
+        }
+        numThreads = Integer.parseInt(threadsOption.get(0));
+        logger.info("Using {} threads", numThreads);
+    }
+
+    private void setMergeMemory(List<String> mergeMemoryOption) {
+        if (mergeMemoryOption.isEmpty()) {
+            throw new IllegalArgumentException("Please specify the amount of memory in MB to use when merging");
+        }
+        long mergeMemoryMb = Long.parseLong(mergeMemoryOption.get(0));
+        alleleMerger = ExternalSortAlleleMerger.withMemoryBudget(workingDir, mergeMemoryMb * 1024 * 1024);
+        logger.info("Merging using sorted runs of {}MB", mergeMemoryMb);
+    }
+
+    private void setTempFileFormat(List<String> tempFormatOption) {
+        if (tempFormatOption.isEmpty()) {
+            throw new IllegalArgumentException("Please specify the temp file format, text, binary or quantised");
+        }
+        tempFileFormat = TempFileFormat.valueOf(tempFormatOption.get(0).toUpperCase());
+        logger.info("Writing {} temp files", tempFileFormat);
+    }
+
     private void processExac(List<String> fileName) {
         if (fileName.isEmpty()) {
             throw new IllegalArgumentException("Please specify the full system path to ExAC ExAC.r0.3.1.sites.vep.vcf.gz file");
         }
         logger.info("Loading ExAC");
-        processArchive(new TabixAlleleArchive(Paths.get(fileName.get(0))), new ExacAlleleParser());
+        processArchive(new TabixAlleleArchive(Paths.get(fileName.get(0))), ExacAlleleParser::new);
     }
 
     private void processDbSnp(List<String> fileName) {
@@ -87,7 +167,7 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
             throw new IllegalArgumentException("Please specify the full system path to dbSNP 00-All file");
         }
         logger.info("Loading dbSNP");
-        processArchive(new TabixAlleleArchive(Paths.get(fileName.get(0))), new DbSnpAlleleParser());
+        processArchive(new TabixAlleleArchive(Paths.get(fileName.get(0))), DbSnpAlleleParser::new);
     }
 
     private void processEsp(List<String> fileName) {
@@ -95,7 +175,7 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
             throw new IllegalArgumentException("Please specify the full system path to ESP ESP6500SI-V2-SSA137.GRCh38-liftover.snps_indels.vcf.tar.gz file");
         }
         logger.info("Loading ESP");
-        processArchive(new EspAlleleArchive(Paths.get(fileName.get(0))), new EspAlleleParser());
+        processArchive(new EspAlleleArchive(Paths.get(fileName.get(0))), EspAlleleParser::new);
     }
 
     private void processDbNsfp(List<String> fileName) {
@@ -103,12 +183,14 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
             throw new IllegalArgumentException("Please specify the full system path to dbNSFP zip file");
         }
         logger.info("Loading dbNSFP");
-        processArchive(new DbNsfpAlleleArchive(Paths.get(fileName.get(0))), new DbNsfpAlleleParser());
+        DbNsfpAlleleParser.RowCounts rowCounts = new DbNsfpAlleleParser.RowCounts();
+        processArchive(new DbNsfpAlleleArchive(Paths.get(fileName.get(0))), () -> DbNsfpAlleleParser.withRowCounts(rowCounts));
+        logger.info("dbNSFP {}", rowCounts);
     }
 
-    private void processArchive(AlleleArchive alleleArchive, AlleleParser alleleParser) {
-        AlleleArchiveProcessor alleleArchiveProcessor = new AlleleArchiveProcessor(alleleArchive, alleleParser);
-        alleleArchiveProcessor.process(alleleWriter);
+    private void processArchive(AlleleArchive alleleArchive, Supplier<AlleleParser> alleleParserSupplier) {
+        AlleleArchiveProcessor alleleArchiveProcessor = new AlleleArchiveProcessor(alleleArchive, alleleParserSupplier);
+        alleleArchiveProcessor.process(alleleWriter, numThreads);
     }
 
     private void mergeToOutfile(List<String> outOptions) {
@@ -117,7 +199,7 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
         }
         String mergedFileName = outOptions.get(0);
         logger.info("Merging alleles to file {}", mergedFileName);
-        alleleWriter.mergeToFile(mergedFileName);
+        alleleWriter.mergeToFile(mergedFileName, alleleMerger, numThreads, Runtime.getRuntime().maxMemory());
     }
 
     private void createIndex(List<String> indexOption) throws IOException {
@@ -125,8 +207,11 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
             throw new IllegalArgumentException("Please specify the indexer required");
         }
         String indexer = indexOption.get(0);
+        if (useQuantisedValues && !"mapped".equals(indexer)) {
+            throw new IllegalArgumentException("Only the mapped indexer can store quantised values");
+        }
         logger.info("Running {} indexer", indexer);
-        Path indexerDir = workingDir.resolve(indexer);
+        Path indexerDir = workingDir.resolve(useQuantisedValues ? indexer + QUANTISED_INDEX_SUFFIX : indexer);
         if (!indexerDir.toFile().exists()) {
             Files.createDirectory(indexerDir);
         }
@@ -136,15 +221,27 @@ public class AlleleStoreApplicationRunner implements ApplicationRunner {
         alleleIndexer.buildIndex(workingDir.resolve("exomiser-all.vcf"), indexerDir);
     }
 
+    private void validateQuantisedIndex() throws IOException {
+        Path fullPrecisionDir = workingDir.resolve("mapped");
+        Path quantisedDir = workingDir.resolve("mapped" + QUANTISED_INDEX_SUFFIX);
+        logger.info("Validating quantised index {} against {}", quantisedDir, fullPrecisionDir);
+        try (AlleleReader fullPrecisionReader = new MappedAlleleReader(fullPrecisionDir);
+             AlleleReader quantisedReader = new MappedAlleleReader(quantisedDir)) {
+            new QuantisationValidator(fullPrecisionReader, quantisedReader).validate();
+        }
+    }
+
     @NotNull
     private AlleleIndexer getAlleleIndexer(String indexer, Path indexPath) {
         switch (indexer) {
             case "mvStore":
-                return new MvStoreAlleleIndexer(indexPath);
+                return new MvStoreAlleleIndexer(indexPath, usePackedKeys);
             case "mapDB":
-                return new MapDBAlleleIndexer(indexPath);
+                return new MapDBAlleleIndexer(indexPath, usePackedKeys);
             case "berkeley":
                 return new SleepyCatAlleleIndexer(indexPath);
+            case "mapped":
+                return new MappedAlleleIndexer(indexPath, useQuantisedValues);
             case "lucene":
             default:
                 return new LuceneAlleleIndexer(indexPath);
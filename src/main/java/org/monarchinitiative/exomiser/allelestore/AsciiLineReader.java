@@ -0,0 +1,96 @@
+package org.monarchinitiative.exomiser.allelestore;
+
+import org.monarchinitiative.exomiser.allelestore.parsers.AsciiLine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads '\n' or "\r\n" terminated lines from an InputStream as {@link AsciiLine} views of its internal buffer, so
+ * unlike a BufferedReader the bytes are never decoded into chars or copied into a String.
+ * <p>
+ * The returned line is overwritten by the next call to {@link #readLine()}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class AsciiLineReader implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final AsciiLine line = new AsciiLine();
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    AsciiLineReader(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    AsciiLineReader(InputStream inputStream, int bufferSize) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * @return the next line, without the line terminator, or null at the end of the input.
+     */
+    AsciiLine readLine() throws IOException {
+        int scanFrom = position;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    int start = position;
+                    position = i + 1;
+                    return setLine(start, i);
+                }
+            }
+            if (endOfInput) {
+                if (position == limit) {
+                    return null;
+                }
+                int start = position;
+                position = limit;
+                return setLine(start, limit);
+            }
+            scanFrom = limit - position;
+            fill();
+        }
+    }
+
+    private AsciiLine setLine(int start, int end) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        return line.set(buffer, start, end - start);
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, growing it if it is full, and reads more input after them.
+     */
+    private void fill() throws IOException {
+        int unread = limit - position;
+        if (unread == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, unread);
+        }
+        position = 0;
+        limit = unread;
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
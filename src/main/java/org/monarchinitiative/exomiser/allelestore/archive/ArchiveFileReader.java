@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -20,11 +21,23 @@ public class ArchiveFileReader {
     private final Path archiveFileName;
     private final String archiveFormat;
     private final String dataFileFormat;
+    private final int numDecompressionThreads;
 
     public ArchiveFileReader(AlleleArchive alleleArchive) {
+        this(alleleArchive, 1);
+    }
+
+    /**
+     * @param alleleArchive           the archive to read
+     * @param numDecompressionThreads if greater than 1, BGZF compressed gz archives (e.g. dbSNP and ExAC) will be
+     *                                decompressed using this many threads. Plain gzip files are always decompressed
+     *                                on the reading thread.
+     */
+    public ArchiveFileReader(AlleleArchive alleleArchive, int numDecompressionThreads) {
         this.archiveFileName = alleleArchive.getPath();
         this.archiveFormat = alleleArchive.getArchiveFileFormat();
         this.dataFileFormat = alleleArchive.getDataFileFormat();
+        this.numDecompressionThreads = numDecompressionThreads;
     }
 
     public List<FileObject> getFileObjects() {
@@ -43,7 +56,29 @@ public class ArchiveFileReader {
         return archiveFileInputStreams;
     }
 
+    /**
+     * The VFS tar providers serve every entry from a single shared stream, so the files of a tar archive must be read
+     * one after another. Zip entries are read from independent streams and can be read concurrently.
+     *
+     * @return true if more than one file of the archive can be read at the same time.
+     */
+    public boolean supportsConcurrentReads() {
+        switch (archiveFormat) {
+            case "tar":
+            case "tgz":
+            case "tbz2":
+                return false;
+            default:
+                return true;
+        }
+    }
+
     public InputStream readFileObject(FileObject fileObject) throws IOException {
+        if (numDecompressionThreads > 1 && "gz".equals(archiveFormat) && ParallelBgzfInputStream.isBgzf(archiveFileName)) {
+            // a gz archive only has the one child, which is the whole of the decompressed archive file
+            logger.info("Reading BGZF archive file {} using {} decompression threads", fileObject.getName(), numDecompressionThreads);
+            return new ParallelBgzfInputStream(Files.newInputStream(archiveFileName), numDecompressionThreads);
+        }
         logger.info("Reading archive file {}", fileObject.getName());
         FileContent fileContent = fileObject.getContent();
         return fileContent.getInputStream();
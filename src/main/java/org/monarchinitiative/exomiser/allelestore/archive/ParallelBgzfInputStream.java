@@ -0,0 +1,279 @@
+package org.monarchinitiative.exomiser.allelestore.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a BGZF (blocked gzip, as produced by bgzip and used for tabix indexed files) stream using several
+ * threads.
+ * <p>
+ * A BGZF file is a series of independent gzip members of at most 64KB, each of which records its compressed size in
+ * a 'BC' extra field. This allows the compressed blocks to be read one after another on the calling thread and
+ * inflated in parallel on a worker pool. The inflated blocks are returned in their original order, so reading from
+ * this stream gives exactly the same bytes as a {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * Use {@link #isBgzf(Path)} to check a file is in BGZF format before reading it, plain gzip files cannot be read by
+ * this class.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ * @link https://samtools.github.io/hts-specs/SAMv1.pdf section 4.1
+ */
+public class ParallelBgzfInputStream extends InputStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelBgzfInputStream.class);
+
+    private static final int GZIP_ID1 = 0x1f;
+    private static final int GZIP_ID2 = 0x8b;
+    private static final int GZIP_CM_DEFLATE = 8;
+    private static final int GZIP_FLG_FEXTRA = 4;
+    private static final int BGZF_SI1 = 'B';
+    private static final int BGZF_SI2 = 'C';
+    // fixed part of the gzip header, up to and including the XLEN field
+    private static final int GZIP_HEADER_LENGTH = 12;
+    // CRC32 and ISIZE fields
+    private static final int GZIP_FOOTER_LENGTH = 8;
+    // the largest uncompressed block allowed by the BGZF specification
+    private static final int MAX_INFLATED_SIZE = 65536;
+
+    private static final byte[] EMPTY_BLOCK = new byte[0];
+
+    private final DataInputStream compressedInputStream;
+    private final ExecutorService inflaterExecutor;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final int maxPendingBlocks;
+
+    private byte[] currentBlock = EMPTY_BLOCK;
+    private int currentBlockPos;
+    private boolean endOfCompressedInput;
+
+    /**
+     * @param compressedInputStream the BGZF compressed input
+     * @param numThreads            number of threads used to inflate the blocks.
+     */
+    public ParallelBgzfInputStream(InputStream compressedInputStream, int numThreads) {
+        this.compressedInputStream = new DataInputStream(new BufferedInputStream(compressedInputStream, 1024 * 1024));
+        this.inflaterExecutor = Executors.newFixedThreadPool(numThreads, inflaterThreadFactory());
+        // enough read-ahead to keep all the threads busy while the current blocks are consumed
+        this.maxPendingBlocks = numThreads * 4;
+    }
+
+    private static ThreadFactory inflaterThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bgzf-inflater-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Checks the header of the first gzip member of the file for the BGZF 'BC' extra subfield.
+     *
+     * @param path the file to check
+     * @return true if the file is BGZF compressed, false if it is plain gzip or not gzip compressed at all.
+     */
+    public static boolean isBgzf(Path path) {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] header = new byte[GZIP_HEADER_LENGTH];
+            inputStream.readFully(header);
+            if (!isGzipHeaderWithExtraField(header)) {
+                return false;
+            }
+            byte[] extraField = new byte[readXlen(header)];
+            inputStream.readFully(extraField);
+            return findBlockSize(extraField) >= 0;
+        } catch (IOException e) {
+            logger.debug("Unable to read header of {}", path, e);
+            return false;
+        }
+    }
+
+    private static boolean isGzipHeaderWithExtraField(byte[] header) {
+        return (header[0] & 0xff) == GZIP_ID1
+                && (header[1] & 0xff) == GZIP_ID2
+                && (header[2] & 0xff) == GZIP_CM_DEFLATE
+                && (header[3] & GZIP_FLG_FEXTRA) != 0;
+    }
+
+    private static int readXlen(byte[] header) {
+        return (header[10] & 0xff) | (header[11] & 0xff) << 8;
+    }
+
+    /**
+     * @return the BSIZE value of the BC subfield or -1 if there is no BC subfield.
+     */
+    private static int findBlockSize(byte[] extraField) {
+        int pos = 0;
+        while (pos + 4 <= extraField.length) {
+            int si1 = extraField[pos] & 0xff;
+            int si2 = extraField[pos + 1] & 0xff;
+            int subfieldLength = (extraField[pos + 2] & 0xff) | (extraField[pos + 3] & 0xff) << 8;
+            if (si1 == BGZF_SI1 && si2 == BGZF_SI2 && subfieldLength == 2 && pos + 6 <= extraField.length) {
+                return (extraField[pos + 4] & 0xff) | (extraField[pos + 5] & 0xff) << 8;
+            }
+            pos += 4 + subfieldLength;
+        }
+        return -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillCurrentBlock()) {
+            return -1;
+        }
+        return currentBlock[currentBlockPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillCurrentBlock()) {
+            return -1;
+        }
+        int numRead = Math.min(len, currentBlock.length - currentBlockPos);
+        System.arraycopy(currentBlock, currentBlockPos, bytes, off, numRead);
+        currentBlockPos += numRead;
+        return numRead;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return currentBlock.length - currentBlockPos;
+    }
+
+    /**
+     * @return true if there are bytes left in the current block, false if the end of the input has been reached.
+     */
+    private boolean fillCurrentBlock() throws IOException {
+        // loop as the BGZF end-of-file marker, and potentially other blocks, are empty
+        while (currentBlockPos == currentBlock.length) {
+            submitBlocks();
+            Future<byte[]> nextBlock = pendingBlocks.poll();
+            if (nextBlock == null) {
+                return false;
+            }
+            currentBlock = awaitBlock(nextBlock);
+            currentBlockPos = 0;
+        }
+        return true;
+    }
+
+    private void submitBlocks() throws IOException {
+        while (!endOfCompressedInput && pendingBlocks.size() < maxPendingBlocks) {
+            byte[] compressedBlock = readCompressedBlock();
+            if (compressedBlock == null) {
+                endOfCompressedInput = true;
+            } else {
+                pendingBlocks.add(inflaterExecutor.submit(() -> inflateBlock(compressedBlock)));
+            }
+        }
+    }
+
+    /**
+     * @return the CDATA, CRC32 and ISIZE fields of the next block or null if the end of the input has been reached.
+     */
+    private byte[] readCompressedBlock() throws IOException {
+        byte[] header = new byte[GZIP_HEADER_LENGTH];
+        int numRead = compressedInputStream.read(header);
+        if (numRead == -1) {
+            return null;
+        }
+        if (numRead < GZIP_HEADER_LENGTH) {
+            compressedInputStream.readFully(header, numRead, GZIP_HEADER_LENGTH - numRead);
+        }
+        if (!isGzipHeaderWithExtraField(header)) {
+            throw new IOException("Invalid BGZF block header");
+        }
+        int xlen = readXlen(header);
+        byte[] extraField = new byte[xlen];
+        compressedInputStream.readFully(extraField);
+        int blockSize = findBlockSize(extraField);
+        if (blockSize < 0) {
+            throw new IOException("BGZF block is missing the BC extra subfield");
+        }
+        if (blockSize + 1 < GZIP_HEADER_LENGTH + xlen + GZIP_FOOTER_LENGTH) {
+            throw new IOException("Invalid BGZF block size " + (blockSize + 1) + " for XLEN " + xlen);
+        }
+        byte[] compressedBlock = new byte[blockSize + 1 - GZIP_HEADER_LENGTH - xlen];
+        compressedInputStream.readFully(compressedBlock);
+        return compressedBlock;
+    }
+
+    private static byte[] inflateBlock(byte[] compressedBlock) throws IOException {
+        int dataLength = compressedBlock.length - GZIP_FOOTER_LENGTH;
+        int expectedCrc = readInt(compressedBlock, dataLength);
+        int inflatedSize = readInt(compressedBlock, dataLength + 4);
+        if (inflatedSize < 0 || inflatedSize > MAX_INFLATED_SIZE) {
+            throw new IOException("Invalid BGZF block ISIZE " + (inflatedSize & 0xffffffffL));
+        }
+        byte[] inflated = new byte[inflatedSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressedBlock, 0, dataLength);
+            int numInflated = 0;
+            while (numInflated < inflatedSize) {
+                int count = inflater.inflate(inflated, numInflated, inflatedSize - numInflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                numInflated += count;
+            }
+            if (numInflated != inflatedSize) {
+                throw new IOException("Inflated BGZF block size " + numInflated + " does not match ISIZE " + inflatedSize);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid BGZF block data", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(inflated, 0, inflatedSize);
+        if ((int) crc32.getValue() != expectedCrc) {
+            throw new IOException("BGZF block failed CRC check");
+        }
+        return inflated;
+    }
+
+    private static int readInt(byte[] bytes, int pos) {
+        return (bytes[pos] & 0xff) | (bytes[pos + 1] & 0xff) << 8 | (bytes[pos + 2] & 0xff) << 16 | (bytes[pos + 3] & 0xff) << 24;
+    }
+
+    private byte[] awaitBlock(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while inflating BGZF block");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflaterExecutor.shutdownNow();
+        pendingBlocks.clear();
+        compressedInputStream.close();
+    }
+}
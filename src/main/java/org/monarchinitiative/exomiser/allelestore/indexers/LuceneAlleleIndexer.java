@@ -14,7 +14,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Map;
 
 /**
  * Produces a lucene index from the alleles
@@ -70,16 +69,23 @@ public class LuceneAlleleIndexer extends AbstractAlleleIndexer {
 
     private Document toAlleleDoc(Allele allele) {
         Document doc = new Document();
-        //these aren't stored in the index as we don't really need them.
+        // the chr is always known by a query so isn't stored, the pos, ref and alt are stored for region queries
         doc.add(new IntPoint("chr", allele.getChr()));
         doc.add(new IntPoint("pos", allele.getPos()));
+        doc.add(new StoredField("pos", allele.getPos()));
 
-        doc.add(new StringField("rsId", allele.getRsId(), Field.Store.YES));
-        doc.add(new StringField("ref", allele.getRef(), Field.Store.NO));
-        doc.add(new StringField("alt", allele.getAlt(), Field.Store.NO));
+        // rsIds are held as their number, missing rsIds are not added to save space
+        if (allele.hasRsId()) {
+            doc.add(new LongPoint("rsId", allele.getRsNumber()));
+            doc.add(new StoredField("rsId", allele.getRsNumber()));
+        }
+        doc.add(new StringField("ref", allele.getRef(), Field.Store.YES));
+        doc.add(new StringField("alt", allele.getAlt(), Field.Store.YES));
 
-        for (Map.Entry<AlleleProperty, Float> entry : allele.getValues().entrySet()) {
-            doc.add(new StoredField(entry.getKey().name(), entry.getValue()));
+        for (AlleleProperty property : AlleleProperty.values()) {
+            if (allele.hasValue(property)) {
+                doc.add(new StoredField(property.name(), allele.getValueOrDefault(property, 0f)));
+            }
         }
         return doc;
     }
@@ -5,6 +5,7 @@ import org.mapdb.DBMaker;
 import org.mapdb.Serializer;
 import org.mapdb.serializer.SerializerCompressionWrapper;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +14,11 @@ import java.nio.file.Path;
 import java.util.Map;
 
 /**
+ * Writes the alleles to a MapDB file. By default the alleles are keyed by {@link Allele#generateKey()}. When using
+ * packed keys the alleles are instead stored in a tree map keyed by their {@link AlleleKey}, apart from those with a
+ * hashed key which are stored by their {@link AlleleKey#sortableKey} in the "alleles_overflow" map. Both maps of the
+ * packed layout are tree maps so that the alleles of a region can be read back in order.
+ *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class MapDBAlleleIndexer extends AbstractAlleleIndexer {
@@ -20,9 +26,20 @@ public class MapDBAlleleIndexer extends AbstractAlleleIndexer {
     private static final Logger logger = LoggerFactory.getLogger(MapDBAlleleIndexer.class);
 
     private final DB db;
+    private final boolean usePackedKeys;
     private final Map<String, String> map;
+    private final Map<Long, String> packedKeyMap;
 
     public MapDBAlleleIndexer(Path indexPath) {
+        this(indexPath, false);
+    }
+
+    /**
+     * @param indexPath     directory in which to write the alleles.db file
+     * @param usePackedKeys if true the alleles are keyed by their {@link AlleleKey} rather than by a String
+     */
+    public MapDBAlleleIndexer(Path indexPath, boolean usePackedKeys) {
+        this.usePackedKeys = usePackedKeys;
         File dbFile = indexPath.resolve("alleles.db").toAbsolutePath().toFile();
         db = DBMaker
                 .fileDB(dbFile)
@@ -32,17 +49,38 @@ public class MapDBAlleleIndexer extends AbstractAlleleIndexer {
 //                .closeOnJvmShutdown()
                 .make();
 
-        map = db.hashMap("alleles")
-                .keySerializer(Serializer.STRING)
-                .valueSerializer(new SerializerCompressionWrapper(Serializer.STRING))
-                .createOrOpen();
+        if (usePackedKeys) {
+            packedKeyMap = db.treeMap("alleles")
+                    .keySerializer(Serializer.LONG)
+                    .valueSerializer(new SerializerCompressionWrapper<>(Serializer.STRING))
+                    .createOrOpen();
+            map = db.treeMap("alleles_overflow")
+                    .keySerializer(Serializer.STRING)
+                    .valueSerializer(new SerializerCompressionWrapper<>(Serializer.STRING))
+                    .createOrOpen();
+        } else {
+            packedKeyMap = null;
+            map = db.hashMap("alleles")
+                    .keySerializer(Serializer.STRING)
+                    .valueSerializer(new SerializerCompressionWrapper(Serializer.STRING))
+                    .createOrOpen();
+        }
     }
 
     protected void writeAllele(Allele allele) {
         //TODO: if this works well there is no need to do the merge step for the file, just use this directly
         // in the AlleleAppendingFileWriter.readAndMergeAlleles
-        String key = allele.generateKey();
         String value = allele.generateInfoField();
+        if (usePackedKeys) {
+            long packedKey = allele.generatePackedKey();
+            if (AlleleKey.isExact(packedKey)) {
+                packedKeyMap.put(packedKey, value);
+            } else {
+                map.put(allele.generateSortableKey(), value);
+            }
+            return;
+        }
+        String key = allele.generateKey();
         map.put(key, value);
     }
 
@@ -0,0 +1,91 @@
+package org.monarchinitiative.exomiser.allelestore.indexers;
+
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+
+import java.nio.file.Path;
+
+/**
+ * The file format written by the {@link MappedAlleleIndexer}. Each chromosome is written to its own chr{n}.alleles file
+ * of big-endian sections, each of which is memory-mapped on its own:
+ * <pre>
+ * header          int magic, int version, int flags, int number of alleles, int number of sections, then the long
+ *                 offset and long length in bytes of each section
+ * POSITIONS       int pos of each allele, in the sorted order of the alleles
+ * BLOCKS          int pos of every {@link #BLOCK_SIZE}th allele, a sparse index of the positions
+ * ALLELE_CODES    int code of the ref and alt of each allele
+ * DICTIONARY_OFFSETS  int start of each entry of the dictionary, followed by the end of the last entry
+ * DICTIONARY      ASCII ref TAB alt of the alleles which cannot be packed into their code
+ * RS_IDS          long rsId number of each allele, 0 when missing
+ * then three sections per {@link AlleleProperty}, in ordinal order:
+ * PRESENCE        long words of a bitmap with bit n set if allele n has a value, low bits first
+ * RANKS           int number of values before every {@link #RANK_BLOCK_SIZE}th allele
+ * VALUES          float value of each allele which has one, or the short {@link Quantisation} of the value if the
+ *                 {@link #QUANTISED_VALUES} flag is set
+ * </pre>
+ * Most alleles have only a few of the properties, so the values are packed and the value of an allele is found by
+ * counting the bits of the bitmap from the last rank. Each property is its own column, so reading a subset of the
+ * properties only touches their columns.
+ * <p>
+ * The ref and alt of an allele with an exact {@link AlleleKey} are packed into the code as the bits below the hashed
+ * flag of the key. The other alleles have the {@link #DICTIONARY_CODE} bit set and the rest of the code is the index
+ * of their ref and alt in the dictionary, which holds each distinct ref and alt of the chromosome once. Sections start
+ * on an 8 byte boundary.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public final class MappedAlleleFormat {
+
+    public static final int MAGIC = 0x45584153;
+    public static final int VERSION = 3;
+
+    public static final int QUANTISED_VALUES = 1;
+
+    public static final int BLOCK_SIZE = 256;
+    // eight words of a presence bitmap, one cache line
+    public static final int RANK_BLOCK_SIZE = 512;
+
+    public static final int DICTIONARY_CODE = 1 << 29;
+    public static final int EXACT_CODE_MASK = DICTIONARY_CODE - 1;
+
+    public static final int POSITIONS = 0;
+    public static final int BLOCKS = 1;
+    public static final int ALLELE_CODES = 2;
+    public static final int DICTIONARY_OFFSETS = 3;
+    public static final int DICTIONARY = 4;
+    public static final int RS_IDS = 5;
+    private static final int FIRST_PROPERTY = 6;
+    private static final int PROPERTY_SECTIONS = 3;
+    public static final int NUM_SECTIONS = FIRST_PROPERTY + PROPERTY_SECTIONS * AlleleProperty.values().length;
+
+    // magic, version, flags, number of alleles and number of sections
+    static final int HEADER_BYTES = 5 * Integer.BYTES;
+
+    private MappedAlleleFormat() {
+    }
+
+    public static int presenceSection(AlleleProperty property) {
+        return FIRST_PROPERTY + PROPERTY_SECTIONS * property.ordinal();
+    }
+
+    public static int rankSection(AlleleProperty property) {
+        return presenceSection(property) + 1;
+    }
+
+    public static int valueSection(AlleleProperty property) {
+        return presenceSection(property) + 2;
+    }
+
+    public static int headerSize() {
+        return (int) align(HEADER_BYTES + NUM_SECTIONS * 2L * Long.BYTES);
+    }
+
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    public static Path chromosomeFile(Path indexPath, int chr) {
+        return indexPath.resolve("chr" + chr + ".alleles");
+    }
+}
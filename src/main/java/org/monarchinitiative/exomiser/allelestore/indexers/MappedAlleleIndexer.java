@@ -0,0 +1,243 @@
+package org.monarchinitiative.exomiser.allelestore.indexers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the alleles to an immutable store of columns in the {@link MappedAlleleFormat}, one file per chromosome,
+ * designed to be memory-mapped by the MappedAlleleReader. The store is written in a single pass over the merged allele
+ * file, which must be sorted, as produced by the AlleleAppendingFileWriter. The columns of each chromosome are spooled
+ * to temp files and then joined into the chromosome file once all its alleles have been written.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MappedAlleleIndexer extends AbstractAlleleIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedAlleleIndexer.class);
+
+    private final Path indexPath;
+    private final boolean quantised;
+    private ChromosomeWriter chromosomeWriter;
+
+    /**
+     * @param indexPath directory in which to write the chromosome files
+     */
+    public MappedAlleleIndexer(Path indexPath) {
+        this(indexPath, false);
+    }
+
+    /**
+     * @param indexPath directory in which to write the chromosome files
+     * @param quantised write each value as the 16 bit {@link Quantisation} of its property rather than a float
+     */
+    public MappedAlleleIndexer(Path indexPath, boolean quantised) {
+        this.indexPath = indexPath;
+        this.quantised = quantised;
+    }
+
+    /**
+     * @throws IllegalStateException if the alleles are not written in sorted order.
+     */
+    @Override
+    protected void writeAllele(Allele allele) {
+        try {
+            if (chromosomeWriter == null || chromosomeWriter.chr != allele.getChr()) {
+                if (chromosomeWriter != null) {
+                    if (allele.getChr() < chromosomeWriter.chr) {
+                        throw new IllegalStateException("Alleles must be written in sorted order, chr " + allele.getChr() + " written after chr " + chromosomeWriter.chr);
+                    }
+                    chromosomeWriter.finish();
+                }
+                chromosomeWriter = new ChromosomeWriter(indexPath, allele.getChr(), quantised);
+            }
+            chromosomeWriter.write(allele);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void commit() {
+        // the chromosome files are only written once complete
+    }
+
+    @Override
+    protected void close() {
+        if (chromosomeWriter == null) {
+            return;
+        }
+        try {
+            chromosomeWriter.finish();
+            chromosomeWriter = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class ChromosomeWriter {
+
+        private static final AlleleProperty[] PROPERTIES = AlleleProperty.values();
+
+        private final int chr;
+        private final boolean quantised;
+        private final Path chromosomeFile;
+        private final Path[] sectionFiles = new Path[MappedAlleleFormat.NUM_SECTIONS];
+        private final DataOutputStream[] sections = new DataOutputStream[MappedAlleleFormat.NUM_SECTIONS];
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        // the bitmap words of the alleles since the last full word, and the number of values, of each property
+        private final long[] presenceWords = new long[PROPERTIES.length];
+        private final int[] valueCounts = new int[PROPERTIES.length];
+
+        private int numAlleles;
+        private int lastPos;
+        private int dictionaryBytes;
+
+        ChromosomeWriter(Path indexPath, int chr, boolean quantised) throws IOException {
+            this.chr = chr;
+            this.quantised = quantised;
+            this.chromosomeFile = MappedAlleleFormat.chromosomeFile(indexPath, chr);
+            for (int i = 0; i < sections.length; i++) {
+                sectionFiles[i] = indexPath.resolve(chromosomeFile.getFileName() + "." + i + ".tmp");
+                sections[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sectionFiles[i]), 64 * 1024));
+            }
+            sections[MappedAlleleFormat.DICTIONARY_OFFSETS].writeInt(0);
+        }
+
+        void write(Allele allele) throws IOException {
+            int pos = allele.getPos();
+            if (pos < lastPos) {
+                throw new IllegalStateException("Alleles must be written in sorted order, chr " + chr + " pos " + pos + " written after pos " + lastPos);
+            }
+            if (numAlleles == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many alleles on chr " + chr);
+            }
+            if (numAlleles % MappedAlleleFormat.BLOCK_SIZE == 0) {
+                sections[MappedAlleleFormat.BLOCKS].writeInt(pos);
+            }
+            sections[MappedAlleleFormat.POSITIONS].writeInt(pos);
+            sections[MappedAlleleFormat.ALLELE_CODES].writeInt(alleleCode(allele));
+            sections[MappedAlleleFormat.RS_IDS].writeLong(allele.getRsNumber());
+            writeValues(allele);
+            lastPos = pos;
+            numAlleles++;
+            if (numAlleles % Long.SIZE == 0) {
+                writePresenceWords();
+            }
+        }
+
+        private void writeValues(Allele allele) throws IOException {
+            boolean rankBlockStart = numAlleles % MappedAlleleFormat.RANK_BLOCK_SIZE == 0;
+            for (AlleleProperty property : PROPERTIES) {
+                int i = property.ordinal();
+                if (rankBlockStart) {
+                    sections[MappedAlleleFormat.rankSection(property)].writeInt(valueCounts[i]);
+                }
+                if (allele.hasValue(property)) {
+                    presenceWords[i] |= 1L << numAlleles;
+                    float value = allele.getValueOrDefault(property, 0f);
+                    if (quantised) {
+                        sections[MappedAlleleFormat.valueSection(property)].writeShort(Quantisation.of(property).encode(value));
+                    } else {
+                        sections[MappedAlleleFormat.valueSection(property)].writeFloat(value);
+                    }
+                    valueCounts[i]++;
+                }
+            }
+        }
+
+        private void writePresenceWords() throws IOException {
+            for (AlleleProperty property : PROPERTIES) {
+                sections[MappedAlleleFormat.presenceSection(property)].writeLong(presenceWords[property.ordinal()]);
+            }
+            Arrays.fill(presenceWords, 0);
+        }
+
+        private int alleleCode(Allele allele) throws IOException {
+            long packedKey = allele.generatePackedKey();
+            if (AlleleKey.isExact(packedKey)) {
+                return (int) packedKey & MappedAlleleFormat.EXACT_CODE_MASK;
+            }
+            String entry = allele.getRef() + '\t' + allele.getAlt();
+            Integer index = dictionary.get(entry);
+            if (index == null) {
+                if (dictionary.size() == MappedAlleleFormat.EXACT_CODE_MASK) {
+                    throw new IllegalStateException("Too many distinct ref and alt on chr " + chr);
+                }
+                index = dictionary.size();
+                dictionary.put(entry, index);
+                byte[] bytes = entry.getBytes(StandardCharsets.US_ASCII);
+                sections[MappedAlleleFormat.DICTIONARY].write(bytes);
+                dictionaryBytes += bytes.length;
+                sections[MappedAlleleFormat.DICTIONARY_OFFSETS].writeInt(dictionaryBytes);
+            }
+            return MappedAlleleFormat.DICTIONARY_CODE | index;
+        }
+
+        /**
+         * Joins the sections into the chromosome file and deletes the temp files.
+         */
+        void finish() throws IOException {
+            if (numAlleles % Long.SIZE != 0) {
+                writePresenceWords();
+            }
+            for (DataOutputStream section : sections) {
+                section.close();
+            }
+            ByteBuffer header = ByteBuffer.allocate(MappedAlleleFormat.headerSize());
+            header.putInt(MappedAlleleFormat.MAGIC);
+            header.putInt(MappedAlleleFormat.VERSION);
+            header.putInt(quantised ? MappedAlleleFormat.QUANTISED_VALUES : 0);
+            header.putInt(numAlleles);
+            header.putInt(sections.length);
+            long offset = header.capacity();
+            for (Path sectionFile : sectionFiles) {
+                long length = Files.size(sectionFile);
+                header.putLong(offset);
+                header.putLong(length);
+                offset = MappedAlleleFormat.align(offset + length);
+            }
+            header.clear();
+            try (FileChannel out = FileChannel.open(chromosomeFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                out.write(header, 0);
+                long position = header.capacity();
+                for (Path sectionFile : sectionFiles) {
+                    // transferFrom writes nothing past the end of the file, so pad up to the start of the section first
+                    pad(out, position);
+                    try (FileChannel in = FileChannel.open(sectionFile, StandardOpenOption.READ)) {
+                        long length = in.size();
+                        long transferred = 0;
+                        while (transferred < length) {
+                            transferred += out.transferFrom(in, position + transferred, length - transferred);
+                        }
+                        position = MappedAlleleFormat.align(position + length);
+                    }
+                    Files.delete(sectionFile);
+                }
+                pad(out, position);
+            }
+            logger.info("Wrote {} alleles of chr {} to {}", numAlleles, chr, chromosomeFile);
+        }
+
+        private static void pad(FileChannel out, long size) throws IOException {
+            ByteBuffer padding = ByteBuffer.allocate((int) (size - out.size()));
+            while (padding.hasRemaining()) {
+                out.write(padding, size - padding.remaining());
+            }
+        }
+    }
+}
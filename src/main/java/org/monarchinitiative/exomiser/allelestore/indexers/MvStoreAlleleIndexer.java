@@ -3,20 +3,35 @@ package org.monarchinitiative.exomiser.allelestore.indexers;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
 
 import java.nio.file.Path;
 
 /**
- * AlleleStore implementation using the H2 database MVStore.
+ * AlleleStore implementation using the H2 database MVStore. By default the alleles are keyed by
+ * {@link Allele#generateKey()}. When using packed keys the "alleles" map is keyed by the {@link AlleleKey} instead,
+ * apart from the alleles with a hashed key which are stored by their {@link AlleleKey#sortableKey} in the
+ * "alleles_overflow" map.
  *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class MvStoreAlleleIndexer extends AbstractAlleleIndexer {
 
     private final MVStore mvStore;
+    private final boolean usePackedKeys;
     private final MVMap<String, String> map;
+    private final MVMap<Long, String> packedKeyMap;
 
     public MvStoreAlleleIndexer(Path indexPath) {
+        this(indexPath, false);
+    }
+
+    /**
+     * @param indexPath     directory in which to write the alleles.mv.db file
+     * @param usePackedKeys if true the alleles are keyed by their {@link AlleleKey} rather than by a String
+     */
+    public MvStoreAlleleIndexer(Path indexPath, boolean usePackedKeys) {
+        this.usePackedKeys = usePackedKeys;
         String fileName = indexPath.resolve("alleles.mv.db").toAbsolutePath().toString();
         // open the store (in-memory if fileName is null)
         mvStore = new MVStore.Builder()
@@ -26,11 +41,26 @@ public class MvStoreAlleleIndexer extends AbstractAlleleIndexer {
 
         // create/get the map named "alleles"
         //todo - investigate creating either one map per chromosome or per data type e.g. path and freq
-        map = mvStore.openMap("alleles");
+        if (usePackedKeys) {
+            packedKeyMap = mvStore.openMap("alleles");
+            map = mvStore.openMap("alleles_overflow");
+        } else {
+            packedKeyMap = null;
+            map = mvStore.openMap("alleles");
+        }
     }
 
     @Override
     protected void writeAllele(Allele allele) {
+        if (usePackedKeys) {
+            long packedKey = allele.generatePackedKey();
+            if (AlleleKey.isExact(packedKey)) {
+                packedKeyMap.put(packedKey, allele.generateInfoField());
+            } else {
+                map.put(allele.generateSortableKey(), allele.generateInfoField());
+            }
+            return;
+        }
         map.put(allele.generateKey(), allele.generateInfoField());
     }
 
@@ -1,8 +1,7 @@
 package org.monarchinitiative.exomiser.allelestore.indexers;
 
-import com.sleepycat.bind.serial.SerialBinding;
-import com.sleepycat.bind.serial.TupleSerialBinding;
-import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.StringBinding;
+import com.sleepycat.bind.tuple.TupleBinding;
 import com.sleepycat.bind.tuple.TupleOutput;
 import com.sleepycat.je.*;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
@@ -12,6 +11,9 @@ import org.slf4j.LoggerFactory;
 import java.nio.file.Path;
 
 /**
+ * Writes the alleles to a Berkeley DB JE database named "alleles", keyed by {@link #alleleKey} and holding the
+ * {@link Allele#generateInfoField()} of each allele.
+ *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class SleepyCatAlleleIndexer extends AbstractAlleleIndexer {
@@ -21,9 +23,6 @@ public class SleepyCatAlleleIndexer extends AbstractAlleleIndexer {
     private final Environment sleepyCatEnvironment;
     private final Database alleleDatabase;
 
-    private AlleleKeyBinder alleleKeyBinder;// = new AlleleKeyBinder();
-//    private AlleleDataBinder alleleDataBinder = new AlleleDataBinder();
-
     public SleepyCatAlleleIndexer(Path indexPath) {
         EnvironmentConfig envConfig = new EnvironmentConfig();
         envConfig.setAllowCreate(true);
@@ -51,56 +50,24 @@ public class SleepyCatAlleleIndexer extends AbstractAlleleIndexer {
 
     @Override
     protected void writeAllele(Allele allele) {
-//        AlleleKeyBinder alleleKeyBinder = new AlleleKeyBinder();
-
-        DatabaseEntry alleleKey = generateKey(allele);
-        DatabaseEntry alleleData = generateData(allele);
+        DatabaseEntry alleleKey = alleleKey(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt());
+        DatabaseEntry alleleData = new DatabaseEntry();
+        StringBinding.stringToEntry(allele.generateInfoField(), alleleData);
         alleleDatabase.put(null, alleleKey, alleleData);
     }
 
-    private DatabaseEntry generateKey(Allele allele) {
-        DatabaseEntry databaseEntry = new DatabaseEntry();
-//        alleleKeyBinder.objectToEntry(allele, databaseEntry);
-        return databaseEntry;
-    }
-
-    private DatabaseEntry generateData(Allele allele) {
+    /**
+     * @return the key of the allele, which sorts by chr, pos, ref and then alt.
+     */
+    public static DatabaseEntry alleleKey(int chr, int pos, String ref, String alt) {
+        TupleOutput tupleOutput = new TupleOutput();
+        tupleOutput.writeInt(chr);
+        tupleOutput.writeInt(pos);
+        tupleOutput.writeString(ref);
+        tupleOutput.writeString(alt);
         DatabaseEntry databaseEntry = new DatabaseEntry();
-//        alleleDataBinder.objectToEntry(allele, databaseEntry);
+        TupleBinding.outputToEntry(tupleOutput, databaseEntry);
         return databaseEntry;
     }
 
-    public class AlleleKeyBinder extends TupleSerialBinding<DatabaseEntry, Allele> {
-
-        public AlleleKeyBinder(SerialBinding<DatabaseEntry> dataBinding) {
-            super(dataBinding);
-        }
-
-        @Override
-        public Allele entryToObject(TupleInput tupleInput, DatabaseEntry databaseEntry) {
-            int chr = tupleInput.readInt();
-            int pos = tupleInput.readInt();
-            String ref = tupleInput.readString();
-            String alt = tupleInput.readString();
-
-            //TODO get the data from DatabaseEntry
-
-            return new Allele(chr, pos, ref, alt);
-        }
-
-        @Override
-        public void objectToKey(Allele allele, TupleOutput tupleOutput) {
-            tupleOutput.writeInt(allele.getChr());
-            tupleOutput.writeInt(allele.getPos());
-            tupleOutput.writeString(allele.getRef());
-            tupleOutput.writeString(allele.getAlt());
-        }
-
-        @Override
-        public DatabaseEntry objectToData(Allele allele) {
-            return null;
-        }
-
-    }
-
 }
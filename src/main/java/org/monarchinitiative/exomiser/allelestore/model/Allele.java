@@ -2,29 +2,41 @@ package org.monarchinitiative.exomiser.allelestore.model;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.StringJoiner;
 
 /**
+ * The values of an allele are held in a bitmask of the {@link AlleleProperty} ordinals which have a value and a float
+ * array sized to the number of values, in ordinal order. This takes a few dozen bytes per allele rather than the
+ * several hundred bytes of an EnumMap and its boxed Floats.
+ * <p>
+ * The ref and alt of the common short alleles are the shared {@link AlleleBases} instances and the rsId is held as
+ * its number, see {@link RsId}.
+ *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class Allele implements Comparable<Allele> {
 
+    private static final AlleleProperty[] PROPERTIES = AlleleProperty.values();
+    private static final float[] NO_VALUES = new float[0];
+
     private final int chr;
     private final int pos;
     private final String ref;
     private final String alt;
 
-    private String rsId = ".";
-    private Map<AlleleProperty, Float> values = new EnumMap<>(AlleleProperty.class);
+    private long rsId = RsId.NONE;
+    private int valueMask;
+    private float[] values = NO_VALUES;
 
     public Allele(int chr, int pos, String ref, String alt) {
         this.chr = chr;
         this.pos = pos;
-        this.ref = ref;
-        this.alt = alt;
+        this.ref = AlleleBases.canonical(ref);
+        this.alt = AlleleBases.canonical(alt);
     }
 
     public int getChr() {
@@ -43,24 +55,121 @@ public class Allele implements Comparable<Allele> {
         return alt;
     }
 
+    /**
+     * @return the rsId as written in VCF, e.g. rs12345 or '.' if missing.
+     */
     public String getRsId() {
-        return rsId;
+        return RsId.toString(rsId);
     }
 
+    /**
+     * Sets the rsId from its VCF representation, anything other than an 'rs' number is read as missing.
+     */
     public void setRsId(String rsId) {
+        this.rsId = RsId.parse(rsId);
+    }
+
+    /**
+     * @return the number of the rsId, or {@link RsId#NONE} if missing.
+     */
+    public long getRsNumber() {
+        return rsId;
+    }
+
+    public void setRsNumber(long rsId) {
         this.rsId = rsId;
     }
 
-    public Map<AlleleProperty, Float> getValues() {
-        return values;
+    public boolean hasRsId() {
+        return rsId != RsId.NONE;
     }
 
-    public void addValue(AlleleProperty key, Float value) {
-        values.put(key, value);
+    /**
+     * @return an unmodifiable copy of the values. Use {@link #addValue(AlleleProperty, float)} to change them.
+     */
+    public Map<AlleleProperty, Float> getValues() {
+        Map<AlleleProperty, Float> valueMap = new EnumMap<>(AlleleProperty.class);
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            if (hasValue(i)) {
+                valueMap.put(PROPERTIES[i], values[valueIndex(i)]);
+            }
+        }
+        return Collections.unmodifiableMap(valueMap);
+    }
+
+    public void addValue(AlleleProperty key, float value) {
+        int ordinal = key.ordinal();
+        int index = valueIndex(ordinal);
+        if (!hasValue(ordinal)) {
+            float[] grown = new float[values.length + 1];
+            System.arraycopy(values, 0, grown, 0, index);
+            System.arraycopy(values, index, grown, index + 1, values.length - index);
+            values = grown;
+            valueMask |= 1 << ordinal;
+        }
+        values[index] = value;
     }
 
+    /**
+     * @return the value of the property or null if there is no value.
+     */
     public Float getValue(AlleleProperty key) {
-        return values.get(key);
+        int ordinal = key.ordinal();
+        return hasValue(ordinal) ? values[valueIndex(ordinal)] : null;
+    }
+
+    /**
+     * Unboxed alternative to {@link #getValue(AlleleProperty)}.
+     */
+    public float getValueOrDefault(AlleleProperty key, float defaultValue) {
+        int ordinal = key.ordinal();
+        return hasValue(ordinal) ? values[valueIndex(ordinal)] : defaultValue;
+    }
+
+    public boolean hasValue(AlleleProperty key) {
+        return hasValue(key.ordinal());
+    }
+
+    public int getValueCount() {
+        return values.length;
+    }
+
+    /**
+     * @return a bitmask with bit n set if the {@link AlleleProperty} with ordinal n has a value.
+     */
+    public int getValueMask() {
+        return valueMask;
+    }
+
+    /**
+     * Adds the values of the other allele for the properties which this allele has no value for. Existing values are
+     * not changed.
+     */
+    public void addMissingValues(Allele other) {
+        int missing = other.valueMask & ~valueMask;
+        if (missing == 0) {
+            return;
+        }
+        int mergedMask = valueMask | missing;
+        float[] merged = new float[Integer.bitCount(mergedMask)];
+        int index = 0;
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            if (hasValue(i)) {
+                merged[index++] = values[valueIndex(i)];
+            } else if ((missing & 1 << i) != 0) {
+                merged[index++] = other.values[other.valueIndex(i)];
+            }
+        }
+        valueMask = mergedMask;
+        values = merged;
+    }
+
+    private boolean hasValue(int ordinal) {
+        return (valueMask & 1 << ordinal) != 0;
+    }
+
+    private int valueIndex(int ordinal) {
+        return Integer.bitCount(valueMask & ((1 << ordinal) - 1));
     }
 
     public String generateKey() {
@@ -72,13 +181,30 @@ public class Allele implements Comparable<Allele> {
         return stringJoiner.toString();
     }
 
+    /**
+     * @return the {@link AlleleKey} of this allele, a primitive alternative to {@link #generateKey()}.
+     */
+    public long generatePackedKey() {
+        return AlleleKey.of(chr, pos, ref, alt);
+    }
+
+    /**
+     * @return the {@link AlleleKey#sortableKey} of this allele, which unlike {@link #generateKey()} sorts by position.
+     */
+    public String generateSortableKey() {
+        return AlleleKey.sortableKey(chr, pos, ref, alt);
+    }
+
     public String generateInfoField() {
         StringJoiner stringJoiner = new StringJoiner(";");
-        if (!rsId.equals(".")) {
-            stringJoiner.add("RS=" + rsId);
+        if (hasRsId()) {
+            stringJoiner.add("RS=" + getRsId());
         }
-        for (Map.Entry<AlleleProperty, Float> value : values.entrySet()) {
-            stringJoiner.add(value.toString());
+        int index = 0;
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            if (hasValue(i)) {
+                stringJoiner.add(PROPERTIES[i].name() + "=" + values[index++]);
+            }
         }
         return stringJoiner.toString();
     }
@@ -120,8 +246,8 @@ public class Allele implements Comparable<Allele> {
                 ", pos=" + pos +
                 ", ref='" + ref + '\'' +
                 ", alt='" + alt + '\'' +
-                ", rsId='" + rsId + '\'' +
-                ", values=" + values +
+                ", rsId='" + getRsId() + '\'' +
+                ", values=" + getValues() +
                 '}';
     }
 
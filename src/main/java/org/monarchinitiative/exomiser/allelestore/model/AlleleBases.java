@@ -0,0 +1,110 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+/**
+ * Shared String instances for the short ref and alt sequences which make up nearly all alleles. Every sequence of up to
+ * {@link #MAX_LENGTH} A, C, G and T bases has a single canonical instance, so the tens of millions of alleles held
+ * while merging point at the same few hundred Strings rather than each holding its own copies. Any other sequence is
+ * returned as a new or unchanged String.
+ * <p>
+ * The canonical instances are looked up straight from a range of a line, so the common alleles do not need a substring
+ * to be created first.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public final class AlleleBases {
+
+    public static final int MAX_LENGTH = 5;
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+    // the canonical sequences of each length start at OFFSETS[length] and are indexed by their bases packed as 2 bits each
+    private static final int[] OFFSETS = new int[MAX_LENGTH + 1];
+    private static final String[] CANONICAL;
+
+    static {
+        int size = 0;
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            OFFSETS[length] = size;
+            size += 1 << (2 * length);
+        }
+        CANONICAL = new String[size];
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            for (int code = 0; code < 1 << (2 * length); code++) {
+                CANONICAL[OFFSETS[length] + code] = decode(code, length);
+            }
+        }
+    }
+
+    private AlleleBases() {
+    }
+
+    private static String decode(int code, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = BASES[(code >>> (2 * (length - 1 - i))) & 0b11];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return the canonical instance equal to the bases, or the bases themselves if there is none.
+     */
+    public static String canonical(String bases) {
+        int index = index(bases, 0, bases.length(), false);
+        return index < 0 ? bases : CANONICAL[index];
+    }
+
+    /**
+     * @return the canonical instance equal to the range, or a String copy of the range if there is none.
+     */
+    public static String canonical(CharSequence line, int start, int end) {
+        int index = index(line, start, end, false);
+        return index < 0 ? line.subSequence(start, end).toString() : CANONICAL[index];
+    }
+
+    /**
+     * @return the canonical instance equal to the upper-cased range, or an upper-cased String copy of the range if there
+     * is none.
+     */
+    public static String upperCase(CharSequence line, int start, int end) {
+        int index = index(line, start, end, true);
+        return index < 0 ? line.subSequence(start, end).toString().toUpperCase() : CANONICAL[index];
+    }
+
+    public static boolean isCanonical(String bases) {
+        int index = index(bases, 0, bases.length(), false);
+        return index >= 0 && CANONICAL[index] == bases;
+    }
+
+    private static int index(CharSequence line, int start, int end, boolean ignoreCase) {
+        int length = end - start;
+        if (length < 1 || length > MAX_LENGTH) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            // clearing the 0x20 bit upper-cases a, c, g and t and maps no other char onto A, C, G or T
+            int base = baseCode(ignoreCase ? (char) (c & ~0x20) : c);
+            if (base < 0) {
+                return -1;
+            }
+            code = code << 2 | base;
+        }
+        return OFFSETS[length] + code;
+    }
+
+    private static int baseCode(char c) {
+        switch (c) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+}
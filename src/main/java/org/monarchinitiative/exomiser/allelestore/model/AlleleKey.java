@@ -0,0 +1,246 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+/**
+ * Encodes the chr, pos, ref and alt of an allele into a single long, as a compact alternative to the String produced
+ * by {@link Allele#generateKey()}. The bits of the key are laid out as:
+ * <pre>
+ * 63     unused, always 0 so that keys are positive
+ * 58-62  chr (1-25)
+ * 30-57  pos (up to 268,435,455)
+ * 29     0 = exact, 1 = hashed
+ * 0-28   exact: ref length - 1 (3 bits), alt length - 1 (3 bits) and the ref then alt bases packed as 2 bits each
+ *        hashed: a 29 bit hash of the ref and alt
+ * </pre>
+ * Alleles whose ref and alt are made up of A, C, G and T and are together at most 11 bases long (every SNP and the
+ * vast majority of indels) have an exact key which can be decoded back into the ref and alt. All other alleles have a
+ * hashed key, which is not guaranteed to be unique at a position. Callers requiring an exact mapping should check
+ * {@link #isExact(long)} and fall back to the {@link #sortableKey} String for the alleles with a hashed key.
+ * <p>
+ * Keys sort by chr and then pos, the order of the alleles at the same position is unspecified.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public final class AlleleKey {
+
+    public static final int MAX_CHR = 31;
+    public static final int MAX_POS = (1 << 28) - 1;
+    public static final int MAX_EXACT_BASES = 11;
+
+    private static final int CHR_SHIFT = 58;
+    private static final int POS_SHIFT = 30;
+    private static final long HASHED_FLAG = 1L << 29;
+    private static final int REF_LENGTH_SHIFT = 26;
+    private static final int ALT_LENGTH_SHIFT = 23;
+    private static final int MAX_ALLELE_LENGTH = 8;
+    private static final long PAYLOAD_MASK = HASHED_FLAG - 1;
+
+    private static final int CHR_DIGITS = 2;
+    private static final int POS_DIGITS = 9;
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    private AlleleKey() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the chr or pos are out of range.
+     */
+    public static long of(int chr, int pos, String ref, String alt) {
+        long key = position(chr, pos);
+        if (canPack(ref, alt)) {
+            return key | pack(ref, alt);
+        }
+        return key | HASHED_FLAG | hash(ref, alt);
+    }
+
+    /**
+     * @return the lowest key of any allele at the position, so that the keys of a region can be read as a range.
+     * @throws IllegalArgumentException if the chr or pos are out of range.
+     */
+    public static long firstKeyAt(int chr, int pos) {
+        return position(chr, pos);
+    }
+
+    /**
+     * @return the highest key of any allele at the position.
+     * @throws IllegalArgumentException if the chr or pos are out of range.
+     */
+    public static long lastKeyAt(int chr, int pos) {
+        return position(chr, pos) | HASHED_FLAG | PAYLOAD_MASK;
+    }
+
+    /**
+     * @return a String key made up of the zero padded chr and pos followed by the ref and alt, e.g.
+     * 01-000012345-A-ATTTTTTTTTTTT. Unlike {@link Allele#generateKey()} these sort by chr and then pos, so the alleles
+     * with a hashed key can be stored alongside the packed keys and read by region as a range.
+     * @throws IllegalArgumentException if the chr or pos are out of range.
+     */
+    public static String sortableKey(int chr, int pos, String ref, String alt) {
+        return sortablePrefix(chr, pos).append(ref).append('-').append(alt).toString();
+    }
+
+    /**
+     * @return the lowest {@link #sortableKey} of any allele at the position.
+     * @throws IllegalArgumentException if the chr or pos are out of range.
+     */
+    public static String firstSortableKeyAt(int chr, int pos) {
+        return sortablePrefix(chr, pos).toString();
+    }
+
+    /**
+     * @return a String above the {@link #sortableKey} of any allele at the position and below those of the next.
+     * @throws IllegalArgumentException if the chr or pos are out of range.
+     */
+    public static String lastSortableKeyAt(int chr, int pos) {
+        return sortablePrefix(chr, pos).append(Character.MAX_VALUE).toString();
+    }
+
+    private static StringBuilder sortablePrefix(int chr, int pos) {
+        checkRange(chr, pos);
+        StringBuilder key = new StringBuilder(32);
+        appendPadded(key, chr, CHR_DIGITS);
+        key.append('-');
+        appendPadded(key, pos, POS_DIGITS);
+        return key.append('-');
+    }
+
+    private static void appendPadded(StringBuilder key, int value, int numDigits) {
+        String digits = Integer.toString(value);
+        for (int i = digits.length(); i < numDigits; i++) {
+            key.append('0');
+        }
+        key.append(digits);
+    }
+
+    /**
+     * @return true if the chr and pos can be encoded into a key, otherwise there can be no allele stored with it.
+     */
+    public static boolean isInRange(int chr, int pos) {
+        return chr >= 0 && chr <= MAX_CHR && pos >= 0 && pos <= MAX_POS;
+    }
+
+    private static long position(int chr, int pos) {
+        checkRange(chr, pos);
+        return (long) chr << CHR_SHIFT | (long) pos << POS_SHIFT;
+    }
+
+    private static void checkRange(int chr, int pos) {
+        if (chr < 0 || chr > MAX_CHR) {
+            throw new IllegalArgumentException("chr " + chr + " out of range 0-" + MAX_CHR);
+        }
+        if (pos < 0 || pos > MAX_POS) {
+            throw new IllegalArgumentException("pos " + pos + " out of range 0-" + MAX_POS);
+        }
+    }
+
+    private static boolean canPack(String ref, String alt) {
+        int refLength = ref.length();
+        int altLength = alt.length();
+        return refLength > 0 && altLength > 0
+                && refLength <= MAX_ALLELE_LENGTH && altLength <= MAX_ALLELE_LENGTH
+                && refLength + altLength <= MAX_EXACT_BASES
+                && isAcgt(ref) && isAcgt(alt);
+    }
+
+    private static boolean isAcgt(String bases) {
+        for (int i = 0; i < bases.length(); i++) {
+            if (baseCode(bases.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int baseCode(char base) {
+        switch (base) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    private static long pack(String ref, String alt) {
+        long payload = (long) (ref.length() - 1) << REF_LENGTH_SHIFT | (long) (alt.length() - 1) << ALT_LENGTH_SHIFT;
+        int shift = ALT_LENGTH_SHIFT - 2;
+        for (int i = 0; i < ref.length(); i++, shift -= 2) {
+            payload |= (long) baseCode(ref.charAt(i)) << shift;
+        }
+        for (int i = 0; i < alt.length(); i++, shift -= 2) {
+            payload |= (long) baseCode(alt.charAt(i)) << shift;
+        }
+        return payload;
+    }
+
+    private static long hash(String ref, String alt) {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + ref.hashCode();
+        hash = 31 * hash + alt.length();
+        hash = 31 * hash + alt.hashCode();
+        // spread the bits before truncating
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash & PAYLOAD_MASK;
+    }
+
+    public static int chr(long key) {
+        return (int) (key >>> CHR_SHIFT);
+    }
+
+    public static int pos(long key) {
+        return (int) (key >>> POS_SHIFT & MAX_POS);
+    }
+
+    /**
+     * @return true if the key uniquely identifies the allele and can be decoded using {@link #ref(long)} and
+     * {@link #alt(long)}.
+     */
+    public static boolean isExact(long key) {
+        return (key & HASHED_FLAG) == 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is not exact.
+     */
+    public static String ref(long key) {
+        checkExact(key);
+        int refLength = refLength(key);
+        return unpack(key, 0, refLength);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is not exact.
+     */
+    public static String alt(long key) {
+        checkExact(key);
+        int refLength = refLength(key);
+        int altLength = (int) (key >>> ALT_LENGTH_SHIFT & 0x7) + 1;
+        return unpack(key, refLength, altLength);
+    }
+
+    private static void checkExact(long key) {
+        if (!isExact(key)) {
+            throw new IllegalArgumentException("Cannot decode the ref and alt of a hashed key");
+        }
+    }
+
+    private static int refLength(long key) {
+        return (int) (key >>> REF_LENGTH_SHIFT & 0x7) + 1;
+    }
+
+    private static String unpack(long key, int start, int length) {
+        char[] bases = new char[length];
+        int shift = ALT_LENGTH_SHIFT - 2 - 2 * start;
+        for (int i = 0; i < length; i++, shift -= 2) {
+            bases[i] = BASES[(int) (key >>> shift & 0x3)];
+        }
+        return new String(bases);
+    }
+}
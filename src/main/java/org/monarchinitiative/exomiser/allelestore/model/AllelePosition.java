@@ -15,11 +15,16 @@ import java.util.Objects;
  * A variant is considered minimised if:
  * 1. it has no common nucleotides on the left or right side
  * 2. each allele does not end with the same type of nucleotide, or the shortest allele has length 1
+ * <p>
+ * Parsers creating an {@link Allele} directly can use {@link #trim(CharSequence, CharSequence)} to find the
+ * minimised coordinates without creating an AllelePosition or any intermediate Strings.
  *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class AllelePosition {
 
+    public static final long NO_TRIM = 0;
+
     private final int pos;
     private final String ref;
     private final String alt;
@@ -46,54 +51,85 @@ public class AllelePosition {
         Objects.requireNonNull(ref, "REF string cannot be null");
         Objects.requireNonNull(alt, "ALT string cannot be null");
 
-        if (cantTrim(ref, alt)) {
+        long trim = trim(ref, alt);
+        if (trim == NO_TRIM) {
             return new AllelePosition(pos, ref, alt);
         }
+        int leftTrim = leftTrim(trim);
+        int rightTrim = rightTrim(trim);
+        return new AllelePosition(pos + leftTrim,
+                AlleleBases.canonical(ref, leftTrim, ref.length() - rightTrim),
+                AlleleBases.canonical(alt, leftTrim, alt.length() - rightTrim));
+    }
+
+    /**
+     * Computes the minimisation of {@link #minimise(int, String, String)} as the number of bases to remove from the
+     * start and end of both the ref and alt, without creating any objects. The minimised allele starts at pos plus
+     * the left trim.
+     *
+     * @return the left and right trims packed into a long, read using {@link #leftTrim(long)} and
+     * {@link #rightTrim(long)}. This is {@link #NO_TRIM} if the allele is already minimised.
+     */
+    public static long trim(CharSequence ref, CharSequence alt) {
+        int refLength = ref.length();
+        int altLength = alt.length();
+        if (cantTrim(refLength, altLength)) {
+            return NO_TRIM;
+        }
 
         // Can't do left alignment as have no reference seq and are assuming this has happened already.
         // Therefore check the sequence is first right trimmed, then left trimmed as per the wiki link above.
-        if (needsRightTrim(ref, alt)) {
-            int rightIdx = ref.length();
-            int diff = ref.length() - alt.length();
+        int rightTrim = 0;
+        if (needsRightTrim(ref, refLength, alt, altLength)) {
+            int rightIdx = refLength;
+            int diff = refLength - altLength;
             // scan from right to left, ensure right index > 1 so as not to fall off the left end
             while (rightIdx > 1 && rightIdx - diff > 0 && ref.charAt(rightIdx - 1) == alt.charAt(rightIdx - 1 - diff)) {
                 rightIdx--;
             }
-
-            ref = ref.substring(0, rightIdx);
-            alt = alt.substring(0, rightIdx - diff);
+            rightTrim = refLength - rightIdx;
+            refLength = rightIdx;
+            altLength = rightIdx - diff;
         }
 
-        if (needsLeftTrim(ref, alt)) {
-            int leftIdx = 0;
+        int leftTrim = 0;
+        if (needsLeftTrim(ref, refLength, alt, altLength)) {
             // scan from left to right
-            while (leftIdx < ref.length() && leftIdx < alt.length() && ref.charAt(leftIdx) == alt.charAt(leftIdx)) {
-                leftIdx++;
+            while (leftTrim < refLength && leftTrim < altLength && ref.charAt(leftTrim) == alt.charAt(leftTrim)) {
+                leftTrim++;
             }
             // correct index so as not to fall off the right end
-            if (leftIdx > 0 && leftIdx == ref.length() || leftIdx == alt.length()) {
-                leftIdx -= 1;
+            if (leftTrim > 0 && leftTrim == refLength || leftTrim == altLength) {
+                leftTrim -= 1;
             }
-            pos += leftIdx;
-            ref = ref.substring(leftIdx);
-            alt = alt.substring(leftIdx);
         }
+        return (long) leftTrim << 32 | rightTrim;
+    }
 
-        return new AllelePosition(pos, ref, alt);
+    /**
+     * @return the number of bases to remove from the start of the ref and alt.
+     */
+    public static int leftTrim(long trim) {
+        return (int) (trim >>> 32);
     }
 
-    private static boolean cantTrim(String ref, String alt) {
-        return ref.length() == 1 || alt.length() == 1;
+    /**
+     * @return the number of bases to remove from the end of the ref and alt.
+     */
+    public static int rightTrim(long trim) {
+        return (int) trim;
     }
 
-    private static boolean needsRightTrim(String ref, String alt) {
-        int refLength = ref.length();
-        int altLength = alt.length();
+    private static boolean cantTrim(int refLength, int altLength) {
+        return refLength == 1 || altLength == 1;
+    }
+
+    private static boolean needsRightTrim(CharSequence ref, int refLength, CharSequence alt, int altLength) {
         return refLength > 1 && altLength > 1 && ref.charAt(refLength - 1) == alt.charAt(altLength - 1);
     }
 
-    private static boolean needsLeftTrim(String ref, String alt) {
-        return ref.length() > 1 && alt.length() > 1 && ref.charAt(0) == alt.charAt(0);
+    private static boolean needsLeftTrim(CharSequence ref, int refLength, CharSequence alt, int altLength) {
+        return refLength > 1 && altLength > 1 && ref.charAt(0) == alt.charAt(0);
     }
 
     private AllelePosition(int pos, String ref, String alt) {
@@ -114,6 +150,14 @@ public class AllelePosition {
         return alt;
     }
 
+    /**
+     * @param chr the chromosome of the allele
+     * @return the {@link AlleleKey} of these coordinates on the given chromosome.
+     */
+    public long toPackedKey(int chr) {
+        return AlleleKey.of(chr, pos, ref, alt);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
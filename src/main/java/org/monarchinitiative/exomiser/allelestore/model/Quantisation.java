@@ -0,0 +1,120 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+/**
+ * Lossy 16 bit encodings of the {@link AlleleProperty} values, half the size of a float. Downstream filtering compares
+ * the values against thresholds such as a 1% frequency or a SIFT score of 0.05, so it never needs the full precision.
+ * <p>
+ * The maximum error depends on the property:
+ * <pre>
+ * {@link AlleleProperty#FREQUENCY_PROPERTIES}   {@link #HALF_PRECISION}, at most 2^-11 (0.049%) of the value, or 2^-25 below 2^-14
+ * {@link AlleleProperty#PATHOGENIC_PROPERTIES}  {@link #UNIT_FIXED_POINT}, at most 8e-6
+ * </pre>
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public enum Quantisation {
+
+    /**
+     * IEEE 754 half precision floats, rounded to nearest even. The frequencies are percentages spanning several
+     * orders of magnitude, so they keep a fixed relative rather than absolute precision. Values above 65504 become
+     * infinite.
+     */
+    HALF_PRECISION {
+        @Override
+        public short encode(float value) {
+            int bits = Float.floatToIntBits(value);
+            int sign = bits >>> 16 & 0x8000;
+            float magnitude = Math.abs(value);
+            if (Float.isNaN(value)) {
+                return (short) (sign | 0x7e00);
+            }
+            if (magnitude >= 65520f) {
+                return (short) (sign | 0x7c00);
+            }
+            if (magnitude <= 0x1p-25f) {
+                return (short) sign;
+            }
+            int exponent = Math.getExponent(value);
+            int shift = 13;
+            int significand = bits & 0x7fffff;
+            if (exponent < -14) {
+                // subnormal, the implicit bit is shifted into the significand
+                shift += -14 - exponent;
+                exponent = -15;
+                significand |= 0x800000;
+            }
+            int half = significand >> shift;
+            int lsb = significand & 1 << shift;
+            int round = significand & 1 << shift - 1;
+            int sticky = significand & (1 << shift - 1) - 1;
+            if (round != 0 && (lsb | sticky) != 0) {
+                half++;
+            }
+            // a carry out of the significand correctly increments the exponent
+            return (short) (sign | (exponent + 15 << 10) + half);
+        }
+
+        @Override
+        public float decode(short bits) {
+            int sign = (bits & 0x8000) << 16;
+            int exponent = bits >> 10 & 0x1f;
+            int significand = bits & 0x3ff;
+            if (exponent == 0) {
+                float subnormal = significand * 0x1p-24f;
+                return sign == 0 ? subnormal : -subnormal;
+            }
+            if (exponent == 0x1f) {
+                return Float.intBitsToFloat(sign | 0x7f800000 | significand << 13);
+            }
+            return Float.intBitsToFloat(sign | exponent - 15 + 127 << 23 | significand << 13);
+        }
+
+        @Override
+        public float maxError(float value) {
+            return Math.max(Math.abs(value) * 0x1p-11f, 0x1p-25f);
+        }
+    },
+
+    /**
+     * Fixed point fractions of 65535 for values from 0 to 1, such as the pathogenicity scores. Values outside the
+     * range are clamped to it.
+     */
+    UNIT_FIXED_POINT {
+        @Override
+        public short encode(float value) {
+            float clamped = Math.min(Math.max(value, 0f), 1f);
+            return (short) Math.round(clamped * 0xffff);
+        }
+
+        @Override
+        public float decode(short bits) {
+            return (bits & 0xffff) / (float) 0xffff;
+        }
+
+        @Override
+        public float maxError(float value) {
+            // half a step of 1/65535 plus the float rounding
+            return 8e-6f;
+        }
+    };
+
+    public static Quantisation of(AlleleProperty property) {
+        return AlleleProperty.PATHOGENIC_PROPERTIES.contains(property) ? UNIT_FIXED_POINT : HALF_PRECISION;
+    }
+
+    public abstract short encode(float value);
+
+    public abstract float decode(short bits);
+
+    /**
+     * @return the value as it is read back after being encoded.
+     */
+    public float quantise(float value) {
+        return decode(encode(value));
+    }
+
+    /**
+     * @return the largest difference there can be between the value and its quantised value, for values in range.
+     */
+    public abstract float maxError(float value);
+}
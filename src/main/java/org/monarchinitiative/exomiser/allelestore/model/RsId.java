@@ -0,0 +1,51 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+/**
+ * Converts between dbSNP rsIds such as rs12345 and the number held by an {@link Allele}, where {@link #NONE} is a
+ * missing rsId, written as '.' in VCF. Only the numbers are held while parsing, merging and indexing, the 'rs' String
+ * is only created for output.
+ * <p>
+ * IDs which are not an 'rs' followed by a positive number are not dbSNP rsIds and are read as missing.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public final class RsId {
+
+    public static final long NONE = 0;
+
+    // 18 digits always fit into a long
+    private static final int MAX_DIGITS = 18;
+
+    private RsId() {
+    }
+
+    public static long parse(CharSequence value) {
+        return parse(value, 0, value.length());
+    }
+
+    /**
+     * @return the number of the rsId in the range, or {@link #NONE} if the range does not hold an rsId.
+     */
+    public static long parse(CharSequence value, int start, int end) {
+        int numDigits = end - start - 2;
+        if (numDigits < 1 || numDigits > MAX_DIGITS || value.charAt(start) != 'r' || value.charAt(start + 1) != 's') {
+            return NONE;
+        }
+        long rsId = 0;
+        for (int i = start + 2; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NONE;
+            }
+            rsId = rsId * 10 + digit;
+        }
+        return rsId;
+    }
+
+    /**
+     * @return the rsId as written in VCF, e.g. rs12345 or '.' if missing.
+     */
+    public static String toString(long rsId) {
+        return rsId == NONE ? "." : "rs" + rsId;
+    }
+}
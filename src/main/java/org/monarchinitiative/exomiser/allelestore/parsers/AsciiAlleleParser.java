@@ -0,0 +1,22 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.util.List;
+
+/**
+ * An {@link AlleleParser} which can also parse lines straight from the bytes of the decompressed file, skipping the
+ * decoding of each line into a String. The {@link org.monarchinitiative.exomiser.allelestore.AlleleArchiveProcessor}
+ * reads the archive files as bytes when given one of these. Header lines are still passed to
+ * {@link #parseLine(String)}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public interface AsciiAlleleParser extends AlleleParser {
+
+    /**
+     * @param line a data line, only valid until this method returns
+     * @return the alleles parsed from the line
+     */
+    List<Allele> parseLine(AsciiLine line);
+}
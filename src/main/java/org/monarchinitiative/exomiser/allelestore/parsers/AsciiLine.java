@@ -0,0 +1,77 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A line of ASCII text held as a range of a byte array, exposed as a {@link CharSequence} without decoding the bytes
+ * into chars. Only the sub-sequences which are converted to Strings are copied. The data files are all ASCII, any other
+ * bytes are read as ISO-8859-1.
+ * <p>
+ * Instances are mutable views, usually re-pointed at the next line using {@link #set(byte[], int, int)}, so the
+ * contents of a line must be copied before the next line is read.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class AsciiLine implements CharSequence {
+
+    private byte[] bytes = new byte[0];
+    private int offset;
+    private int length;
+
+    public AsciiLine() {
+    }
+
+    public AsciiLine(byte[] bytes) {
+        set(bytes, 0, bytes.length);
+    }
+
+    public AsciiLine set(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + " length " + length + " array length " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " length " + length);
+        }
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    public boolean startsWith(char c) {
+        return length > 0 && bytes[offset] == c;
+    }
+
+    /**
+     * Copies the bytes of the line into the destination array.
+     */
+    public void copyTo(byte[] destination, int destinationOffset) {
+        System.arraycopy(bytes, offset, destination, destinationOffset, length);
+    }
+
+    /**
+     * @return a String holding a copy of the range.
+     */
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + " end " + end + " length " + length);
+        }
+        return new String(bytes, offset + start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length);
+    }
+}
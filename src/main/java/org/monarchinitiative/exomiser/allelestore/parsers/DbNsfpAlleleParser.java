@@ -2,13 +2,23 @@ package org.monarchinitiative.exomiser.allelestore.parsers;
 
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
 import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.RsId;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Parses the dbNSFP variant files. These have several hundred columns of which only those located from the header
+ * line by {@link #parseColumnIndex(String)} are read. The data lines are scanned up to the last of these columns, the
+ * remaining columns are skipped without being looked at.
+ * <p>
+ * Most rows have neither an rsId nor any of the scores. These are rejected by looking at the raw rsId and score columns
+ * before any Strings are created or scores parsed. The number of rows rejected at each stage is counted in the
+ * {@link RowCounts}.
+ *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
-public class DbNsfpAlleleParser implements AlleleParser {
+public class DbNsfpAlleleParser implements AsciiAlleleParser {
 
     public static final String EMPTY_VALUE = ".";
     private final Map<String, Integer> columnIndex = new HashMap<>();
@@ -23,6 +33,30 @@ public class DbNsfpAlleleParser implements AlleleParser {
     private int mTasterScorePos;
     private int mTasterPredPos;
 
+    // replaced once the header has been parsed, the parser threads of the AlleleParsingPipeline each use their own
+    private volatile ThreadLocal<LineTokenizer> tokenizers = newTokenizers();
+
+    private final RowCounts rowCounts;
+
+    public DbNsfpAlleleParser() {
+        this(new RowCounts());
+    }
+
+    private DbNsfpAlleleParser(RowCounts rowCounts) {
+        this.rowCounts = rowCounts;
+    }
+
+    /**
+     * @param rowCounts counts of the rows parsed, can be shared between the parsers of several files.
+     */
+    public static DbNsfpAlleleParser withRowCounts(RowCounts rowCounts) {
+        return new DbNsfpAlleleParser(rowCounts);
+    }
+
+    public RowCounts getRowCounts() {
+        return rowCounts;
+    }
+
     @Override
     public List<Allele> parseLine(String line) {
         if (line.startsWith("#")) {
@@ -30,9 +64,20 @@ public class DbNsfpAlleleParser implements AlleleParser {
             parseColumnIndex(line);
             return Collections.emptyList();
         }
-        String[] fields = line.split("\t");
+        return parseAllele(tokenizers.get().reset(line));
+    }
+
+    @Override
+    public List<Allele> parseLine(AsciiLine line) {
+        if (line.startsWith('#')) {
+            return parseLine(line.toString());
+        }
+        return parseAllele(tokenizers.get().reset(line));
+    }
 
-        return parseAllele(line, fields);
+    private ThreadLocal<LineTokenizer> newTokenizers() {
+        int numColumns = 1 + Collections.max(Arrays.asList(chrPos, posPos, rsPos, refPos, altPos, siftPos, polyPhen2HvarPos, mTasterScorePos, mTasterPredPos));
+        return ThreadLocal.withInitial(() -> new LineTokenizer(numColumns));
     }
 
 
@@ -83,50 +128,79 @@ public class DbNsfpAlleleParser implements AlleleParser {
             }
         }
 //        columnIndex
+        tokenizers = newTokenizers();
     }
 
-    private List<Allele> parseAllele(String line, String[] fields) {
-        byte chr = parseChr(fields[chrPos], line);
+    private List<Allele> parseAllele(LineTokenizer fields) {
+        rowCounts.rows.increment();
+        if (hasNoRsIdOrScores(fields)) {
+            rowCounts.emptyRows.increment();
+            return Collections.emptyList();
+        }
+        byte chr = parseChr(fields.column(chrPos), fields.toString());
         if (chr == 0) {
+            rowCounts.unknownChromosomeRows.increment();
             return Collections.emptyList();
         }
-        int pos = Integer.parseInt(fields[posPos]);
-        String rsId = fields[rsPos];
-        String ref = fields[refPos];
-        String alt = fields[altPos];
+        int pos = fields.parseInt(fields.start(posPos), fields.end(posPos));
+        int rsStart = fields.start(rsPos);
+        long rsId = fields.parseRsId(rsStart, fields.indexOf(';', rsStart, fields.end(rsPos)));
+        String ref = fields.bases(fields.start(refPos), fields.end(refPos));
+        String alt = fields.bases(fields.start(altPos), fields.end(altPos));
 
         // VCF files and Annovar-style annotations use different nomenclature for
         // indel variants. We use Annovar.
         //TODO - now that we use the new Jannovar which uses a 0-based co-ordinate system investigate is this is necessary
 //       transformVCF2AnnovarCoordinates();
 
-        Map<AlleleProperty, Float> pathScores = parsePathScores(fields);
+        Allele allele = new Allele(chr, pos, ref, alt);
+        parsePathScores(allele, fields);
 
-        if(EMPTY_VALUE.equals(rsId) && pathScores.isEmpty()) {
+        if(rsId == RsId.NONE && allele.getValueCount() == 0) {
+            rowCounts.noScoreRows.increment();
             return Collections.emptyList();
         }
+        rowCounts.alleles.increment();
 
-        Allele allele = new Allele(chr, pos, ref, alt);
-        allele.setRsId(rsId);
-        allele.getValues().putAll(pathScores);
+        allele.setRsNumber(rsId);
 //        logger.info("{} sift={} polyPhen={} mTasterScore={} mTasterPred={}", allele, fields[siftPos], fields[polyPhen2HvarPos], fields[mTasterScorePos], fields[mTasterPredPos]);
         return Collections.singletonList(allele);
     }
 
-    private Map<AlleleProperty,Float> parsePathScores(String[] fields) {
-        Map<AlleleProperty, Float> values = new EnumMap<>(AlleleProperty.class);
-        parseSift(values, AlleleProperty.SIFT, fields[siftPos]);
-        parsePolyPhen(values, AlleleProperty.POLYPHEN, fields[polyPhen2HvarPos]);
-        parseMutationTaster(values, AlleleProperty.MUT_TASTER, fields[mTasterScorePos], fields[mTasterPredPos]);
-        return values;
+    /**
+     * Checks the raw columns for a row without an rsId whose score columns only hold empty values, e.g. '.' or '.;.'
+     * Such a row can never produce an allele.
+     */
+    private boolean hasNoRsIdOrScores(LineTokenizer fields) {
+        int rsStart = fields.start(rsPos);
+        boolean noRsId = fields.end(rsPos) - rsStart == 1 && fields.charAt(rsStart) == '.';
+        return noRsId && isEmptyColumn(fields, siftPos) && isEmptyColumn(fields, polyPhen2HvarPos) && isEmptyColumn(fields, mTasterScorePos);
+    }
+
+    private boolean isEmptyColumn(LineTokenizer fields, int column) {
+        int end = fields.end(column);
+        for (int i = fields.start(column); i < end; i++) {
+            char c = fields.charAt(i);
+            if (c != '.' && c != ';') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parsePathScores(Allele allele, LineTokenizer fields) {
+        parseSift(allele, AlleleProperty.SIFT, fields.column(siftPos));
+        parsePolyPhen(allele, AlleleProperty.POLYPHEN, fields.column(polyPhen2HvarPos));
+        parseMutationTaster(allele, AlleleProperty.MUT_TASTER, fields.column(mTasterScorePos), fields.column(mTasterPredPos));
     }
 //    24	SIFT_score: SIFT score (SIFTori). Scores range from 0 to 1. The smaller the score the
 //    more likely the SNP has damaging effect.
 //    Multiple scores separated by ";", corresponding to Ensembl_proteinid.
-    private Map<AlleleProperty, Float> parseSift(Map<AlleleProperty, Float> values, AlleleProperty key, String field) {
+    private void parseSift(Allele allele, AlleleProperty key, String field) {
         String[] transcriptPredictions = field.split(";");
         if (transcriptPredictions.length == 1) {
-            return parseValue(values, key, transcriptPredictions[0]);
+            parseValue(allele, key, transcriptPredictions[0]);
+            return;
         }
         float maxValue = 1;
         for (int i = 0; i < transcriptPredictions.length; i++) {
@@ -134,36 +208,34 @@ public class DbNsfpAlleleParser implements AlleleParser {
             if (EMPTY_VALUE.equals(score)) {
                 continue;
             }
-            float value = Float.parseFloat(score);
+            float value = FloatParser.parseFloat(score);
             //The smaller the score the more likely the SNP has damaging effect.
             maxValue = Float.min(maxValue, value);
         }
         if (maxValue < 1) {
-            values.put(key, maxValue);
+            allele.addValue(key, maxValue);
         }
-        return values;
     }
 
 //    33	Polyphen2_HVAR_score: Polyphen2 score based on HumVar, i.e. hvar_prob.
 //    The score ranges from 0 to 1.
 //    Multiple entries separated by ";", corresponding to Uniprot_acc_Polyphen2.
-    private Map<AlleleProperty, Float>  parsePolyPhen(Map<AlleleProperty, Float> values, AlleleProperty key, String field) {
+    private void parsePolyPhen(Allele allele, AlleleProperty key, String field) {
         String[] transcriptPredictions = field.split(";");
         if (transcriptPredictions.length == 1) {
-            return parseValue(values, key, transcriptPredictions[0]);
+            parseValue(allele, key, transcriptPredictions[0]);
+            return;
         }
         float maxValue = getMaxValue(transcriptPredictions);
         if (maxValue > 0) {
-            values.put(key, maxValue);
+            allele.addValue(key, maxValue);
         }
-        return values;
     }
 
-    private Map<AlleleProperty, Float> parseValue(Map<AlleleProperty, Float> values, AlleleProperty key, String value) {
+    private void parseValue(Allele allele, AlleleProperty key, String value) {
         if (!EMPTY_VALUE.equals(value)) {
-            values.put(key, Float.valueOf(value));
+            allele.addValue(key, FloatParser.parseFloat(value));
         }
-        return values;
     }
 
     private float getMaxValue(String[] transcriptPredictions) {
@@ -173,7 +245,7 @@ public class DbNsfpAlleleParser implements AlleleParser {
             if (EMPTY_VALUE.equals(score)) {
                 continue;
             }
-            float value = Float.parseFloat(score);
+            float value = FloatParser.parseFloat(score);
             //The larger the score the more likely the SNP has damaging effect.
             maxValue = Float.max(maxValue, value);
         }
@@ -181,7 +253,7 @@ public class DbNsfpAlleleParser implements AlleleParser {
     }
 
 
-    private Map<AlleleProperty, Float> parseMutationTaster(Map<AlleleProperty, Float> values, AlleleProperty key, String scoreFields, String predFields) {
+    private void parseMutationTaster(Allele allele, AlleleProperty key, String scoreFields, String predFields) {
 //        MutationTaster_score: MutationTaster p-value (MTori), ranges from 0 to 1.
 //        Multiple scores are separated by ";". Information on corresponding transcript(s) can
 //        be found by querying http://www.mutationtaster.org/ChrPos.html
@@ -205,17 +277,72 @@ public class DbNsfpAlleleParser implements AlleleParser {
                     continue;
                 }
                 if (p.equals("A") || p.equals("D")) {
-                    float value = Float.parseFloat(score);
+                    float value = FloatParser.parseFloat(score);
                     //The larger the score the more likely the SNP has damaging effect.
                     maxValue = Float.max(maxValue, value);
                 }
             }
             if (maxValue > 0) {
-                values.put(key, maxValue);
+                allele.addValue(key, maxValue);
             }
         }
-        return values;
     }
 
+    /**
+     * Thread-safe counts of the dbNSFP rows parsed and the stage at which those not producing an allele were rejected.
+     */
+    public static class RowCounts {
+
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder emptyRows = new LongAdder();
+        private final LongAdder unknownChromosomeRows = new LongAdder();
+        private final LongAdder noScoreRows = new LongAdder();
+        private final LongAdder alleles = new LongAdder();
 
+        /**
+         * @return the number of data rows parsed
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * @return the number of rows rejected before parsing as they had no rsId and only empty score columns
+         */
+        public long getEmptyRows() {
+            return emptyRows.sum();
+        }
+
+        /**
+         * @return the number of rows rejected as they had no, or an unknown, hg19 chromosome
+         */
+        public long getUnknownChromosomeRows() {
+            return unknownChromosomeRows.sum();
+        }
+
+        /**
+         * @return the number of rows without an rsId rejected as none of their scores were usable once parsed
+         */
+        public long getNoScoreRows() {
+            return noScoreRows.sum();
+        }
+
+        /**
+         * @return the number of rows parsed into an allele
+         */
+        public long getAlleles() {
+            return alleles.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "RowCounts{" +
+                    "rows=" + getRows() +
+                    ", emptyRows=" + getEmptyRows() +
+                    ", unknownChromosomeRows=" + getUnknownChromosomeRows() +
+                    ", noScoreRows=" + getNoScoreRows() +
+                    ", alleles=" + getAlleles() +
+                    '}';
+        }
+    }
 }
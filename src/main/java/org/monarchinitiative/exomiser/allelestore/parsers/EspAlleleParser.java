@@ -3,10 +3,7 @@ package org.monarchinitiative.exomiser.allelestore.parsers;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
 import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
 
-import java.util.Collections;
-import java.util.EnumMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
@@ -14,37 +11,28 @@ import java.util.Map;
 public class EspAlleleParser extends VcfAlleleParser {
 
     @Override
-    List<Allele> parseInfoField(List<Allele> alleles, String info) {
-        Map<AlleleProperty, Float> minorAlleleFrequencies = parseMinorAlleleFrequencies(info);
-
-        for (int i = 0; i < alleles.size(); i++) {
-            Allele allele = alleles.get(i);
-            allele.getValues().putAll(minorAlleleFrequencies);
-        }
-        return alleles;
-    }
-
-    private Map<AlleleProperty, Float> parseMinorAlleleFrequencies(String info) {
-        String[] infoFields = info.split(";");
-        for (String infoField : infoFields) {
-            if (infoField.startsWith("MAF=")) {
-                return parseMafField(infoField);
-            }
-        }
-        return Collections.emptyMap();
-    }
-
-    private Map<AlleleProperty, Float> parseMafField(String infoField) {
-        Map<AlleleProperty, Float> frequencies = new EnumMap<>(AlleleProperty.class);
+    List<Allele> parseInfoField(List<Allele> alleles, VcfLineTokenizer tokenizer) {
         //MAF=44.9781,47.7489,45.9213
-        String[] minorAlleleFreqs = infoField.substring(4).split(",");
+        int mafStart = tokenizer.findInfoValue("MAF");
+        if (mafStart == -1) {
+            return alleles;
+        }
+        int mafEnd = tokenizer.infoValueEnd(mafStart);
+        int start = mafStart;
         for (MAF_FIELD field : MAF_FIELD.values()) {
-            String freq = minorAlleleFreqs[field.ordinal()];
-            if (!"0.0".equals(freq)) {
-                frequencies.put(AlleleProperty.valueOf(field.name()), Float.parseFloat(freq));
+            if (start > mafEnd) {
+                throw new IllegalArgumentException("Missing " + field + " value in line " + tokenizer);
+            }
+            int end = tokenizer.indexOf(',', start, mafEnd);
+            if (!tokenizer.regionMatches(start, end, "0.0") || end - start != 3) {
+                float frequency = tokenizer.parseFloat(start, end);
+                for (int i = 0; i < alleles.size(); i++) {
+                    alleles.get(i).addValue(AlleleProperty.valueOf(field.name()), frequency);
+                }
             }
+            start = end + 1;
         }
-        return frequencies;
+        return alleles;
     }
 
     private enum MAF_FIELD {
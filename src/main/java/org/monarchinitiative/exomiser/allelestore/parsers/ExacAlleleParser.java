@@ -5,10 +5,7 @@ import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
@@ -17,17 +14,25 @@ public class ExacAlleleParser extends VcfAlleleParser {
 
     private static final Logger logger = LoggerFactory.getLogger(ExacAlleleParser.class);
 
+    private static final EXAC_FIELD[] EXAC_FIELDS = EXAC_FIELD.values();
+    private static final AlleleProperty[] EXAC_PROPERTIES = new AlleleProperty[EXAC_FIELDS.length];
+
+    static {
+        for (EXAC_FIELD field : EXAC_FIELDS) {
+            EXAC_PROPERTIES[field.ordinal()] = AlleleProperty.valueOf(field.name());
+        }
+    }
+
     @Override
-    List<Allele> parseInfoField(List<Allele> alleles, String info) {
-        Map<String, String> alleleCounts = getAlleleCountsFromInfoField(info);
+    List<Allele> parseInfoField(List<Allele> alleles, VcfLineTokenizer tokenizer) {
+        AlleleCounts alleleCounts = parseAlleleCounts(tokenizer, alleles.size());
 
         for (int i = 0; i < alleles.size(); i++) {
             Allele allele = alleles.get(i);
             //AC = AlleleCount, AN = AlleleNumber, freq as percentage = (AC/AN) * 100
 
             //Should be this? this way we only add fields with a defined count and remove millions of 0.0 values.
-            Map<AlleleProperty, Float> allelePopFreqs = calculateAllelePopulationFrequencies(alleleCounts, i);
-            allele.getValues().putAll(allelePopFreqs);
+            addAllelePopulationFrequencies(allele, alleleCounts, i);
 
             //original method
 //            for (EXAC_FIELD field : EXAC_FIELD.values()) {
@@ -44,35 +49,63 @@ public class ExacAlleleParser extends VcfAlleleParser {
         return alleles;
     }
 
-    private Map<String, String> getAlleleCountsFromInfoField(String info) {
-        Map<String, String> exACFreqs = new HashMap<>();
-        String[] infoFields = info.split(";");
-        for (String infoField : infoFields) {
-            // freq data for each population e.g. AC_FIN=0,0;AN_FIN=6600;AC_EAS=0,1;AN_EAS=8540 etc...
-            if (infoField.startsWith(EXAC_FIELD.ALLELE_COUNT_PREFIX) || infoField.startsWith(EXAC_FIELD.ALLELE_NUMBER_PREFIX)) {
-                String[] exACData = infoField.split("=");
-                exACFreqs.put(exACData[0], exACData[1]);
+    /**
+     * Scans the INFO column for the AC_ and AN_ entries of the populations, e.g. AC_FIN=0,0;AN_FIN=6600;AC_EAS=0,1;AN_EAS=8540
+     * The scan stops as soon as all of them have been found, so the long VEP CSQ annotation which follows them is
+     * usually never read. No Strings are created.
+     */
+    private AlleleCounts parseAlleleCounts(VcfLineTokenizer tokenizer, int numAlts) {
+        AlleleCounts alleleCounts = new AlleleCounts(numAlts);
+        int infoEnd = tokenizer.end(VcfLineTokenizer.INFO);
+        int start = tokenizer.start(VcfLineTokenizer.INFO);
+        int remaining = 2 * EXAC_FIELDS.length;
+        while (start < infoEnd && remaining > 0) {
+            int end = tokenizer.indexOf(';', start, infoEnd);
+            if (isPopulationEntry(tokenizer, start, end)) {
+                int valueStart = start + EXAC_FIELD.KEY_LENGTH + 1;
+                for (EXAC_FIELD field : EXAC_FIELDS) {
+                    if (tokenizer.regionMatches(start, end, field.AC)) {
+                        parseAlleleCounts(tokenizer, valueStart, end, alleleCounts, field.ordinal());
+                        remaining--;
+                        break;
+                    }
+                    if (tokenizer.regionMatches(start, end, field.AN)) {
+                        alleleCounts.alleleNumbers[field.ordinal()] = tokenizer.parseInt(valueStart, end);
+                        remaining--;
+                        break;
+                    }
+                }
             }
+            start = end + 1;
+        }
+        return alleleCounts;
+    }
+
+    private boolean isPopulationEntry(VcfLineTokenizer tokenizer, int start, int end) {
+        return end - start > EXAC_FIELD.KEY_LENGTH + 1
+                && tokenizer.charAt(start + EXAC_FIELD.KEY_LENGTH) == '='
+                && tokenizer.charAt(start) == 'A'
+                && (tokenizer.charAt(start + 1) == 'C' || tokenizer.charAt(start + 1) == 'N')
+                && tokenizer.charAt(start + 2) == '_';
+    }
+
+    private void parseAlleleCounts(VcfLineTokenizer tokenizer, int start, int end, AlleleCounts alleleCounts, int population) {
+        for (int alt = 0; alt < alleleCounts.numAlts && start <= end; alt++) {
+            int countEnd = tokenizer.indexOf(',', start, end);
+            alleleCounts.setAlleleCount(population, alt, tokenizer.parseInt(start, countEnd));
+            start = countEnd + 1;
         }
-        return exACFreqs;
     }
 
-    private Map<AlleleProperty, Float> calculateAllelePopulationFrequencies(Map<String, String> alleleCounts, int i) {
-        Map<AlleleProperty, Float> allelePopFreqs = new EnumMap<>(AlleleProperty.class);
-        for (EXAC_FIELD field : EXAC_FIELD.values()) {
-            int alleleCount = parseAlleleCount(alleleCounts.get(field.AC), i);
+    private void addAllelePopulationFrequencies(Allele allele, AlleleCounts alleleCounts, int i) {
+        for (EXAC_FIELD field : EXAC_FIELDS) {
+            int alleleCount = alleleCounts.getAlleleCount(field.ordinal(), i);
             if (alleleCount != 0) {
-                int alleleNumber = Integer.parseInt(alleleCounts.get(field.AN));
+                int alleleNumber = alleleCounts.alleleNumbers[field.ordinal()];
                 float minorAlleleFrequency = frequencyAsPercentage(alleleCount, alleleNumber);
-                allelePopFreqs.put(AlleleProperty.valueOf(field.name()), minorAlleleFrequency);
+                allele.addValue(EXAC_PROPERTIES[field.ordinal()], minorAlleleFrequency);
             }
         }
-        return allelePopFreqs;
-    }
-
-    private int parseAlleleCount(String alleleCountValue, int altAllelePos) {
-        String alleleCount = alleleCountValue.split(",")[altAllelePos];
-        return Integer.parseInt(alleleCount);
     }
 
     private float frequencyAsPercentage(int alleleCount, int alleleNumber) {
@@ -90,6 +123,8 @@ public class ExacAlleleParser extends VcfAlleleParser {
 
         public static final String ALLELE_COUNT_PREFIX = "AC";
         public static final String ALLELE_NUMBER_PREFIX = "AN";
+        // length of the AN_ and AC_ keys, e.g. AN_AFR
+        static final int KEY_LENGTH = 6;
 
         private final String AN;
         private final String AC;
@@ -101,4 +136,28 @@ public class ExacAlleleParser extends VcfAlleleParser {
 
     }
 
+    /**
+     * The allele counts for each population and alt allele and the allele number of each population found in a line.
+     * Missing counts are 0.
+     */
+    private static class AlleleCounts {
+
+        private final int numAlts;
+        private final int[] alleleCounts;
+        private final int[] alleleNumbers = new int[EXAC_FIELDS.length];
+
+        AlleleCounts(int numAlts) {
+            this.numAlts = numAlts;
+            this.alleleCounts = new int[EXAC_FIELDS.length * numAlts];
+        }
+
+        void setAlleleCount(int population, int alt, int count) {
+            alleleCounts[population * numAlts + alt] = count;
+        }
+
+        int getAlleleCount(int population, int alt) {
+            return alleleCounts[population * numAlts + alt];
+        }
+    }
+
 }
@@ -10,6 +10,8 @@ import java.util.*;
  */
 public class ExomiserAlleleParser extends VcfAlleleParser {
 
+    private static final AlleleProperty[] PROPERTIES = AlleleProperty.values();
+
     private static final Set<String> freqKeys;
     private static final Set<String> pathKeys;
 
@@ -24,27 +26,50 @@ public class ExomiserAlleleParser extends VcfAlleleParser {
     }
 
     @Override
-    List<Allele> parseInfoField(List<Allele> alleles, String info) {
-        Map<AlleleProperty, Float> values = parseInfoLine(info.trim());
-        for (int i = 0; i < alleles.size(); i++) {
-            Allele allele = alleles.get(i);
-            allele.getValues().putAll(values);
+    List<Allele> parseInfoField(List<Allele> alleles, VcfLineTokenizer tokenizer) {
+        int infoStart = tokenizer.start(VcfLineTokenizer.INFO);
+        int infoEnd = tokenizer.end(VcfLineTokenizer.INFO);
+        // trim
+        while (infoStart < infoEnd && tokenizer.charAt(infoStart) <= ' ') {
+            infoStart++;
+        }
+        while (infoEnd > infoStart && tokenizer.charAt(infoEnd - 1) <= ' ') {
+            infoEnd--;
         }
+        parseInfoLine(alleles, tokenizer, infoStart, infoEnd);
         return alleles;
     }
 
-    private Map<AlleleProperty, Float> parseInfoLine(String info) {
-        Map<AlleleProperty, Float> values = new EnumMap<>(AlleleProperty.class);
-        if(".".equals(info)) {
-            return values;
+    private void parseInfoLine(List<Allele> alleles, VcfLineTokenizer tokenizer, int infoStart, int infoEnd) {
+        if (infoEnd - infoStart == 1 && tokenizer.charAt(infoStart) == '.') {
+            return;
+        }
+        for (int start = infoStart; start < infoEnd; ) {
+            int end = tokenizer.indexOf(';', start, infoEnd);
+            int equals = tokenizer.indexOf('=', start, end);
+            //the rsId is read from the ID column, the RS field is only a copy of it
+            if (!isRsField(tokenizer, start, equals)) {
+                AlleleProperty key = parseProperty(tokenizer, start, equals);
+                float value = tokenizer.parseFloat(equals + 1, end);
+                for (int j = 0; j < alleles.size(); j++) {
+                    alleles.get(j).addValue(key, value);
+                }
+            }
+            start = end + 1;
         }
-        String[] fields = info.split(";");
-        for (int i = 0; i < fields.length; i++) {
-            String[] fieldValues = fields[i].split("=");
-            values.put(AlleleProperty.valueOf(fieldValues[0]), Float.parseFloat(fieldValues[1]));
+    }
+
+    private AlleleProperty parseProperty(VcfLineTokenizer tokenizer, int keyStart, int keyEnd) {
+        for (AlleleProperty property : PROPERTIES) {
+            if (property.name().length() == keyEnd - keyStart && tokenizer.regionMatches(keyStart, keyEnd, property.name())) {
+                return property;
+            }
         }
-        return values;
+        return AlleleProperty.valueOf(tokenizer.substring(keyStart, keyEnd));
     }
 
+    private boolean isRsField(VcfLineTokenizer tokenizer, int keyStart, int keyEnd) {
+        return keyEnd - keyStart == 2 && tokenizer.regionMatches(keyStart, keyEnd, "RS");
+    }
 
 }
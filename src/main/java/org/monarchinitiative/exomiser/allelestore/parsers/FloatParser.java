@@ -0,0 +1,118 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+/**
+ * Parses the short decimal numbers found in the frequency and pathogenicity score fields, such as 0.05871, 44.9781 or
+ * 5.8710003, straight from a range of a CharSequence. The result is always identical to {@link Float#parseFloat(String)}.
+ * <p>
+ * Numbers with up to 15 significant digits and a small decimal exponent are converted using a single correctly rounded
+ * double multiplication or division, which is then narrowed to a float. This is only wrong when the double lies exactly
+ * half way between two floats, in which case, or for anything else like NaN, hex or malformed input, the JDK does the
+ * parsing instead.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public final class FloatParser {
+
+    private static final int MAX_DIGITS = 15;
+    private static final int MAX_EXPONENT = 22;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FloatParser() {
+    }
+
+    public static float parseFloat(CharSequence value) {
+        return parseFloat(value, 0, value.length());
+    }
+
+    /**
+     * @throws NumberFormatException if the range does not hold a number, as {@link Float#parseFloat(String)}
+     */
+    public static float parseFloat(CharSequence value, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                numDigits++;
+                if (mantissa != 0 || c != '0') {
+                    significantDigits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (inFraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                break;
+            }
+        }
+        int exponent = 0;
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                negativeExponent = value.charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            for (; i < end && i - exponentStart < 4; i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                exponent = exponent * 10 + (c - '0');
+            }
+            if (i == exponentStart) {
+                return jdkParseFloat(value, start, end);
+            }
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+        if (i != end || numDigits == 0 || significantDigits > MAX_DIGITS) {
+            return jdkParseFloat(value, start, end);
+        }
+        int decimalExponent = exponent - fractionDigits;
+        double result;
+        if (decimalExponent >= 0 && decimalExponent <= MAX_EXPONENT) {
+            result = mantissa * POWERS_OF_TEN[decimalExponent];
+        } else if (decimalExponent < 0 && decimalExponent >= -MAX_EXPONENT) {
+            result = mantissa / POWERS_OF_TEN[-decimalExponent];
+        } else {
+            return jdkParseFloat(value, start, end);
+        }
+        if (isHalfWayBetweenFloats(result)) {
+            return jdkParseFloat(value, start, end);
+        }
+        return negative ? (float) -result : (float) result;
+    }
+
+    private static boolean isHalfWayBetweenFloats(double value) {
+        float nearest = (float) value;
+        if (nearest == value || Float.isInfinite(nearest)) {
+            return false;
+        }
+        float other = Math.nextAfter(nearest, value);
+        return ((double) nearest + (double) other) / 2 == value;
+    }
+
+    private static float jdkParseFloat(CharSequence value, int start, int end) {
+        return Float.parseFloat(value.subSequence(start, end).toString());
+    }
+}
@@ -0,0 +1,173 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import org.monarchinitiative.exomiser.allelestore.model.AlleleBases;
+import org.monarchinitiative.exomiser.allelestore.model.RsId;
+
+/**
+ * Index based tokenizer for tab separated lines. Rather than splitting the line into a String per column,
+ * {@link #reset} records the start and end of the first columns and the parsers then read the values they need straight
+ * from the line, only creating Strings for the values they keep. The columns after those asked for are never scanned.
+ * <p>
+ * Instances are reusable but not thread-safe.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class LineTokenizer {
+
+    private final int maxColumns;
+    private final int[] starts;
+    private final int[] ends;
+
+    private CharSequence line = "";
+    private int numColumns;
+
+    /**
+     * @param maxColumns the number of columns to find, any columns after these are not scanned.
+     */
+    LineTokenizer(int maxColumns) {
+        this.maxColumns = maxColumns;
+        this.starts = new int[maxColumns];
+        this.ends = new int[maxColumns];
+    }
+
+    LineTokenizer reset(CharSequence line) {
+        this.line = line;
+        int length = line.length();
+        int start = 0;
+        numColumns = 0;
+        while (numColumns < maxColumns && start <= length) {
+            int end = indexOf('\t', start, length);
+            starts[numColumns] = start;
+            ends[numColumns] = end;
+            numColumns++;
+            start = end + 1;
+        }
+        return this;
+    }
+
+    boolean hasColumn(int column) {
+        return column < numColumns;
+    }
+
+    int start(int column) {
+        checkColumn(column);
+        return starts[column];
+    }
+
+    int end(int column) {
+        checkColumn(column);
+        return ends[column];
+    }
+
+    private void checkColumn(int column) {
+        if (column >= numColumns) {
+            throw new IllegalArgumentException("Column " + column + " missing from line " + line);
+        }
+    }
+
+    String column(int column) {
+        return substring(start(column), end(column));
+    }
+
+    char charAt(int index) {
+        return line.charAt(index);
+    }
+
+    String substring(int start, int end) {
+        return line.subSequence(start, end).toString();
+    }
+
+    /**
+     * @return the bases of the range, using the shared {@link AlleleBases} instance of the common sequences.
+     */
+    String bases(int start, int end) {
+        return AlleleBases.canonical(line, start, end);
+    }
+
+    /**
+     * @return the upper-cased bases of the range, using the shared {@link AlleleBases} instance of the common sequences.
+     */
+    String upperCaseBases(int start, int end) {
+        return AlleleBases.upperCase(line, start, end);
+    }
+
+    /**
+     * @return the index of the first c between from (inclusive) and to (exclusive), or to if there is none.
+     */
+    int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    boolean regionMatches(int start, int end, String value) {
+        if (end - start < value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (line.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @throws NumberFormatException if the range does not hold a non-negative int.
+     */
+    int parseInt(int start, int end) {
+        if (start == end || end - start > 10) {
+            throw new NumberFormatException("For input string: \"" + substring(start, end) + "\"");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + substring(start, end) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + substring(start, end) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * @throws NumberFormatException if the range does not hold a number.
+     * @see FloatParser
+     */
+    float parseFloat(int start, int end) {
+        return FloatParser.parseFloat(line, start, end);
+    }
+
+    /**
+     * @return the number of the rsId in the range, or {@link RsId#NONE} if it is not an rsId.
+     */
+    long parseRsId(int start, int end) {
+        return RsId.parse(line, start, end);
+    }
+
+    /**
+     * @return the start of the index'th separated sub-field of the range, or -1 if there are fewer sub-fields. The
+     * sub-field ends at the next separator or the end of the range.
+     */
+    int subfieldStart(int start, int end, char separator, int index) {
+        int subfieldStart = start;
+        for (int i = 0; i < index; i++) {
+            subfieldStart = indexOf(separator, subfieldStart, end) + 1;
+            if (subfieldStart > end) {
+                return -1;
+            }
+        }
+        return subfieldStart;
+    }
+
+    @Override
+    public String toString() {
+        return line.toString();
+    }
+}
@@ -2,7 +2,9 @@ package org.monarchinitiative.exomiser.allelestore.parsers;
 
 import org.jetbrains.annotations.NotNull;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleBases;
 import org.monarchinitiative.exomiser.allelestore.model.AllelePosition;
+import org.monarchinitiative.exomiser.allelestore.model.RsId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,41 +15,57 @@ import java.util.List;
 /**
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
-public abstract class VcfAlleleParser implements AlleleParser {
+public abstract class VcfAlleleParser implements AsciiAlleleParser {
 
     private static final Logger logger = LoggerFactory.getLogger(VcfAlleleParser.class);
 
+    // parsers are shared between the threads of the AlleleParsingPipeline
+    private final ThreadLocal<VcfLineTokenizer> tokenizers = ThreadLocal.withInitial(VcfLineTokenizer::new);
+
+    @Override
     public List<Allele> parseLine(String line) {
-        if (line.startsWith("#")) {
+        return parse(line);
+    }
+
+    @Override
+    public List<Allele> parseLine(AsciiLine line) {
+        return parse(line);
+    }
+
+    private List<Allele> parse(CharSequence line) {
+        if (line.length() > 0 && line.charAt(0) == '#') {
             // comment line.
             return Collections.emptyList();
         }
-        String[] fields = line.split("\t");
-        List<Allele> alleles = parseAlleles(fields, line);
+        VcfLineTokenizer tokenizer = tokenizers.get().reset(line);
+        List<Allele> alleles = parseAlleles(tokenizer);
 
-        if (hasNoInfoField(fields)) {
+        if (hasNoInfoField(tokenizer)) {
             return alleles;
         }
-        String info = fields[7];
-        return parseInfoField(alleles, info);
+        return parseInfoField(alleles, tokenizer);
     }
 
-    private boolean hasNoInfoField(String[] fields) {
-        return fields.length <= 7;
+    private boolean hasNoInfoField(VcfLineTokenizer tokenizer) {
+        return !tokenizer.hasColumn(VcfLineTokenizer.INFO);
     }
 
-    abstract List<Allele> parseInfoField(List<Allele> alleles, String info);
+    /**
+     * Adds the values found in the INFO column of the current line of the tokenizer to the alleles parsed from the
+     * same line.
+     */
+    abstract List<Allele> parseInfoField(List<Allele> alleles, VcfLineTokenizer tokenizer);
 
-    private List<Allele> parseAlleles(String[] fields, String line) {
+    private List<Allele> parseAlleles(VcfLineTokenizer tokenizer) {
 
-        byte chr = parseChr(fields[0], line);
-        int pos = Integer.parseInt(fields[1]);
+        byte chr = parseChr(tokenizer);
+        int pos = tokenizer.parseInt(tokenizer.start(VcfLineTokenizer.POS), tokenizer.end(VcfLineTokenizer.POS));
         //A dbSNP rsID such as rs101432848. In rare cases may be multiple e.g., rs200118651;rs202059104
-        String[] rsId = fields[2].split(";");
+        long rsId = getCurrentRsId(tokenizer);
         //Uppercasing shouldn't be necessary acccording to the VCF standard,
         //but occasionally one sees VCF files with lower case for part of the
         //sequences, e.g., to show indels.
-        String ref = fields[3].toUpperCase();
+        String ref = tokenizer.upperCaseBases(tokenizer.start(VcfLineTokenizer.REF), tokenizer.end(VcfLineTokenizer.REF));
 
         //dbSNP has introduced the concept of multiple minor alleles on the
         //same VCF line with their frequencies reported in same order in the
@@ -55,34 +73,69 @@ public abstract class VcfAlleleParser implements AlleleParser {
         //and move the dbSNP freq parsing to here. Not ideal as ESP processing
         //also goes through this method but does not use the CAF field so
         //should be skipped
-        String[] alts = fields[4].toUpperCase().split(",");
-
-        List<Allele> alleles = new ArrayList<>();
-        for (int i = 0; i < alts.length; i++) {
-            Allele allele = makeAllele(chr, pos, ref, alts[i]);
-            allele.setRsId(getCurrentRsId(rsId));
+        int altEnd = tokenizer.end(VcfLineTokenizer.ALT);
+        List<Allele> alleles = new ArrayList<>(1);
+        for (int altStart = tokenizer.start(VcfLineTokenizer.ALT); altStart <= altEnd; ) {
+            int end = tokenizer.indexOf(',', altStart, altEnd);
+            String alt = tokenizer.upperCaseBases(altStart, end);
+            Allele allele = makeAllele(chr, pos, ref, alt);
+            allele.setRsNumber(rsId);
             alleles.add(allele);
+            altStart = end + 1;
         }
         return alleles;
     }
 
+    /**
+     * Reads the common 1-22 numeric chromosomes straight from the line, anything else is handled by
+     * {@link #parseChr(String, String)}.
+     */
+    private byte parseChr(VcfLineTokenizer tokenizer) {
+        int start = tokenizer.start(VcfLineTokenizer.CHROM);
+        int length = tokenizer.end(VcfLineTokenizer.CHROM) - start;
+        if (length == 1 && isDigit(tokenizer.charAt(start))) {
+            return (byte) (tokenizer.charAt(start) - '0');
+        }
+        if (length == 2 && isDigit(tokenizer.charAt(start)) && isDigit(tokenizer.charAt(start + 1))) {
+            return (byte) ((tokenizer.charAt(start) - '0') * 10 + tokenizer.charAt(start + 1) - '0');
+        }
+        return parseChr(tokenizer.column(VcfLineTokenizer.CHROM), tokenizer.toString());
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Creates the minimised allele, only creating new Strings for trimmed sequences with no shared {@link AlleleBases}
+     * instance.
+     */
     @NotNull
     private Allele makeAllele(byte chr, int pos, String ref, String alt) {
-        AllelePosition allelePosition = AllelePosition.minimise(pos, ref, alt);
-        return new Allele(chr, allelePosition.getPos(), allelePosition.getRef(), allelePosition.getAlt());
+        long trim = AllelePosition.trim(ref, alt);
+        if (trim == AllelePosition.NO_TRIM) {
+            return new Allele(chr, pos, ref, alt);
+        }
+        int leftTrim = AllelePosition.leftTrim(trim);
+        int rightTrim = AllelePosition.rightTrim(trim);
+        String minimisedRef = AlleleBases.canonical(ref, leftTrim, ref.length() - rightTrim);
+        String minimisedAlt = AlleleBases.canonical(alt, leftTrim, alt.length() - rightTrim);
+        return new Allele(chr, pos + leftTrim, minimisedRef, minimisedAlt);
     }
 
     /**
      * rsIds can be merged - these are reported in the format rs200118651;rs202059104 where the first rsId is the current one,
      * the second is the rsId which was merged into the first.
      *
-     * @param rsIds an array of rsId. Can be empty.
-     * @return The first rsId present in an array or "." if empty.
+     * @return The number of the first rsId present in the ID column or {@link RsId#NONE} if empty. ESP prefixes some
+     * rsIds with a '~' which is ignored.
      */
-    private String getCurrentRsId(String[] rsIds) {
-        if (rsIds.length >= 1) {
-            return rsIds[0].replaceFirst("~", "");
+    private long getCurrentRsId(VcfLineTokenizer tokenizer) {
+        int start = tokenizer.start(VcfLineTokenizer.ID);
+        int end = tokenizer.indexOf(';', start, tokenizer.end(VcfLineTokenizer.ID));
+        if (start < end && tokenizer.charAt(start) == '~') {
+            start++;
         }
-        return ".";
+        return tokenizer.parseRsId(start, end);
     }
 }
@@ -0,0 +1,58 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+/**
+ * {@link LineTokenizer} for VCF data lines which finds the first eight columns (CHROM to INFO) and the keys of the INFO
+ * column. Columns after INFO, such as the genotypes, are never scanned.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class VcfLineTokenizer extends LineTokenizer {
+
+    static final int CHROM = 0;
+    static final int POS = 1;
+    static final int ID = 2;
+    static final int REF = 3;
+    static final int ALT = 4;
+    static final int QUAL = 5;
+    static final int FILTER = 6;
+    static final int INFO = 7;
+
+    private static final int NUM_COLUMNS = 8;
+
+    VcfLineTokenizer() {
+        super(NUM_COLUMNS);
+    }
+
+    @Override
+    VcfLineTokenizer reset(CharSequence line) {
+        super.reset(line);
+        return this;
+    }
+
+    /**
+     * Finds the value of a key=value entry of the INFO column.
+     *
+     * @return the index of the start of the value, or -1 if the INFO column has no such key. The value ends at
+     * {@link #infoValueEnd(int)}.
+     */
+    int findInfoValue(String key) {
+        if (!hasColumn(INFO)) {
+            return -1;
+        }
+        int infoEnd = end(INFO);
+        int entryStart = start(INFO);
+        while (entryStart < infoEnd) {
+            int entryEnd = indexOf(';', entryStart, infoEnd);
+            int valueStart = entryStart + key.length() + 1;
+            if (valueStart <= entryEnd && regionMatches(entryStart, entryEnd, key) && charAt(valueStart - 1) == '=') {
+                return valueStart;
+            }
+            entryStart = entryEnd + 1;
+        }
+        return -1;
+    }
+
+    int infoValueEnd(int valueStart) {
+        return indexOf(';', valueStart, end(INFO));
+    }
+}
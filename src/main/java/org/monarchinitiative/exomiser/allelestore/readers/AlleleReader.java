@@ -0,0 +1,48 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.AlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AllelePosition;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the alleles back out of an index written by one of the {@link AlleleIndexer}s. The indexes hold alleles in
+ * their minimised form, so the chr, pos, ref and alt used for a lookup should first be minimised using
+ * {@link AllelePosition#minimise(int, String, String)}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public interface AlleleReader extends Closeable {
+
+    /**
+     * @return the allele with its rsId and values, or null if the allele is not in the index.
+     */
+    Allele get(int chr, int pos, String ref, String alt);
+
+    /**
+     * Looks up several alleles at once.
+     *
+     * @param alleles the alleles to look up, only their chr, pos, ref and alt are used
+     * @return the alleles found in the index keyed by the requested allele, alleles not in the index are left out.
+     */
+    default Map<Allele, Allele> getAll(Collection<Allele> alleles) {
+        Map<Allele, Allele> found = new HashMap<>();
+        for (Allele allele : alleles) {
+            Allele indexed = get(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt());
+            if (indexed != null) {
+                found.put(allele, indexed);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return all the alleles of the chr with a pos from start to end inclusive, in their natural order.
+     */
+    List<Allele> getRegion(int chr, int start, int end);
+}
@@ -0,0 +1,177 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.monarchinitiative.exomiser.allelestore.indexers.LuceneAlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Searches the lucene index written by the {@link LuceneAlleleIndexer}. Alleles are found by the chr and pos points
+ * and the ref and alt terms, regions by a range of the pos points. Batches of alleles are sorted and looked up a
+ * chromosome at a time by a single query for the set of their positions, which visits the points in order.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class LuceneAlleleReader implements AlleleReader {
+
+    // the number of alleles looked up by each query of a batch
+    private static final int MAX_BATCH_SIZE = 10_000;
+
+    private final Directory directory;
+    private final IndexReader indexReader;
+    private final IndexSearcher indexSearcher;
+
+    /**
+     * @param indexPath directory holding the lucene index
+     */
+    public LuceneAlleleReader(Path indexPath) throws IOException {
+        this(FSDirectory.open(indexPath));
+    }
+
+    LuceneAlleleReader(Directory directory) throws IOException {
+        this.directory = directory;
+        this.indexReader = DirectoryReader.open(directory);
+        this.indexSearcher = new IndexSearcher(indexReader);
+    }
+
+    @Override
+    public Allele get(int chr, int pos, String ref, String alt) {
+        Query query = new BooleanQuery.Builder()
+                .add(IntPoint.newExactQuery("chr", chr), BooleanClause.Occur.FILTER)
+                .add(IntPoint.newExactQuery("pos", pos), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term("ref", ref)), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term("alt", alt)), BooleanClause.Occur.FILTER)
+                .build();
+        try {
+            TopDocs topDocs = indexSearcher.search(query, 1);
+            if (topDocs.scoreDocs.length == 0) {
+                return null;
+            }
+            Document doc = indexSearcher.doc(topDocs.scoreDocs[0].doc);
+            return toAllele(new Allele(chr, pos, ref, alt), doc);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map<Allele, Allele> getAll(Collection<Allele> alleles) {
+        List<Allele> sortedAlleles = new ArrayList<>(alleles);
+        Collections.sort(sortedAlleles);
+        Map<Allele, Allele> found = new HashMap<>();
+        int batchStart = 0;
+        while (batchStart < sortedAlleles.size()) {
+            int chr = sortedAlleles.get(batchStart).getChr();
+            int batchEnd = batchStart;
+            while (batchEnd < sortedAlleles.size() && batchEnd - batchStart < MAX_BATCH_SIZE && sortedAlleles.get(batchEnd).getChr() == chr) {
+                batchEnd++;
+            }
+            getAll(chr, sortedAlleles.subList(batchStart, batchEnd), found);
+            batchStart = batchEnd;
+        }
+        return found;
+    }
+
+    private void getAll(int chr, List<Allele> sortedAlleles, Map<Allele, Allele> found) {
+        Map<Allele, Allele> requested = new HashMap<>();
+        int[] positions = new int[sortedAlleles.size()];
+        int numPositions = 0;
+        for (Allele allele : sortedAlleles) {
+            requested.put(allele, allele);
+            if (numPositions == 0 || positions[numPositions - 1] != allele.getPos()) {
+                positions[numPositions++] = allele.getPos();
+            }
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(IntPoint.newExactQuery("chr", chr), BooleanClause.Occur.FILTER)
+                .add(IntPoint.newSetQuery("pos", Arrays.copyOf(positions, numPositions)), BooleanClause.Occur.FILTER)
+                .build();
+        try {
+            DocIdCollector collector = new DocIdCollector();
+            indexSearcher.search(query, collector);
+            for (int docId : collector.docIds) {
+                Document doc = indexSearcher.doc(docId);
+                Allele allele = new Allele(chr, doc.getField("pos").numericValue().intValue(), doc.get("ref"), doc.get("alt"));
+                Allele requestedAllele = requested.get(allele);
+                if (requestedAllele != null) {
+                    found.put(requestedAllele, toAllele(allele, doc));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<Allele> getRegion(int chr, int start, int end) {
+        Query query = new BooleanQuery.Builder()
+                .add(IntPoint.newExactQuery("chr", chr), BooleanClause.Occur.FILTER)
+                .add(IntPoint.newRangeQuery("pos", start, end), BooleanClause.Occur.FILTER)
+                .build();
+        try {
+            DocIdCollector collector = new DocIdCollector();
+            indexSearcher.search(query, collector);
+            List<Allele> alleles = new ArrayList<>(collector.docIds.size());
+            for (int docId : collector.docIds) {
+                Document doc = indexSearcher.doc(docId);
+                Allele allele = new Allele(chr, doc.getField("pos").numericValue().intValue(), doc.get("ref"), doc.get("alt"));
+                alleles.add(toAllele(allele, doc));
+            }
+            Collections.sort(alleles);
+            return alleles;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Allele toAllele(Allele allele, Document doc) {
+        IndexableField rsId = doc.getField("rsId");
+        if (rsId != null) {
+            allele.setRsNumber(rsId.numericValue().longValue());
+        }
+        for (AlleleProperty property : AlleleProperty.values()) {
+            IndexableField value = doc.getField(property.name());
+            if (value != null) {
+                allele.addValue(property, value.numericValue().floatValue());
+            }
+        }
+        return allele;
+    }
+
+    @Override
+    public void close() throws IOException {
+        indexReader.close();
+        directory.close();
+    }
+
+    private static class DocIdCollector extends SimpleCollector {
+
+        private final List<Integer> docIds = new ArrayList<>();
+        private int docBase;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) {
+            docBase = context.docBase;
+        }
+
+        @Override
+        public void collect(int doc) {
+            docIds.add(docBase + doc);
+        }
+
+        @Override
+        public boolean needsScores() {
+            return false;
+        }
+    }
+}
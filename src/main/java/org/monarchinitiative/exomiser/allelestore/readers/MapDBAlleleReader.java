@@ -0,0 +1,143 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.mapdb.serializer.SerializerCompressionWrapper;
+import org.monarchinitiative.exomiser.allelestore.indexers.MapDBAlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reads the alleles.db file written by the {@link MapDBAlleleIndexer}, using either key layout. Indexes with packed
+ * keys are held in tree maps and so can be read by region, as a range of both the packed keys and the sortable String
+ * keys of the overflow map. Indexes with String keys are held in a hash map which can only be read one allele at a
+ * time.
+ * <p>
+ * Batches of alleles are looked up in key order by a {@link SortedKeySweep} over the tree maps of the packed layout.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MapDBAlleleReader implements AlleleReader {
+
+    private final DB db;
+    private final Map<String, String> map;
+    private final NavigableMap<Long, String> packedKeyMap;
+    private final NavigableMap<String, String> overflowMap;
+
+    /**
+     * @param indexPath directory holding the alleles.db file
+     */
+    public MapDBAlleleReader(Path indexPath) {
+        File dbFile = indexPath.resolve("alleles.db").toAbsolutePath().toFile();
+        db = DBMaker
+                .fileDB(dbFile)
+                .fileMmapEnable()
+                .readOnly()
+                .make();
+
+        if (db.exists("alleles_overflow")) {
+            packedKeyMap = db.treeMap("alleles")
+                    .keySerializer(Serializer.LONG)
+                    .valueSerializer(new SerializerCompressionWrapper<>(Serializer.STRING))
+                    .open();
+            overflowMap = db.treeMap("alleles_overflow")
+                    .keySerializer(Serializer.STRING)
+                    .valueSerializer(new SerializerCompressionWrapper<>(Serializer.STRING))
+                    .open();
+            map = overflowMap;
+        } else {
+            packedKeyMap = null;
+            overflowMap = null;
+            map = db.hashMap("alleles")
+                    .keySerializer(Serializer.STRING)
+                    .valueSerializer(new SerializerCompressionWrapper<>(Serializer.STRING))
+                    .open();
+        }
+    }
+
+    @Override
+    public Allele get(int chr, int pos, String ref, String alt) {
+        if (packedKeyMap != null) {
+            if (!AlleleKey.isInRange(chr, pos)) {
+                // could not have been written to the packed layout
+                return null;
+            }
+            long packedKey = AlleleKey.of(chr, pos, ref, alt);
+            if (AlleleKey.isExact(packedKey)) {
+                String infoField = packedKeyMap.get(packedKey);
+                return infoField == null ? null : StoredAlleles.toAllele(chr, pos, ref, alt, infoField);
+            }
+        }
+        String key = packedKeyMap == null ? StoredAlleles.key(chr, pos, ref, alt) : AlleleKey.sortableKey(chr, pos, ref, alt);
+        String infoField = map.get(key);
+        return infoField == null ? null : StoredAlleles.toAllele(chr, pos, ref, alt, infoField);
+    }
+
+    @Override
+    public Map<Allele, Allele> getAll(Collection<Allele> alleles) {
+        if (packedKeyMap == null) {
+            // the hash map has no order to sweep through
+            return AlleleReader.super.getAll(alleles);
+        }
+        Map<Allele, Allele> found = new HashMap<>();
+        List<Allele> packedKeyAlleles = new ArrayList<>(alleles.size());
+        List<Allele> stringKeyAlleles = new ArrayList<>();
+        for (Allele allele : alleles) {
+            if (!AlleleKey.isInRange(allele.getChr(), allele.getPos())) {
+                continue;
+            }
+            if (AlleleKey.isExact(allele.generatePackedKey())) {
+                packedKeyAlleles.add(allele);
+            } else {
+                stringKeyAlleles.add(allele);
+            }
+        }
+        SortedKeySweep.lookup(packedKeyAlleles, Allele::generatePackedKey, Comparator.naturalOrder(),
+                key -> packedKeyMap.tailMap(key, true).entrySet().iterator(), packedKeyMap::get,
+                (allele, infoField) -> found.put(allele, StoredAlleles.toAllele(allele, infoField)));
+        SortedKeySweep.lookup(stringKeyAlleles, Allele::generateSortableKey, Comparator.naturalOrder(),
+                key -> overflowMap.tailMap(key, true).entrySet().iterator(), overflowMap::get,
+                (allele, infoField) -> found.put(allele, StoredAlleles.toAllele(allele, infoField)));
+        return found;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the index was not built with packed keys.
+     */
+    @Override
+    public List<Allele> getRegion(int chr, int start, int end) {
+        if (packedKeyMap == null) {
+            throw new UnsupportedOperationException("Region queries need a MapDB index built with packed keys");
+        }
+        List<Allele> alleles = new ArrayList<>();
+        // only the part of the region which can be encoded into a key can hold any alleles
+        start = Math.max(start, 0);
+        end = Math.min(end, AlleleKey.MAX_POS);
+        if (chr < 0 || chr > AlleleKey.MAX_CHR || start > end) {
+            return alleles;
+        }
+        long firstKey = AlleleKey.firstKeyAt(chr, start);
+        long lastKey = AlleleKey.lastKeyAt(chr, end);
+        for (Map.Entry<Long, String> entry : packedKeyMap.subMap(firstKey, true, lastKey, true).entrySet()) {
+            long key = entry.getKey();
+            alleles.add(StoredAlleles.toAllele(chr, AlleleKey.pos(key), AlleleKey.ref(key), AlleleKey.alt(key), entry.getValue()));
+        }
+        String firstSortableKey = AlleleKey.firstSortableKeyAt(chr, start);
+        String lastSortableKey = AlleleKey.lastSortableKeyAt(chr, end);
+        for (Map.Entry<String, String> entry : overflowMap.subMap(firstSortableKey, true, lastSortableKey, true).entrySet()) {
+            alleles.add(StoredAlleles.fromKey(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(alleles);
+        return alleles;
+    }
+
+    @Override
+    public void close() {
+        db.close();
+    }
+}
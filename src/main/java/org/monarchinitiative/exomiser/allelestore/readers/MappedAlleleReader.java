@@ -0,0 +1,129 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.MappedAlleleFormat;
+import org.monarchinitiative.exomiser.allelestore.indexers.MappedAlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Reads the immutable store written by the {@link MappedAlleleIndexer}. The chromosome files are memory-mapped when
+ * the reader is opened, so opening only reads their headers and lookups read the columns directly from the page
+ * cache. An allele is found by a search of the sparse block index followed by a binary search of a single block of
+ * positions. Batches of alleles are sorted and each is found by galloping forwards from the previous one.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MappedAlleleReader implements AlleleReader {
+
+    // the batch index of an allele is held in the low bits of its position key, which are zero
+    private static final int MAX_BATCH_SIZE = 1 << 30;
+
+    private final MappedChromosome[] chromosomes = new MappedChromosome[AlleleKey.MAX_CHR + 1];
+
+    /**
+     * @param indexPath directory holding the chromosome files
+     */
+    public MappedAlleleReader(Path indexPath) throws IOException {
+        this(indexPath, EnumSet.allOf(AlleleProperty.class));
+    }
+
+    /**
+     * Reads only the values of some of the properties, such as the {@link AlleleProperty#FREQUENCY_PROPERTIES}. Each
+     * property is stored in its own columns, so the columns of the other properties are never read.
+     *
+     * @param indexPath  directory holding the chromosome files
+     * @param properties the properties to read, the alleles read have no values for the others
+     */
+    public MappedAlleleReader(Path indexPath, Set<AlleleProperty> properties) throws IOException {
+        EnumSet<AlleleProperty> selected = EnumSet.noneOf(AlleleProperty.class);
+        selected.addAll(properties);
+        for (int chr = 0; chr < chromosomes.length; chr++) {
+            Path chromosomeFile = MappedAlleleFormat.chromosomeFile(indexPath, chr);
+            if (Files.exists(chromosomeFile)) {
+                chromosomes[chr] = new MappedChromosome(chr, chromosomeFile, selected);
+            }
+        }
+    }
+
+    private MappedChromosome chromosome(int chr) {
+        return chr < 0 || chr >= chromosomes.length ? null : chromosomes[chr];
+    }
+
+    @Override
+    public Allele get(int chr, int pos, String ref, String alt) {
+        MappedChromosome chromosome = chromosome(chr);
+        if (chromosome == null) {
+            return null;
+        }
+        int index = chromosome.indexOf(chromosome.lowerBound(pos), pos, ref, alt);
+        return index < 0 ? null : chromosome.allele(index);
+    }
+
+    /**
+     * Sorts the alleles by position and finds each by galloping forwards from the previous one. The positions are
+     * sorted as primitive keys holding the index of their allele in the low bits, which is several times faster than
+     * sorting the alleles themselves.
+     *
+     * @throws IllegalArgumentException if there are more than 2^30 alleles.
+     */
+    @Override
+    public Map<Allele, Allele> getAll(Collection<Allele> alleles) {
+        if (alleles.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Cannot look up more than " + MAX_BATCH_SIZE + " alleles at once");
+        }
+        Allele[] batch = alleles.toArray(new Allele[0]);
+        long[] sortKeys = new long[batch.length];
+        int numKeys = 0;
+        for (int i = 0; i < batch.length; i++) {
+            Allele allele = batch[i];
+            if (chromosome(allele.getChr()) != null && AlleleKey.isInRange(allele.getChr(), allele.getPos())) {
+                sortKeys[numKeys++] = AlleleKey.firstKeyAt(allele.getChr(), allele.getPos()) | i;
+            }
+        }
+        Arrays.sort(sortKeys, 0, numKeys);
+        Map<Allele, Allele> found = new HashMap<>();
+        MappedChromosome chromosome = null;
+        int index = 0;
+        for (int k = 0; k < numKeys; k++) {
+            Allele allele = batch[(int) sortKeys[k] & (MAX_BATCH_SIZE - 1)];
+            if (chromosome == null || allele.getChr() != chromosome.chr()) {
+                chromosome = chromosome(allele.getChr());
+                index = chromosome.lowerBound(allele.getPos());
+            } else {
+                index = chromosome.lowerBound(allele.getPos(), index);
+            }
+            int alleleIndex = chromosome.indexOf(index, allele.getPos(), allele.getRef(), allele.getAlt());
+            if (alleleIndex >= 0) {
+                found.put(allele, chromosome.allele(alleleIndex));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Allele> getRegion(int chr, int start, int end) {
+        List<Allele> alleles = new ArrayList<>();
+        MappedChromosome chromosome = chromosome(chr);
+        if (chromosome == null) {
+            return alleles;
+        }
+        for (int i = chromosome.lowerBound(start); i < chromosome.size() && chromosome.pos(i) <= end; i++) {
+            alleles.add(chromosome.allele(i));
+        }
+        return alleles;
+    }
+
+    /**
+     * Drops the mapped buffers, which are unmapped once they have been garbage collected.
+     */
+    @Override
+    public void close() {
+        Arrays.fill(chromosomes, null);
+    }
+}
@@ -0,0 +1,279 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.MappedAlleleFormat;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+/**
+ * The memory-mapped sections of a chromosome file written in the {@link MappedAlleleFormat}. Alleles are referred to
+ * by their index in the sorted columns. Only the columns of the properties being read are mapped. The buffers are only
+ * read using absolute gets, so instances are thread-safe.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class MappedChromosome {
+
+    private final int chr;
+    private final int numAlleles;
+    private final IntBuffer positions;
+    private final IntBuffer blocks;
+    private final IntBuffer alleleCodes;
+    private final IntBuffer dictionaryOffsets;
+    private final ByteBuffer dictionary;
+    private final LongBuffer rsIds;
+    private final PropertyColumn[] columns;
+
+    /**
+     * @param properties the properties whose values are read, the alleles read have no values for the others
+     */
+    MappedChromosome(int chr, Path chromosomeFile, EnumSet<AlleleProperty> properties) throws IOException {
+        this.chr = chr;
+        try (FileChannel channel = FileChannel.open(chromosomeFile, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, MappedAlleleFormat.headerSize());
+            if (header.getInt() != MappedAlleleFormat.MAGIC || header.getInt() != MappedAlleleFormat.VERSION) {
+                throw new IOException(chromosomeFile + " is not a version " + MappedAlleleFormat.VERSION + " mapped allele file");
+            }
+            boolean quantised = (header.getInt() & MappedAlleleFormat.QUANTISED_VALUES) != 0;
+            numAlleles = header.getInt();
+            int numSections = header.getInt();
+            if (numSections != MappedAlleleFormat.NUM_SECTIONS) {
+                throw new IOException(chromosomeFile + " has " + numSections + " sections, expected " + MappedAlleleFormat.NUM_SECTIONS);
+            }
+            Sections sections = new Sections(channel, header);
+            positions = sections.map(MappedAlleleFormat.POSITIONS).asIntBuffer();
+            blocks = sections.map(MappedAlleleFormat.BLOCKS).asIntBuffer();
+            alleleCodes = sections.map(MappedAlleleFormat.ALLELE_CODES).asIntBuffer();
+            dictionaryOffsets = sections.map(MappedAlleleFormat.DICTIONARY_OFFSETS).asIntBuffer();
+            dictionary = sections.map(MappedAlleleFormat.DICTIONARY);
+            rsIds = sections.map(MappedAlleleFormat.RS_IDS).asLongBuffer();
+            // in ordinal order, which is the order the Allele holds its values
+            columns = new PropertyColumn[properties.size()];
+            int i = 0;
+            for (AlleleProperty property : properties) {
+                columns[i++] = new PropertyColumn(property,
+                        sections.map(MappedAlleleFormat.presenceSection(property)).asLongBuffer(),
+                        sections.map(MappedAlleleFormat.rankSection(property)).asIntBuffer(),
+                        sections.map(MappedAlleleFormat.valueSection(property)),
+                        quantised);
+            }
+        }
+    }
+
+    int chr() {
+        return chr;
+    }
+
+    int size() {
+        return numAlleles;
+    }
+
+    int pos(int index) {
+        return positions.get(index);
+    }
+
+    /**
+     * @return the index of the first allele with a pos not lower than the pos, or the number of alleles if there is
+     * none, found using the block index.
+     */
+    int lowerBound(int pos) {
+        int low = 0;
+        int high = blocks.limit() - 1;
+        // the last block starting below the pos
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid) < pos) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return 0;
+        }
+        int blockStart = block * MappedAlleleFormat.BLOCK_SIZE;
+        return lowerBound(pos, blockStart + 1, Math.min(blockStart + MappedAlleleFormat.BLOCK_SIZE, numAlleles));
+    }
+
+    /**
+     * @return the index of the first allele with a pos not lower than the pos, searching forwards from an index
+     * known not to be past it.
+     */
+    int lowerBound(int pos, int fromIndex) {
+        if (fromIndex >= numAlleles || positions.get(fromIndex) >= pos) {
+            return fromIndex;
+        }
+        // gallop forwards from an allele below the pos, so that nearby alleles are found in a few steps
+        int low = fromIndex;
+        int step = 1;
+        while (low + step < numAlleles && positions.get(low + step) < pos) {
+            low += step;
+            step <<= 1;
+        }
+        return lowerBound(pos, low + 1, Math.min(low + step, numAlleles));
+    }
+
+    private int lowerBound(int pos, int low, int high) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions.get(mid) < pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param fromIndex the index of the first allele at the pos, or the following allele if there is none
+     * @return the index of the allele or -1 if it is not in the chromosome.
+     */
+    int indexOf(int fromIndex, int pos, String ref, String alt) {
+        if (!AlleleKey.isInRange(chr, pos)) {
+            return -1;
+        }
+        long packedKey = AlleleKey.of(chr, pos, ref, alt);
+        boolean exact = AlleleKey.isExact(packedKey);
+        int exactCode = (int) packedKey & MappedAlleleFormat.EXACT_CODE_MASK;
+        for (int i = fromIndex; i < numAlleles && positions.get(i) == pos; i++) {
+            int code = alleleCodes.get(i);
+            if (exact ? code == exactCode : (code & MappedAlleleFormat.DICTIONARY_CODE) != 0 && dictionaryEntryEquals(code & MappedAlleleFormat.EXACT_CODE_MASK, ref, alt)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean dictionaryEntryEquals(int entry, String ref, String alt) {
+        int start = dictionaryOffsets.get(entry);
+        int end = dictionaryOffsets.get(entry + 1);
+        if (end - start != ref.length() + 1 + alt.length()) {
+            return false;
+        }
+        int offset = start;
+        for (int i = 0; i < ref.length(); i++) {
+            if (dictionary.get(offset++) != ref.charAt(i)) {
+                return false;
+            }
+        }
+        if (dictionary.get(offset++) != '\t') {
+            return false;
+        }
+        for (int i = 0; i < alt.length(); i++) {
+            if (dictionary.get(offset++) != alt.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Allele allele(int index) {
+        int pos = positions.get(index);
+        int code = alleleCodes.get(index);
+        Allele allele;
+        if ((code & MappedAlleleFormat.DICTIONARY_CODE) == 0) {
+            long packedKey = AlleleKey.firstKeyAt(chr, pos) | code;
+            allele = new Allele(chr, pos, AlleleKey.ref(packedKey), AlleleKey.alt(packedKey));
+        } else {
+            allele = dictionaryAllele(pos, code & MappedAlleleFormat.EXACT_CODE_MASK);
+        }
+        allele.setRsNumber(rsIds.get(index));
+        for (PropertyColumn column : columns) {
+            int valueIndex = column.valueIndex(index);
+            if (valueIndex >= 0) {
+                allele.addValue(column.property, column.value(valueIndex));
+            }
+        }
+        return allele;
+    }
+
+    private Allele dictionaryAllele(int pos, int entry) {
+        int start = dictionaryOffsets.get(entry);
+        byte[] bytes = new byte[dictionaryOffsets.get(entry + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = dictionary.get(start + i);
+        }
+        String refAlt = new String(bytes, StandardCharsets.US_ASCII);
+        int tab = refAlt.indexOf('\t');
+        return new Allele(chr, pos, refAlt.substring(0, tab), refAlt.substring(tab + 1));
+    }
+
+    /**
+     * The offsets and lengths of the sections read from the header.
+     */
+    private static class Sections {
+
+        private final FileChannel channel;
+        private final long[] offsets = new long[MappedAlleleFormat.NUM_SECTIONS];
+        private final long[] lengths = new long[MappedAlleleFormat.NUM_SECTIONS];
+
+        Sections(FileChannel channel, ByteBuffer header) {
+            this.channel = channel;
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = header.getLong();
+                lengths[i] = header.getLong();
+            }
+        }
+
+        ByteBuffer map(int section) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offsets[section], lengths[section]);
+        }
+    }
+
+    private static class PropertyColumn {
+
+        private final AlleleProperty property;
+        private final LongBuffer presence;
+        private final IntBuffer ranks;
+        // one of the two is null, depending on whether the values are quantised
+        private final FloatBuffer values;
+        private final ShortBuffer quantisedValues;
+        private final Quantisation quantisation;
+
+        PropertyColumn(AlleleProperty property, LongBuffer presence, IntBuffer ranks, ByteBuffer values, boolean quantised) {
+            this.property = property;
+            this.presence = presence;
+            this.ranks = ranks;
+            this.values = quantised ? null : values.asFloatBuffer();
+            this.quantisedValues = quantised ? values.asShortBuffer() : null;
+            this.quantisation = Quantisation.of(property);
+        }
+
+        float value(int valueIndex) {
+            if (values == null) {
+                return quantisation.decode(quantisedValues.get(valueIndex));
+            }
+            return values.get(valueIndex);
+        }
+
+        /**
+         * @return the index of the value of the allele or -1 if it has no value.
+         */
+        int valueIndex(int index) {
+            int wordIndex = index >>> 6;
+            long word = presence.get(wordIndex);
+            long bit = 1L << index;
+            if ((word & bit) == 0) {
+                return -1;
+            }
+            int rankBlock = index / MappedAlleleFormat.RANK_BLOCK_SIZE;
+            int valueIndex = ranks.get(rankBlock);
+            for (int i = rankBlock * MappedAlleleFormat.RANK_BLOCK_SIZE / Long.SIZE; i < wordIndex; i++) {
+                valueIndex += Long.bitCount(presence.get(i));
+            }
+            return valueIndex + Long.bitCount(word & (bit - 1));
+        }
+    }
+}
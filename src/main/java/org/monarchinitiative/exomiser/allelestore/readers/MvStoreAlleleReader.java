@@ -0,0 +1,150 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.monarchinitiative.exomiser.allelestore.indexers.MvStoreAlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Reads the alleles.mv.db file written by the {@link MvStoreAlleleIndexer}, using either key layout. Indexes with
+ * packed keys are read by region as a range of both the packed keys and the sortable String keys of the overflow map.
+ * The keys of indexes with String keys sort as text rather than by pos, so these cannot be read by region.
+ * <p>
+ * Batches of alleles are looked up in key order by a {@link SortedKeySweep} over the map cursors.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MvStoreAlleleReader implements AlleleReader {
+
+    private final MVStore mvStore;
+    private final MVMap<String, String> map;
+    private final MVMap<Long, String> packedKeyMap;
+
+    /**
+     * @param indexPath directory holding the alleles.mv.db file
+     */
+    public MvStoreAlleleReader(Path indexPath) {
+        String fileName = indexPath.resolve("alleles.mv.db").toAbsolutePath().toString();
+        mvStore = new MVStore.Builder()
+                .fileName(fileName)
+                .readOnly()
+                .open();
+        if (mvStore.getMapNames().contains("alleles_overflow")) {
+            packedKeyMap = mvStore.openMap("alleles");
+            map = mvStore.openMap("alleles_overflow");
+        } else {
+            packedKeyMap = null;
+            map = mvStore.openMap("alleles");
+        }
+    }
+
+    @Override
+    public Allele get(int chr, int pos, String ref, String alt) {
+        if (packedKeyMap != null) {
+            if (!AlleleKey.isInRange(chr, pos)) {
+                // could not have been written to the packed layout
+                return null;
+            }
+            long packedKey = AlleleKey.of(chr, pos, ref, alt);
+            if (AlleleKey.isExact(packedKey)) {
+                String infoField = packedKeyMap.get(packedKey);
+                return infoField == null ? null : StoredAlleles.toAllele(chr, pos, ref, alt, infoField);
+            }
+        }
+        String key = packedKeyMap == null ? StoredAlleles.key(chr, pos, ref, alt) : AlleleKey.sortableKey(chr, pos, ref, alt);
+        String infoField = map.get(key);
+        return infoField == null ? null : StoredAlleles.toAllele(chr, pos, ref, alt, infoField);
+    }
+
+    @Override
+    public Map<Allele, Allele> getAll(Collection<Allele> alleles) {
+        Map<Allele, Allele> found = new HashMap<>();
+        Collection<Allele> stringKeyAlleles = alleles;
+        Function<Allele, String> toStringKey = Allele::generateKey;
+        if (packedKeyMap != null) {
+            toStringKey = Allele::generateSortableKey;
+            List<Allele> packedKeyAlleles = new ArrayList<>(alleles.size());
+            stringKeyAlleles = new ArrayList<>();
+            for (Allele allele : alleles) {
+                if (!AlleleKey.isInRange(allele.getChr(), allele.getPos())) {
+                    continue;
+                }
+                if (AlleleKey.isExact(allele.generatePackedKey())) {
+                    packedKeyAlleles.add(allele);
+                } else {
+                    stringKeyAlleles.add(allele);
+                }
+            }
+            SortedKeySweep.lookup(packedKeyAlleles, Allele::generatePackedKey, packedKeyMap.getKeyType()::compare,
+                    key -> entries(packedKeyMap.cursor(key)), packedKeyMap::get,
+                    (allele, infoField) -> found.put(allele, StoredAlleles.toAllele(allele, infoField)));
+        }
+        SortedKeySweep.lookup(stringKeyAlleles, toStringKey, map.getKeyType()::compare,
+                key -> entries(map.cursor(key)), map::get,
+                (allele, infoField) -> found.put(allele, StoredAlleles.toAllele(allele, infoField)));
+        return found;
+    }
+
+    private static <K, V> Iterator<Map.Entry<K, V>> entries(Cursor<K, V> cursor) {
+        return new Iterator<Map.Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                K key = cursor.next();
+                return new AbstractMap.SimpleImmutableEntry<>(key, cursor.getValue());
+            }
+        };
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the index was not built with packed keys.
+     */
+    @Override
+    public List<Allele> getRegion(int chr, int start, int end) {
+        if (packedKeyMap == null) {
+            throw new UnsupportedOperationException("Region queries need an MVStore index built with packed keys");
+        }
+        List<Allele> alleles = new ArrayList<>();
+        // only the part of the region which can be encoded into a key can hold any alleles
+        start = Math.max(start, 0);
+        end = Math.min(end, AlleleKey.MAX_POS);
+        if (chr < 0 || chr > AlleleKey.MAX_CHR || start > end) {
+            return alleles;
+        }
+        long lastKey = AlleleKey.lastKeyAt(chr, end);
+        Cursor<Long, String> cursor = packedKeyMap.cursor(AlleleKey.firstKeyAt(chr, start));
+        while (cursor.hasNext()) {
+            long key = cursor.next();
+            if (key > lastKey) {
+                break;
+            }
+            alleles.add(StoredAlleles.toAllele(chr, AlleleKey.pos(key), AlleleKey.ref(key), AlleleKey.alt(key), cursor.getValue()));
+        }
+        String lastSortableKey = AlleleKey.lastSortableKeyAt(chr, end);
+        Cursor<String, String> overflowCursor = map.cursor(AlleleKey.firstSortableKeyAt(chr, start));
+        while (overflowCursor.hasNext()) {
+            String key = overflowCursor.next();
+            if (key.compareTo(lastSortableKey) > 0) {
+                break;
+            }
+            alleles.add(StoredAlleles.fromKey(key, overflowCursor.getValue()));
+        }
+        Collections.sort(alleles);
+        return alleles;
+    }
+
+    @Override
+    public void close() {
+        mvStore.close();
+    }
+}
@@ -0,0 +1,133 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the error of an index built with quantised values against the same index built at full precision, by
+ * reading the alleles of both a window at a time. Each error is also checked against the documented
+ * {@link Quantisation#maxError(float)} of its property. Both readers must support {@link AlleleReader#getRegion}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class QuantisationValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuantisationValidator.class);
+
+    private static final int WINDOW_SIZE = 1_000_000;
+
+    private final AlleleReader fullPrecisionReader;
+    private final AlleleReader quantisedReader;
+
+    public QuantisationValidator(AlleleReader fullPrecisionReader, AlleleReader quantisedReader) {
+        this.fullPrecisionReader = fullPrecisionReader;
+        this.quantisedReader = quantisedReader;
+    }
+
+    /**
+     * @return the errors of each property which has any values, which are also logged.
+     * @throws IllegalStateException if the indexes hold different alleles.
+     */
+    public Map<AlleleProperty, PropertyErrors> validate() {
+        Map<AlleleProperty, PropertyErrors> errors = new EnumMap<>(AlleleProperty.class);
+        for (int chr = 0; chr <= AlleleKey.MAX_CHR; chr++) {
+            for (int start = 0; start <= AlleleKey.MAX_POS; start += WINDOW_SIZE) {
+                int end = Math.min(start + WINDOW_SIZE - 1, AlleleKey.MAX_POS);
+                List<Allele> expected = fullPrecisionReader.getRegion(chr, start, end);
+                List<Allele> actual = quantisedReader.getRegion(chr, start, end);
+                if (!expected.equals(actual)) {
+                    throw new IllegalStateException("The indexes hold different alleles on chr " + chr + " from " + start + " to " + end);
+                }
+                for (int i = 0; i < expected.size(); i++) {
+                    addErrors(expected.get(i), actual.get(i), errors);
+                }
+            }
+        }
+        errors.forEach((property, propertyErrors) -> logger.info("{} {}", property, propertyErrors));
+        return errors;
+    }
+
+    private static void addErrors(Allele expected, Allele actual, Map<AlleleProperty, PropertyErrors> errors) {
+        for (AlleleProperty property : AlleleProperty.values()) {
+            boolean hasExpected = expected.hasValue(property);
+            boolean hasActual = actual.hasValue(property);
+            if (hasExpected || hasActual) {
+                PropertyErrors propertyErrors = errors.computeIfAbsent(property, PropertyErrors::new);
+                if (hasExpected && hasActual) {
+                    propertyErrors.add(expected.getValueOrDefault(property, 0f), actual.getValueOrDefault(property, 0f));
+                } else {
+                    propertyErrors.numMissing++;
+                }
+            }
+        }
+    }
+
+    public static class PropertyErrors {
+
+        private final Quantisation quantisation;
+
+        private long numValues;
+        private long numMissing;
+        private long numOverMaxError;
+        private float maxError;
+        private float maxErrorValue;
+
+        PropertyErrors(AlleleProperty property) {
+            this.quantisation = Quantisation.of(property);
+        }
+
+        private void add(float expected, float actual) {
+            numValues++;
+            float error = Math.abs(actual - expected);
+            if (error > maxError) {
+                maxError = error;
+                maxErrorValue = expected;
+            }
+            if (error > quantisation.maxError(expected)) {
+                numOverMaxError++;
+            }
+        }
+
+        public long getNumValues() {
+            return numValues;
+        }
+
+        /**
+         * @return the number of alleles with a value in only one of the indexes.
+         */
+        public long getNumMissing() {
+            return numMissing;
+        }
+
+        /**
+         * @return the number of values with an error above the documented maximum of their quantisation.
+         */
+        public long getNumOverMaxError() {
+            return numOverMaxError;
+        }
+
+        public float getMaxError() {
+            return maxError;
+        }
+
+        /**
+         * @return the full precision value which has the largest error.
+         */
+        public float getMaxErrorValue() {
+            return maxErrorValue;
+        }
+
+        @Override
+        public String toString() {
+            return quantisation + " values=" + numValues + " maxError=" + maxError + " (of " + maxErrorValue + ") overMaxError=" + numOverMaxError + " missing=" + numMissing;
+        }
+    }
+}
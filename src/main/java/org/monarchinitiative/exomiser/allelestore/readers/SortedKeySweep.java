@@ -0,0 +1,101 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Looks up a batch of alleles in a sorted key-value store in a single forward pass. The keys of the alleles are sorted
+ * into the order of the store and each is found by stepping a cursor on from the previous key, which reads the pages
+ * of the store in order rather than at random. When a key is more than {@link #MAX_STEPS} entries on from the cursor
+ * the batch is too sparse for stepping to pay off, so the following keys are found by point lookups and a new cursor
+ * is only tried every {@link #RETRY_INTERVAL} keys. Sparse batches therefore cost about the same as looking up each
+ * allele on its own, only in sorted order.
+ *
+ * @param <K> the key type of the store
+ * @param <V> the value type of the store
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+final class SortedKeySweep<K, V> {
+
+    static final int MAX_STEPS = 8;
+    static final int RETRY_INTERVAL = 16;
+
+    private final Comparator<? super K> keyOrder;
+    private final Function<K, Iterator<Map.Entry<K, V>>> seek;
+    private final Function<K, V> get;
+
+    private Iterator<Map.Entry<K, V>> cursor;
+    // the first entry of the cursor not lower than the last key found, null once the cursor is exhausted
+    private Map.Entry<K, V> current;
+    private int pointLookups = RETRY_INTERVAL;
+
+    /**
+     * @param keyOrder the order of the keys in the store
+     * @param seek     returns a cursor over the entries of the store starting at the first key not lower than the key
+     * @param get      returns the value of the key, or null if it is not in the store
+     */
+    SortedKeySweep(Comparator<? super K> keyOrder, Function<K, Iterator<Map.Entry<K, V>>> seek, Function<K, V> get) {
+        this.keyOrder = keyOrder;
+        this.seek = seek;
+        this.get = get;
+    }
+
+    /**
+     * Finds the value of each allele, passing those found to the consumer in key order.
+     */
+    static <K, V> void lookup(Collection<Allele> alleles, Function<Allele, K> toKey, Comparator<? super K> keyOrder, Function<K, Iterator<Map.Entry<K, V>>> seek, Function<K, V> get, BiConsumer<Allele, V> foundConsumer) {
+        if (alleles.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<K, Allele>> keyedAlleles = new ArrayList<>(alleles.size());
+        for (Allele allele : alleles) {
+            keyedAlleles.add(new AbstractMap.SimpleImmutableEntry<>(toKey.apply(allele), allele));
+        }
+        keyedAlleles.sort(Map.Entry.comparingByKey(keyOrder));
+        SortedKeySweep<K, V> sweep = new SortedKeySweep<>(keyOrder, seek, get);
+        for (Map.Entry<K, Allele> keyedAllele : keyedAlleles) {
+            V value = sweep.find(keyedAllele.getKey());
+            if (value != null) {
+                foundConsumer.accept(keyedAllele.getValue(), value);
+            }
+        }
+    }
+
+    /**
+     * @param key a key not lower than any key previously found
+     * @return the value of the key or null if it is not in the store.
+     */
+    V find(K key) {
+        if (cursor != null) {
+            for (int steps = 0; current != null && steps < MAX_STEPS; steps++) {
+                int comparison = keyOrder.compare(current.getKey(), key);
+                if (comparison == 0) {
+                    return current.getValue();
+                }
+                if (comparison > 0) {
+                    return null;
+                }
+                current = cursor.hasNext() ? cursor.next() : null;
+            }
+            if (current == null) {
+                // no keys remain beyond the last one found
+                return null;
+            }
+            cursor = null;
+            pointLookups = 0;
+        }
+        if (pointLookups < RETRY_INTERVAL) {
+            pointLookups++;
+            return get.apply(key);
+        }
+        cursor = seek.apply(key);
+        current = cursor.hasNext() ? cursor.next() : null;
+        if (current != null && keyOrder.compare(current.getKey(), key) == 0) {
+            return current.getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.RsId;
+import org.monarchinitiative.exomiser.allelestore.parsers.FloatParser;
+
+/**
+ * Converts the String keys and values written by the key-value store indexers back into alleles. Keys are those of
+ * {@link Allele#generateKey()} or {@link Allele#generateSortableKey()} and values those of
+ * {@link Allele#generateInfoField()}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+final class StoredAlleles {
+
+    private StoredAlleles() {
+    }
+
+    static String key(int chr, int pos, String ref, String alt) {
+        return chr + "-" + pos + "-" + ref + "-" + alt;
+    }
+
+    static Allele fromKey(String key, String infoField) {
+        int posStart = key.indexOf('-') + 1;
+        int refStart = key.indexOf('-', posStart) + 1;
+        int altStart = key.indexOf('-', refStart) + 1;
+        int chr = Integer.parseInt(key.substring(0, posStart - 1));
+        int pos = Integer.parseInt(key.substring(posStart, refStart - 1));
+        return toAllele(chr, pos, key.substring(refStart, altStart - 1), key.substring(altStart), infoField);
+    }
+
+    static Allele toAllele(Allele allele, String infoField) {
+        return toAllele(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt(), infoField);
+    }
+
+    static Allele toAllele(int chr, int pos, String ref, String alt, String infoField) {
+        Allele allele = new Allele(chr, pos, ref, alt);
+        for (int start = 0; start < infoField.length(); ) {
+            int end = infoField.indexOf(';', start);
+            if (end < 0) {
+                end = infoField.length();
+            }
+            int equals = infoField.indexOf('=', start);
+            if (equals - start == 2 && infoField.startsWith("RS", start)) {
+                allele.setRsNumber(RsId.parse(infoField, equals + 1, end));
+            } else {
+                AlleleProperty property = AlleleProperty.valueOf(infoField.substring(start, equals));
+                allele.addValue(property, FloatParser.parseFloat(infoField, equals + 1, end));
+            }
+            start = end + 1;
+        }
+        return allele;
+    }
+}
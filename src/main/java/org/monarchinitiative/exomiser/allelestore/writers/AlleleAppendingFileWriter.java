@@ -2,31 +2,43 @@ package org.monarchinitiative.exomiser.allelestore.writers;
 
 import org.jetbrains.annotations.NotNull;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
-import org.monarchinitiative.exomiser.allelestore.parsers.AlleleParser;
-import org.monarchinitiative.exomiser.allelestore.parsers.ExomiserAlleleParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.BiFunction;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
  * Creates a set of 25 temp_chr_N.allele files where N is the chromosome numbered from 1-25. It will append
- * any {@link Allele} added via the {@link #write(Allele)} method to the corresponding chromosome temp file.
+ * any {@link Allele} added via the {@link #write(Allele)} method to the corresponding chromosome temp file. The temp
+ * files can also be written in the more compact {@link TempFileFormat#BINARY} format, in which case they are named
+ * temp_chr_N.allele.bin, or with quantised values in the {@link TempFileFormat#QUANTISED} format as
+ * temp_chr_N.allele.qbin.
  * <p>
  * When all the resources have been parsed the {@link #mergeToFile(String)} method should be called which will produce a
  * VCF formatted file (without the header) of sorted, non-redundant alleles.
  * <p>
- * Currently these {@link Allele} are all held in RAM. Chromosome 1 contains ~20 million alleles when the ESP, ExAC,
- * dbSNP and dbNSFP resources are combined, this requires a little under 10GB RAM.
+ * The {@link #write(Allele)} method is thread-safe, writes to the same chromosome file are serialised so that the
+ * lines from different threads are never interleaved.
+ * <p>
+ * Each chromosome file has its own write buffer which is only written to disk when full or when {@link #flush()} or
+ * {@link #close()} are called. dbSNP alone contains ~150 million alleles, so flushing after every allele would
+ * otherwise cost one write system call per allele.
+ * <p>
+ * By default the {@link Allele} of each chromosome are all held in RAM while they are merged. Chromosome 1 contains ~20
+ * million alleles when the ESP, ExAC, dbSNP and dbNSFP resources are combined, this requires a little under 10GB RAM.
+ * Use {@link #mergeToFile(String, AlleleMerger)} with an {@link ExternalSortAlleleMerger} to merge using a fixed
+ * memory budget.
+ * <p>
+ * As the sources are sorted by position, the chromosome files can instead be written as a series of sorted runs, see
+ * {@link SortedRunRecordWriter}, by giving a sort window size. These are merged in a single streaming pass which holds
+ * almost nothing in RAM, the given {@link AlleleMerger} is only used for files with too many runs.
  *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
@@ -35,27 +47,64 @@ public class AlleleAppendingFileWriter implements AlleleWriter {
     private static final Logger logger = LoggerFactory.getLogger(AlleleAppendingFileWriter.class);
     //NUM_CHROMOSOMES is set to 25 (1-22 + X, Y, M) + 1 so that the zero-based for loops create a 1-based chr file.
     private static final int NUM_CHROMOSOMES = 25 + 1;
+    // 25 chromosome files, so ~25MB of buffers in total
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    // far more than the alleles of a few VCF lines, which is all minimisation and multi-allelic lines move around
+    public static final int DEFAULT_SORT_WINDOW_SIZE = 10_000;
 
     private final Path workingDir;
-    private final Map<Integer, BufferedWriter> bufferedWriterMap;
+    private final int bufferSize;
+    private final TempFileFormat tempFileFormat;
+    private final int sortWindowSize;
+    private final Map<Integer, AlleleRecordWriter> recordWriterMap;
     private final Map<Integer, Path> chromosomePaths = new TreeMap<>();
 
-    private long count;
+    private final AtomicLong count = new AtomicLong();
 
     public AlleleAppendingFileWriter(Path workingDir) {
+        this(workingDir, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param workingDir directory in which the chromosome temp files and the merged file are written
+     * @param bufferSize size in bytes of the write buffer of each chromosome file
+     */
+    public AlleleAppendingFileWriter(Path workingDir, int bufferSize) {
+        this(workingDir, bufferSize, TempFileFormat.TEXT);
+    }
+
+    /**
+     * @param workingDir     directory in which the chromosome temp files and the merged file are written
+     * @param bufferSize     size in bytes of the write buffer of each chromosome file
+     * @param tempFileFormat format of the chromosome temp files. The merged file is always VCF formatted.
+     */
+    public AlleleAppendingFileWriter(Path workingDir, int bufferSize, TempFileFormat tempFileFormat) {
+        this(workingDir, bufferSize, tempFileFormat, 0);
+    }
+
+    /**
+     * @param workingDir     directory in which the chromosome temp files and the merged file are written
+     * @param bufferSize     size in bytes of the write buffer of each chromosome file
+     * @param tempFileFormat format of the chromosome temp files. The merged file is always VCF formatted.
+     * @param sortWindowSize number of alleles of each chromosome held back to write the files as sorted runs, or 0 to
+     *                       write the alleles in the order they are received.
+     */
+    public AlleleAppendingFileWriter(Path workingDir, int bufferSize, TempFileFormat tempFileFormat, int sortWindowSize) {
         this.workingDir = workingDir;
-        this.bufferedWriterMap = prepareWriters();
+        this.bufferSize = bufferSize;
+        this.tempFileFormat = tempFileFormat;
+        this.sortWindowSize = sortWindowSize;
+        this.recordWriterMap = prepareWriters();
     }
 
-    private Map<Integer, BufferedWriter> prepareWriters() {
-        Map<Integer, BufferedWriter> writers = new HashMap<>();
+    private Map<Integer, AlleleRecordWriter> prepareWriters() {
+        Map<Integer, AlleleRecordWriter> writers = new HashMap<>();
         for (int i = 1; i < 26; i++) {
-            Path path = workingDir.resolve("temp_chr" + i + ".allele");
+            Path path = workingDir.resolve("temp_chr" + i + tempFileFormat.getExtension());
             chromosomePaths.put(i, path);
             try {
                 if (path.toFile().createNewFile()) {
-                    BufferedWriter bufferedWriter = Files.newBufferedWriter(path, StandardOpenOption.APPEND);
-                    writers.put(i, bufferedWriter);
+                    writers.put(i, newRecordWriter(path));
                 }
             } catch (IOException e) {
                 logger.error("{}", e);
@@ -64,20 +113,28 @@ public class AlleleAppendingFileWriter implements AlleleWriter {
         return writers;
     }
 
+    private AlleleRecordWriter newRecordWriter(Path path) throws IOException {
+        AlleleRecordWriter recordWriter = tempFileFormat.newWriter(path, bufferSize);
+        if (sortWindowSize > 0) {
+            return new SortedRunRecordWriter(path, recordWriter, sortWindowSize);
+        }
+        return recordWriter;
+    }
+
     @Override
     public void write(Allele allele) {
-        BufferedWriter chromosomeFile = bufferedWriterMap.get(allele.getChr());
-        String alleleString = toLine(allele);
+        AlleleRecordWriter chromosomeFile = recordWriterMap.get(allele.getChr());
         try {
-            chromosomeFile.write(alleleString);
-            chromosomeFile.flush();
-            count++;
+            synchronized (chromosomeFile) {
+                chromosomeFile.write(allele);
+            }
+            count.incrementAndGet();
         } catch (Exception e) {
             logger.error("{}", e);
         }
     }
 
-    private String toLine(Allele allele) {
+    static String toLine(Allele allele) {
         StringJoiner stringJoiner = new StringJoiner("\t");
         stringJoiner.add(Integer.toString(allele.getChr()));
         stringJoiner.add(Integer.toString(allele.getPos()));
@@ -91,7 +148,7 @@ public class AlleleAppendingFileWriter implements AlleleWriter {
     }
 
     @NotNull
-    private String makeInfoFields(Allele allele) {
+    private static String makeInfoFields(Allele allele) {
         String infoString = allele.generateInfoField();
         if (infoString.isEmpty()) {
             return ".";
@@ -100,16 +157,85 @@ public class AlleleAppendingFileWriter implements AlleleWriter {
     }
 
     public long count() {
-        return count;
+        return count.get();
+    }
+
+    @Override
+    public void flush() {
+        for (AlleleRecordWriter writer : recordWriterMap.values()) {
+            try {
+                synchronized (writer) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                logger.error("{}", e);
+            }
+        }
+    }
+
+    /**
+     * Closes the chromosome temp files without merging them. This is done automatically by the mergeToFile methods.
+     */
+    public void close() {
+        closeWriters(recordWriterMap.values());
     }
 
     public Path mergeToFile(String filename) {
-        closeWriters(bufferedWriterMap.values());
-        return mergeAllelesByChromosome(filename, chromosomePaths);
+        return mergeToFile(filename, new InMemoryAlleleMerger());
     }
 
-    private void closeWriters(Collection<BufferedWriter> writers) {
-        for (BufferedWriter writer : writers) {
+    /**
+     * @param filename     name of the merged file to be written to the working directory
+     * @param alleleMerger used to merge the alleles of each chromosome
+     * @return the path of the merged file
+     */
+    public Path mergeToFile(String filename, AlleleMerger alleleMerger) {
+        closeWriters(recordWriterMap.values());
+        return mergeAllelesByChromosome(filename, chromosomePaths, withSortedRuns(alleleMerger));
+    }
+
+    /**
+     * @return a merger streaming the sorted runs of the files, if they were written as sorted runs.
+     */
+    private AlleleMerger withSortedRuns(AlleleMerger alleleMerger) {
+        if (sortWindowSize <= 0) {
+            return alleleMerger;
+        }
+        Map<Path, List<SortedRunRecordWriter.SortedRun>> sortedRuns = new HashMap<>();
+        for (Map.Entry<Integer, AlleleRecordWriter> entry : recordWriterMap.entrySet()) {
+            SortedRunRecordWriter sortedRunRecordWriter = (SortedRunRecordWriter) entry.getValue();
+            sortedRuns.put(chromosomePaths.get(entry.getKey()), sortedRunRecordWriter.getRuns());
+        }
+        return new SortedRunAlleleMerger(sortedRuns, alleleMerger);
+    }
+
+    /**
+     * Merges up to numThreads chromosomes at once, largest first. A chromosome is only started once its estimated heap
+     * usage (see {@link AlleleMerger#estimateHeapUsage(Path)}) fits into what is left of the memory budget.
+     *
+     * @param filename     name of the merged file to be written to the working directory
+     * @param alleleMerger used to merge the alleles of each chromosome
+     * @param numThreads   maximum number of chromosomes to merge at once
+     * @param memoryBudget number of bytes of heap which can be used by the chromosomes being merged
+     * @return the path of the merged file
+     */
+    public Path mergeToFile(String filename, AlleleMerger alleleMerger, int numThreads, long memoryBudget) {
+        if (numThreads <= 1) {
+            return mergeToFile(filename, alleleMerger);
+        }
+        closeWriters(recordWriterMap.values());
+        Path merged = workingDir.resolve(filename);
+        try {
+            ParallelChromosomeMerger parallelChromosomeMerger = new ParallelChromosomeMerger(withSortedRuns(alleleMerger), numThreads, memoryBudget);
+            parallelChromosomeMerger.mergeToFile(chromosomePaths.values(), merged);
+        } catch (IOException ex) {
+            logger.error("Could not write file {}", merged, ex);
+        }
+        return merged;
+    }
+
+    private void closeWriters(Collection<AlleleRecordWriter> writers) {
+        for (AlleleRecordWriter writer : writers) {
             try {
                 writer.close();
             } catch (IOException e) {
@@ -119,15 +245,17 @@ public class AlleleAppendingFileWriter implements AlleleWriter {
     }
 
     //merge alleles in each chromosome
-    private Path mergeAllelesByChromosome(String outFile, Map<Integer, Path> chromosomePaths) {
+    private Path mergeAllelesByChromosome(String outFile, Map<Integer, Path> chromosomePaths, AlleleMerger alleleMerger) {
         Path merged = workingDir.resolve(outFile);
         try (BufferedWriter bufferedWriter = Files.newBufferedWriter(merged, StandardOpenOption.CREATE)) {
             for (int i = 1; i < NUM_CHROMOSOMES; i++) {
-                logger.info("Reading chromosome {}", i);
+                logger.info("Merging chromosome {} to {}", i, merged);
                 Path chr = chromosomePaths.get(i);
-                Map<String, Allele> alleleStore = readAndMergeAlleles(chr);
-                logger.info("Writing merged chromosome {} to {}", i, merged);
-                alleleStore.values().stream().sorted().forEach(writeAlleleLine(bufferedWriter));
+                try {
+                    alleleMerger.merge(chr, writeAlleleLine(bufferedWriter));
+                } catch (IOException ex) {
+                    logger.error("Could not merge chromosome file {}", chr, ex);
+                }
             }
         } catch (IOException ex) {
             logger.error("Could not write file {}", merged, ex);
@@ -135,47 +263,8 @@ public class AlleleAppendingFileWriter implements AlleleWriter {
         return merged;
     }
 
-    private Map<String, Allele> readAndMergeAlleles(Path chr) {
-        Map<String, Allele> alleleStore = new ConcurrentHashMap<>();
-        AlleleParser alleleParser = new ExomiserAlleleParser();
-        String line = null;
-        long alleleCount = 0;
-        try (BufferedReader br = Files.newBufferedReader(chr)) {
-            while ((line = br.readLine()) != null) {
-                List<Allele> alleles = alleleParser.parseLine(line);
-                for (Allele allele : alleles) {
-                    alleleCount++;
-                    alleleStore.merge(allele.generateKey(), allele, mergeAlleles());
-                    if (alleleCount % 1000000 == 0) {
-                        logger.info("Read and merged {} into {} alleles", alleleCount, alleleStore.size());
-                    }
-                }
-            }
-        } catch (Exception ex) {
-            logger.error("Could not parse line {}", line, ex);
-        }
-        logger.info("Merged {} - read and merged {} into {} alleles", chr.getFileName(), alleleCount, alleleStore.size());
-        return alleleStore;
-    }
-
-    private BiFunction<? super Allele, ? super Allele, ? extends Allele> mergeAlleles() {
-        //TODO: test this works in cases where latest = null, original = null and latest and original need merging
-        return (latest, original) -> {
-            if (original == null) {
-                logger.info("Added new: {}", latest);
-                return latest;
-            } else {
-                if (original.getRsId().equals(".")) {
-                    original.setRsId(latest.getRsId());
-                }
-                original.getValues().putAll(latest.getValues());
-            }
-            return original;
-        };
-    }
-
     @NotNull
-    private Consumer<Allele> writeAlleleLine(BufferedWriter bufferedWriter) {
+    static Consumer<Allele> writeAlleleLine(BufferedWriter bufferedWriter) {
         return allele -> {
             try {
                 bufferedWriter.write(toLine(allele));
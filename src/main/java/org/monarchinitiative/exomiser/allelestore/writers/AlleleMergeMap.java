@@ -0,0 +1,56 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges equal alleles using {@link AlleleMerger#mergeAllele(Allele, Allele)}. Alleles with an exact
+ * {@link AlleleKey} are keyed by it, so the great majority of alleles never need a String key. The few remaining alleles
+ * with a hashed key are keyed by {@link Allele#generateKey()} so that hash collisions cannot merge different alleles.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class AlleleMergeMap {
+
+    private final Map<Long, Allele> exactKeyAlleles = new HashMap<>();
+    private final Map<String, Allele> overflowAlleles = new HashMap<>();
+
+    void merge(Allele allele) {
+        long key = allele.generatePackedKey();
+        if (AlleleKey.isExact(key)) {
+            exactKeyAlleles.merge(key, allele, AlleleMerger::mergeAllele);
+        } else {
+            overflowAlleles.merge(allele.generateKey(), allele, AlleleMerger::mergeAllele);
+        }
+    }
+
+    int size() {
+        return exactKeyAlleles.size() + overflowAlleles.size();
+    }
+
+    boolean isEmpty() {
+        return exactKeyAlleles.isEmpty() && overflowAlleles.isEmpty();
+    }
+
+    /**
+     * @return the merged alleles in their natural order.
+     */
+    List<Allele> sortedAlleles() {
+        List<Allele> alleles = new ArrayList<>(size());
+        alleles.addAll(exactKeyAlleles.values());
+        alleles.addAll(overflowAlleles.values());
+        Collections.sort(alleles);
+        return alleles;
+    }
+
+    void clear() {
+        exactKeyAlleles.clear();
+        overflowAlleles.clear();
+    }
+}
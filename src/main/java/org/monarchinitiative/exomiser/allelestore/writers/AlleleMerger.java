@@ -0,0 +1,53 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Strategy for merging the alleles of a single chromosome temp file written by the {@link AlleleAppendingFileWriter}.
+ * Implementations read all the alleles from the file, combine those with the same chr, pos, ref and alt using
+ * {@link #mergeAllele(Allele, Allele)} and pass the results to a consumer in their natural sort order.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public interface AlleleMerger {
+
+    /**
+     * Rough heap usage of a parsed {@link Allele} together with its key in the merge map. ~20 million alleles require
+     * a little under 10GB RAM.
+     */
+    long ESTIMATED_BYTES_PER_ALLELE = 500;
+
+    void merge(Path chromosomeFile, Consumer<Allele> sortedAlleleConsumer) throws IOException;
+
+    /**
+     * @param chromosomeFile the chromosome temp file to be merged
+     * @return the approximate number of bytes of heap required to merge the file
+     */
+    default long estimateHeapUsage(Path chromosomeFile) throws IOException {
+        long numRecords = Files.size(chromosomeFile) / TempFileFormat.of(chromosomeFile).getTypicalRecordSize();
+        return numRecords * ESTIMATED_BYTES_PER_ALLELE;
+    }
+
+    /**
+     * Merges an allele read from a temp file into an equal allele which was read from an earlier line. The rsId of
+     * the incoming allele replaces the existing one, unless it is missing. Values already present in the existing
+     * allele are kept, the incoming allele only adds values for the missing {@link AlleleProperty}.
+     *
+     * @param existing the allele read first
+     * @param incoming an equal allele read after the existing allele
+     * @return the merged allele
+     */
+    static Allele mergeAllele(Allele existing, Allele incoming) {
+        if (incoming.hasRsId()) {
+            existing.setRsNumber(incoming.getRsNumber());
+        }
+        existing.addMissingValues(incoming);
+        return existing;
+    }
+}
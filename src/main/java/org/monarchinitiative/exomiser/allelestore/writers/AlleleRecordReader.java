@@ -0,0 +1,20 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads back the {@link Allele} written by an {@link AlleleRecordWriter}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+interface AlleleRecordReader extends Closeable {
+
+    /**
+     * @return the next allele or null if the end of the file has been reached.
+     */
+    Allele read() throws IOException;
+
+}
@@ -0,0 +1,19 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes {@link Allele} to a chromosome temp file or sorted run file in one of the {@link TempFileFormat}.
+ * Implementations are not thread-safe.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+interface AlleleRecordWriter extends Closeable, Flushable {
+
+    void write(Allele allele) throws IOException;
+
+}
@@ -0,0 +1,101 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * k-way merge of sorted runs of alleles, used by the {@link ExternalSortAlleleMerger} and the
+ * {@link SortedRunAlleleMerger}. Only the current allele of each run is held in RAM.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+final class AlleleRunMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlleleRunMerger.class);
+
+    private AlleleRunMerger() {
+    }
+
+    /**
+     * Merges the runs, each of which must be in natural sort order, into a single sorted stream. Equal alleles are
+     * combined using {@link AlleleMerger#mergeAllele(Allele, Allele)} in the order of the runs and then the order
+     * within each run, so the runs should be listed in the order they were written. The readers are closed once the
+     * runs have been merged.
+     */
+    static void mergeSortedRuns(List<AlleleRecordReader> sortedRuns, Consumer<Allele> sortedAlleleConsumer) throws IOException {
+        try {
+            PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, sortedRuns.size()));
+            for (int i = 0; i < sortedRuns.size(); i++) {
+                RunReader runReader = new RunReader(i, sortedRuns.get(i));
+                if (runReader.advance()) {
+                    queue.add(runReader);
+                }
+            }
+            Allele merged = null;
+            while (!queue.isEmpty()) {
+                RunReader runReader = queue.poll();
+                Allele allele = runReader.current;
+                // equal alleles are always returned in run order which is the order they were read in
+                if (merged == null) {
+                    merged = allele;
+                } else if (merged.equals(allele)) {
+                    merged = AlleleMerger.mergeAllele(merged, allele);
+                } else {
+                    sortedAlleleConsumer.accept(merged);
+                    merged = allele;
+                }
+                if (runReader.advance()) {
+                    queue.add(runReader);
+                }
+            }
+            if (merged != null) {
+                sortedAlleleConsumer.accept(merged);
+            }
+        } finally {
+            for (AlleleRecordReader reader : sortedRuns) {
+                close(reader);
+            }
+        }
+    }
+
+    private static void close(AlleleRecordReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            logger.error("{}", e);
+        }
+    }
+
+    private static class RunReader implements Comparable<RunReader> {
+
+        private final int runNumber;
+        private final AlleleRecordReader reader;
+
+        private Allele current;
+
+        RunReader(int runNumber, AlleleRecordReader reader) {
+            this.runNumber = runNumber;
+            this.reader = reader;
+        }
+
+        boolean advance() throws IOException {
+            current = reader.read();
+            return current != null;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int result = current.compareTo(other.current);
+            if (result == 0) {
+                return Integer.compare(runNumber, other.runNumber);
+            }
+            return result;
+        }
+    }
+}
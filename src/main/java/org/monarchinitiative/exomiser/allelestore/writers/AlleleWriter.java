@@ -3,6 +3,9 @@ package org.monarchinitiative.exomiser.allelestore.writers;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
 
 /**
+ * Implementations used with {@link org.monarchinitiative.exomiser.allelestore.AlleleArchiveProcessor#process(AlleleWriter, int)}
+ * will be called from several threads and must be thread-safe.
+ *
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public interface AlleleWriter {
@@ -11,4 +14,10 @@ public interface AlleleWriter {
 
     public long count();
 
+    /**
+     * Writes out any buffered alleles. Called once an archive has been processed.
+     */
+    public default void flush() {
+    }
+
 }
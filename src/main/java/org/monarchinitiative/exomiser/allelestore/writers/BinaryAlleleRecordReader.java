@@ -0,0 +1,79 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the binary records written by the {@link BinaryAlleleRecordWriter}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class BinaryAlleleRecordReader implements AlleleRecordReader {
+
+    private static final AlleleProperty[] PROPERTIES = AlleleProperty.values();
+
+    private final DataInputStream dataInputStream;
+    private final boolean quantised;
+
+    BinaryAlleleRecordReader(InputStream inputStream) {
+        this(inputStream, false);
+    }
+
+    BinaryAlleleRecordReader(InputStream inputStream, boolean quantised) {
+        this.dataInputStream = new DataInputStream(new BufferedInputStream(inputStream, 64 * 1024));
+        this.quantised = quantised;
+    }
+
+    @Override
+    public Allele read() throws IOException {
+        int chr = dataInputStream.read();
+        if (chr == -1) {
+            return null;
+        }
+        try {
+            int pos = dataInputStream.readInt();
+            int propertyMask = dataInputStream.readUnsignedShort();
+            long rsId = readVarLong();
+            String ref = readBases();
+            String alt = readBases();
+            Allele allele = new Allele(chr, pos, ref, alt);
+            allele.setRsNumber(rsId);
+            for (int i = 0; i < PROPERTIES.length; i++) {
+                if ((propertyMask & (1 << i)) != 0) {
+                    float value = quantised ? Quantisation.of(PROPERTIES[i]).decode(dataInputStream.readShort()) : dataInputStream.readFloat();
+                    allele.addValue(PROPERTIES[i], value);
+                }
+            }
+            return allele;
+        } catch (EOFException e) {
+            throw new IOException("Truncated allele record", e);
+        }
+    }
+
+    private String readBases() throws IOException {
+        byte[] bytes = new byte[(int) readVarLong()];
+        dataInputStream.readFully(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = dataInputStream.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataInputStream.close();
+    }
+}
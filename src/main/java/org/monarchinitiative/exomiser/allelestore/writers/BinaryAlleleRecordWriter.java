@@ -0,0 +1,89 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes alleles as compact binary records. Each record consists of:
+ * <pre>
+ * byte     chr
+ * int      pos
+ * short    bitmask of the {@link AlleleProperty} ordinals which have a value
+ * varint   rsId number without the 'rs' prefix, 0 if missing
+ * varint   ref length followed by the ref bytes
+ * varint   alt length followed by the alt bytes
+ * float    one value for each bit set in the bitmask, in ordinal order
+ * </pre>
+ * A typical dbSNP SNP with a single frequency takes ~20 bytes rather than ~50 bytes as a VCF line. Quantised records
+ * hold each value as the short of its {@link Quantisation} rather than a float.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class BinaryAlleleRecordWriter implements AlleleRecordWriter {
+
+    private static final AlleleProperty[] PROPERTIES = AlleleProperty.values();
+
+    private final DataOutputStream dataOutputStream;
+    private final boolean quantised;
+
+    BinaryAlleleRecordWriter(OutputStream outputStream, int bufferSize) {
+        this(outputStream, bufferSize, false);
+    }
+
+    BinaryAlleleRecordWriter(OutputStream outputStream, int bufferSize, boolean quantised) {
+        this.dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream, bufferSize));
+        this.quantised = quantised;
+    }
+
+    @Override
+    public void write(Allele allele) throws IOException {
+        int propertyMask = allele.getValueMask();
+        dataOutputStream.writeByte(allele.getChr());
+        dataOutputStream.writeInt(allele.getPos());
+        dataOutputStream.writeShort(propertyMask);
+        writeVarLong(allele.getRsNumber());
+        writeBases(allele.getRef());
+        writeBases(allele.getAlt());
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            if ((propertyMask & (1 << i)) != 0) {
+                float value = allele.getValueOrDefault(PROPERTIES[i], 0f);
+                if (quantised) {
+                    dataOutputStream.writeShort(Quantisation.of(PROPERTIES[i]).encode(value));
+                } else {
+                    dataOutputStream.writeFloat(value);
+                }
+            }
+        }
+    }
+
+    private void writeBases(String bases) throws IOException {
+        byte[] bytes = bases.getBytes(StandardCharsets.ISO_8859_1);
+        writeVarLong(bytes.length);
+        dataOutputStream.write(bytes);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            dataOutputStream.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dataOutputStream.writeByte((int) value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        dataOutputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataOutputStream.close();
+    }
+}
@@ -0,0 +1,133 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Merges the alleles of a chromosome using a bounded amount of RAM. The chromosome file is read in chunks of at most
+ * maxAllelesPerRun distinct alleles, each chunk is merged, sorted and written to a temporary run file. The run files
+ * are then k-way merged by the {@link AlleleRunMerger}, equal alleles being combined in the order they were read from the chromosome file, so the
+ * result is exactly the same as the {@link InMemoryAlleleMerger}.
+ * <p>
+ * Chromosomes small enough to fit into a single run are never written to disk.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class ExternalSortAlleleMerger implements AlleleMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalSortAlleleMerger.class);
+
+    // the runs are only ever read by this class, so always use the cheapest format to write and read
+    private static final TempFileFormat RUN_FORMAT = TempFileFormat.BINARY;
+    private static final int RUN_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path runDir;
+    private final int maxAllelesPerRun;
+
+    /**
+     * @param runDir           directory in which the temporary sorted run files are written
+     * @param maxAllelesPerRun maximum number of distinct alleles held in RAM at once
+     */
+    public ExternalSortAlleleMerger(Path runDir, int maxAllelesPerRun) {
+        if (maxAllelesPerRun < 1) {
+            throw new IllegalArgumentException("maxAllelesPerRun must be greater than 0");
+        }
+        this.runDir = runDir;
+        this.maxAllelesPerRun = maxAllelesPerRun;
+    }
+
+    /**
+     * @param runDir       directory in which the temporary sorted run files are written
+     * @param memoryBudget approximate number of bytes of heap to use for each run
+     */
+    public static ExternalSortAlleleMerger withMemoryBudget(Path runDir, long memoryBudget) {
+        long maxAlleles = Math.max(1, memoryBudget / ESTIMATED_BYTES_PER_ALLELE);
+        return new ExternalSortAlleleMerger(runDir, (int) Math.min(Integer.MAX_VALUE, maxAlleles));
+    }
+
+    public int getMaxAllelesPerRun() {
+        return maxAllelesPerRun;
+    }
+
+    @Override
+    public long estimateHeapUsage(Path chromosomeFile) throws IOException {
+        return Math.min(AlleleMerger.super.estimateHeapUsage(chromosomeFile), maxAllelesPerRun * ESTIMATED_BYTES_PER_ALLELE);
+    }
+
+    @Override
+    public void merge(Path chromosomeFile, Consumer<Allele> sortedAlleleConsumer) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try {
+            AlleleMergeMap chunk = new AlleleMergeMap();
+            long alleleCount = 0;
+            try (AlleleRecordReader alleleRecordReader = TempFileFormat.of(chromosomeFile).newReader(chromosomeFile)) {
+                Allele allele;
+                while ((allele = alleleRecordReader.read()) != null) {
+                    alleleCount++;
+                    chunk.merge(allele);
+                    if (chunk.size() >= maxAllelesPerRun) {
+                        runs.add(writeRun(chromosomeFile, runs.size(), chunk.sortedAlleles()));
+                        chunk.clear();
+                    }
+                }
+            }
+            logger.info("Read {} alleles from {}", alleleCount, chromosomeFile.getFileName());
+            if (runs.isEmpty()) {
+                chunk.sortedAlleles().forEach(sortedAlleleConsumer);
+                return;
+            }
+            if (!chunk.isEmpty()) {
+                runs.add(writeRun(chromosomeFile, runs.size(), chunk.sortedAlleles()));
+            }
+            // release the last chunk before the runs are merged
+            chunk = null;
+            logger.info("Merging {} sorted runs of {}", runs.size(), chromosomeFile.getFileName());
+            mergeRuns(runs, sortedAlleleConsumer);
+        } finally {
+            deleteRuns(runs);
+        }
+    }
+
+    private Path writeRun(Path chromosomeFile, int runNumber, List<Allele> sortedAlleles) throws IOException {
+        Path run = runDir.resolve(chromosomeFile.getFileName() + ".run" + runNumber + RUN_FORMAT.getExtension());
+        logger.debug("Writing {} alleles to sorted run {}", sortedAlleles.size(), run);
+        try (AlleleRecordWriter alleleRecordWriter = RUN_FORMAT.newWriter(run, RUN_BUFFER_SIZE)) {
+            for (Allele allele : sortedAlleles) {
+                alleleRecordWriter.write(allele);
+            }
+        }
+        return run;
+    }
+
+    private void mergeRuns(List<Path> runs, Consumer<Allele> sortedAlleleConsumer) throws IOException {
+        List<AlleleRecordReader> runReaders = new ArrayList<>(runs.size());
+        try {
+            for (Path run : runs) {
+                runReaders.add(RUN_FORMAT.newReader(run));
+            }
+        } catch (IOException e) {
+            for (AlleleRecordReader runReader : runReaders) {
+                runReader.close();
+            }
+            throw e;
+        }
+        AlleleRunMerger.mergeSortedRuns(runReaders, sortedAlleleConsumer);
+    }
+
+    private void deleteRuns(List<Path> runs) {
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                logger.error("Unable to delete run file {}", run, e);
+            }
+        }
+    }
+}
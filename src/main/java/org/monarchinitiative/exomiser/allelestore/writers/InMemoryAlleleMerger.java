@@ -0,0 +1,44 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Merges the alleles of a chromosome by holding them all in RAM. Chromosome 1 contains ~20 million alleles when the
+ * ESP, ExAC, dbSNP and dbNSFP resources are combined, this requires a little under 10GB RAM.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class InMemoryAlleleMerger implements AlleleMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryAlleleMerger.class);
+
+    @Override
+    public void merge(Path chromosomeFile, Consumer<Allele> sortedAlleleConsumer) {
+        AlleleMergeMap alleleStore = readAndMergeAlleles(chromosomeFile);
+        alleleStore.sortedAlleles().forEach(sortedAlleleConsumer);
+    }
+
+    private AlleleMergeMap readAndMergeAlleles(Path chr) {
+        AlleleMergeMap alleleStore = new AlleleMergeMap();
+        long alleleCount = 0;
+        try (AlleleRecordReader alleleRecordReader = TempFileFormat.of(chr).newReader(chr)) {
+            Allele allele;
+            while ((allele = alleleRecordReader.read()) != null) {
+                alleleCount++;
+                alleleStore.merge(allele);
+                if (alleleCount % 1000000 == 0) {
+                    logger.info("Read and merged {} into {} alleles", alleleCount, alleleStore.size());
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Could not read {}", chr, ex);
+        }
+        logger.info("Merged {} - read and merged {} into {} alleles", chr.getFileName(), alleleCount, alleleStore.size());
+        return alleleStore;
+    }
+}
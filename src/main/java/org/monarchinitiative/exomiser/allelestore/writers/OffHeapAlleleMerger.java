@@ -0,0 +1,108 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Merges the alleles of a chromosome in an {@link OffHeapAlleleTable}, so the tens of millions of alleles of the
+ * largest chromosomes are held outside the Java heap and merging is not slowed down by garbage collection. Only the
+ * sorted keys of the table and the few alleles without an exact {@link AlleleKey} are held on the heap. The result is
+ * exactly the same as the {@link InMemoryAlleleMerger}.
+ * <p>
+ * The table is held in direct memory, which is limited by -XX:MaxDirectMemorySize, by default the maximum heap size.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class OffHeapAlleleMerger implements AlleleMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapAlleleMerger.class);
+
+    // a slot of the table at its maximum load and the sorted key
+    private static final long BYTES_PER_ALLELE = (long) (OffHeapAlleleTable.SLOT_BYTES / OffHeapAlleleTable.MAX_LOAD) + Long.BYTES;
+
+    @Override
+    public void merge(Path chromosomeFile, Consumer<Allele> sortedAlleleConsumer) throws IOException {
+        OffHeapAlleleTable table = new OffHeapAlleleTable(estimateNumRecords(chromosomeFile));
+        AlleleMergeMap hashedKeyAlleles = new AlleleMergeMap();
+        long alleleCount = 0;
+        try (AlleleRecordReader alleleRecordReader = TempFileFormat.of(chromosomeFile).newReader(chromosomeFile)) {
+            Allele allele;
+            while ((allele = alleleRecordReader.read()) != null) {
+                alleleCount++;
+                long key = allele.generatePackedKey();
+                if (AlleleKey.isExact(key)) {
+                    table.merge(key, allele);
+                } else {
+                    hashedKeyAlleles.merge(allele);
+                }
+                if (alleleCount % 1000000 == 0) {
+                    logger.info("Read and merged {} into {} alleles", alleleCount, table.size() + hashedKeyAlleles.size());
+                }
+            }
+        }
+        logger.info("Merged {} - read and merged {} into {} alleles", chromosomeFile.getFileName(), alleleCount, table.size() + hashedKeyAlleles.size());
+        writeSortedAlleles(table, hashedKeyAlleles.sortedAlleles(), sortedAlleleConsumer);
+    }
+
+    /**
+     * The keys sort by chr and pos, so the alleles of the table are read back a position at a time. The alleles at
+     * each position, including those with a hashed key, are then sorted into their natural order.
+     */
+    private void writeSortedAlleles(OffHeapAlleleTable table, List<Allele> sortedHashedKeyAlleles, Consumer<Allele> sortedAlleleConsumer) {
+        long[] keys = table.sortedKeys();
+        List<Allele> positionAlleles = new ArrayList<>();
+        int hashedIndex = 0;
+        int keyIndex = 0;
+        while (keyIndex < keys.length) {
+            int chr = AlleleKey.chr(keys[keyIndex]);
+            int pos = AlleleKey.pos(keys[keyIndex]);
+            while (hashedIndex < sortedHashedKeyAlleles.size() && isBefore(sortedHashedKeyAlleles.get(hashedIndex), chr, pos)) {
+                sortedAlleleConsumer.accept(sortedHashedKeyAlleles.get(hashedIndex++));
+            }
+            positionAlleles.clear();
+            while (keyIndex < keys.length && AlleleKey.chr(keys[keyIndex]) == chr && AlleleKey.pos(keys[keyIndex]) == pos) {
+                positionAlleles.add(table.get(keys[keyIndex++]));
+            }
+            while (hashedIndex < sortedHashedKeyAlleles.size() && isAt(sortedHashedKeyAlleles.get(hashedIndex), chr, pos)) {
+                positionAlleles.add(sortedHashedKeyAlleles.get(hashedIndex++));
+            }
+            if (positionAlleles.size() > 1) {
+                Collections.sort(positionAlleles);
+            }
+            positionAlleles.forEach(sortedAlleleConsumer);
+        }
+        while (hashedIndex < sortedHashedKeyAlleles.size()) {
+            sortedAlleleConsumer.accept(sortedHashedKeyAlleles.get(hashedIndex++));
+        }
+    }
+
+    private static boolean isBefore(Allele allele, int chr, int pos) {
+        return allele.getChr() < chr || allele.getChr() == chr && allele.getPos() < pos;
+    }
+
+    private static boolean isAt(Allele allele, int chr, int pos) {
+        return allele.getChr() == chr && allele.getPos() == pos;
+    }
+
+    private static long estimateNumRecords(Path chromosomeFile) throws IOException {
+        return Files.size(chromosomeFile) / TempFileFormat.of(chromosomeFile).getTypicalRecordSize();
+    }
+
+    /**
+     * @return the approximate number of bytes used to merge the file, this is mostly the direct memory of the table.
+     */
+    @Override
+    public long estimateHeapUsage(Path chromosomeFile) throws IOException {
+        return estimateNumRecords(chromosomeFile) * BYTES_PER_ALLELE;
+    }
+}
@@ -0,0 +1,209 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table of merged alleles held in direct ByteBuffers, so that the alleles of a chromosome take no
+ * space on the Java heap while they are merged. Alleles are keyed by their exact {@link AlleleKey}, which can be decoded
+ * back into the chr, pos, ref and alt. Each slot has a fixed size:
+ * <pre>
+ * long     key, with the top bit set to mark the slot as used
+ * long     rsId number
+ * int      bitmask of the {@link AlleleProperty} ordinals which have a value
+ * float    a value for every {@link AlleleProperty}, in ordinal order
+ * </pre>
+ * Alleles are merged in place using the same rules as {@link AlleleMerger#mergeAllele(Allele, Allele)}. Collisions
+ * are resolved by linear probing and the table doubles in size when it becomes too full. The buffers are split into
+ * segments as a single ByteBuffer cannot be larger than 2GB.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class OffHeapAlleleTable {
+
+    private static final AlleleProperty[] PROPERTIES = AlleleProperty.values();
+
+    private static final int RSID_OFFSET = 8;
+    private static final int MASK_OFFSET = 16;
+    private static final int VALUES_OFFSET = 20;
+    static final int SLOT_BYTES = VALUES_OFFSET + Float.BYTES * PROPERTIES.length;
+    static final double MAX_LOAD = 0.75;
+
+    // keys are always positive, so the top bit marks the used slots of the zeroed buffers
+    private static final long USED = Long.MIN_VALUE;
+    private static final int SEGMENT_SHIFT = 24;
+    private static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SLOTS - 1;
+    private static final int MIN_CAPACITY = 64;
+    private static final long MAX_CAPACITY = 1L << 32;
+
+    private ByteBuffer[] segments;
+    private long capacity;
+    private long maxSize;
+    private long size;
+
+    /**
+     * @param expectedAlleles number of distinct alleles expected, used to size the table so that it does not need to
+     *                        grow.
+     */
+    OffHeapAlleleTable(long expectedAlleles) {
+        allocate(Math.max(MIN_CAPACITY, (long) (expectedAlleles / MAX_LOAD) + 1));
+    }
+
+    private void allocate(long capacity) {
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Cannot hold more than " + (long) (MAX_CAPACITY * MAX_LOAD) + " alleles");
+        }
+        this.capacity = capacity;
+        this.maxSize = (long) (capacity * MAX_LOAD);
+        int numSegments = (int) ((capacity + SEGMENT_SLOTS - 1) >>> SEGMENT_SHIFT);
+        segments = new ByteBuffer[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            long segmentSlots = Math.min(SEGMENT_SLOTS, capacity - ((long) i << SEGMENT_SHIFT));
+            segments[i] = ByteBuffer.allocateDirect((int) segmentSlots * SLOT_BYTES);
+        }
+    }
+
+    /**
+     * Adds the allele to the table, or merges it into the allele already held under the same key.
+     *
+     * @param key the exact {@link AlleleKey} of the allele
+     * @throws IllegalArgumentException if the key is not exact.
+     */
+    void merge(long key, Allele allele) {
+        if (!AlleleKey.isExact(key)) {
+            throw new IllegalArgumentException("Only alleles with an exact key can be held in the table " + allele);
+        }
+        if (size >= maxSize) {
+            grow();
+        }
+        long slot = findSlot(key);
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        int existingMask;
+        if (segment.getLong(offset) == 0) {
+            segment.putLong(offset, key | USED);
+            existingMask = 0;
+            size++;
+        } else {
+            existingMask = segment.getInt(offset + MASK_OFFSET);
+        }
+        if (allele.hasRsId()) {
+            segment.putLong(offset + RSID_OFFSET, allele.getRsNumber());
+        }
+        int missingMask = allele.getValueMask() & ~existingMask;
+        if (missingMask != 0) {
+            for (int i = 0; i < PROPERTIES.length; i++) {
+                if ((missingMask & (1 << i)) != 0) {
+                    segment.putFloat(valueOffset(offset, i), allele.getValueOrDefault(PROPERTIES[i], 0f));
+                }
+            }
+            segment.putInt(offset + MASK_OFFSET, existingMask | missingMask);
+        }
+    }
+
+    /**
+     * @return the merged allele held under the key, or null if there is none.
+     */
+    Allele get(long key) {
+        long slot = findSlot(key);
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        if (segment.getLong(offset) == 0) {
+            return null;
+        }
+        Allele allele = new Allele(AlleleKey.chr(key), AlleleKey.pos(key), AlleleKey.ref(key), AlleleKey.alt(key));
+        allele.setRsNumber(segment.getLong(offset + RSID_OFFSET));
+        int mask = segment.getInt(offset + MASK_OFFSET);
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                allele.addValue(PROPERTIES[i], segment.getFloat(valueOffset(offset, i)));
+            }
+        }
+        return allele;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return the keys of all the alleles in the table in ascending order, which sorts them by chr and pos.
+     */
+    long[] sortedKeys() {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many alleles to sort " + size);
+        }
+        long[] keys = new long[(int) size];
+        int index = 0;
+        for (ByteBuffer segment : segments) {
+            for (int offset = 0; offset < segment.capacity(); offset += SLOT_BYTES) {
+                long storedKey = segment.getLong(offset);
+                if (storedKey != 0) {
+                    keys[index++] = storedKey & ~USED;
+                }
+            }
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * @return the slot holding the key or the empty slot where it should be added.
+     */
+    private long findSlot(long key) {
+        long storedKey = key | USED;
+        long slot = home(key);
+        while (true) {
+            long slotKey = segment(slot).getLong(offset(slot));
+            if (slotKey == 0 || slotKey == storedKey) {
+                return slot;
+            }
+            slot = slot + 1 == capacity ? 0 : slot + 1;
+        }
+    }
+
+    private long home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        // maps the top 32 bits of the hash onto 0 to capacity without a division
+        return ((hash >>> 32) * capacity) >>> 32;
+    }
+
+    private ByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & SEGMENT_MASK) * SLOT_BYTES;
+    }
+
+    private static int valueOffset(int slotOffset, int ordinal) {
+        return slotOffset + VALUES_OFFSET + Float.BYTES * ordinal;
+    }
+
+    private void grow() {
+        ByteBuffer[] oldSegments = segments;
+        allocate(capacity * 2);
+        for (ByteBuffer oldSegment : oldSegments) {
+            for (int oldOffset = 0; oldOffset < oldSegment.capacity(); oldOffset += SLOT_BYTES) {
+                long storedKey = oldSegment.getLong(oldOffset);
+                if (storedKey != 0) {
+                    long slot = findSlot(storedKey & ~USED);
+                    copySlot(oldSegment, oldOffset, segment(slot), offset(slot));
+                }
+            }
+        }
+    }
+
+    private static void copySlot(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+        for (int i = 0; i < SLOT_BYTES; i += Integer.BYTES) {
+            to.putInt(toOffset + i, from.getInt(fromOffset + i));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the chromosome temp files concurrently. Each chromosome is merged into its own sorted part file and the parts
+ * are then concatenated in chromosome order into the merged file.
+ * <p>
+ * The chromosomes are started largest first, so the total time is bound by the largest chromosome rather than by the
+ * sum of all of them. A chromosome is only started once its estimated heap usage fits into the remaining memory
+ * budget. A chromosome larger than the whole budget is merged when nothing else is running.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class ParallelChromosomeMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelChromosomeMerger.class);
+
+    private static final int BYTES_PER_PERMIT = 1024 * 1024;
+
+    private final AlleleMerger alleleMerger;
+    private final int numThreads;
+    private final int memoryBudgetPermits;
+
+    /**
+     * @param alleleMerger used to merge the alleles of each chromosome
+     * @param numThreads   maximum number of chromosomes to merge at once
+     * @param memoryBudget number of bytes of heap which can be used by the chromosomes being merged
+     */
+    ParallelChromosomeMerger(AlleleMerger alleleMerger, int numThreads, long memoryBudget) {
+        this.alleleMerger = alleleMerger;
+        this.numThreads = numThreads;
+        this.memoryBudgetPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / BYTES_PER_PERMIT));
+    }
+
+    void mergeToFile(Collection<Path> chromosomePaths, Path merged) throws IOException {
+        Map<Path, Path> parts = new LinkedHashMap<>();
+        for (Path chr : chromosomePaths) {
+            parts.put(chr, chr.resolveSibling(chr.getFileName() + ".merged"));
+        }
+        try {
+            mergeParts(parts);
+            concatenateParts(parts.values(), merged);
+        } finally {
+            for (Path part : parts.values()) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private void mergeParts(Map<Path, Path> parts) throws IOException {
+        List<Path> largestFirst = new ArrayList<>(parts.keySet());
+        Map<Path, Long> heapUsage = new HashMap<>();
+        for (Path chr : largestFirst) {
+            heapUsage.put(chr, alleleMerger.estimateHeapUsage(chr));
+        }
+        largestFirst.sort((chr1, chr2) -> Long.compare(heapUsage.get(chr2), heapUsage.get(chr1)));
+
+        Semaphore memoryBudget = new Semaphore(memoryBudgetPermits, true);
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads, mergerThreadFactory());
+        try {
+            for (Path chr : largestFirst) {
+                int permits = toPermits(heapUsage.get(chr));
+                memoryBudget.acquire(permits);
+                logger.info("Merging {} using ~{}MB of {}MB available", chr.getFileName(), permits, memoryBudget.availablePermits() + permits);
+                executorService.submit(() -> {
+                    try {
+                        mergePart(chr, parts.get(chr));
+                    } finally {
+                        memoryBudget.release(permits);
+                    }
+                });
+            }
+            executorService.shutdown();
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while merging chromosomes", e);
+        }
+    }
+
+    private int toPermits(long heapUsage) {
+        long permits = heapUsage / BYTES_PER_PERMIT + 1;
+        return (int) Math.min(permits, memoryBudgetPermits);
+    }
+
+    private void mergePart(Path chr, Path part) {
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(part)) {
+            alleleMerger.merge(chr, AlleleAppendingFileWriter.writeAlleleLine(bufferedWriter));
+            logger.info("Finished merging {}", chr.getFileName());
+        } catch (Exception ex) {
+            logger.error("Could not merge chromosome file {}", chr, ex);
+        }
+    }
+
+    private void concatenateParts(Collection<Path> parts, Path merged) throws IOException {
+        logger.info("Concatenating merged chromosomes to {}", merged);
+        try (OutputStream outputStream = Files.newOutputStream(merged)) {
+            for (Path part : parts) {
+                if (Files.exists(part)) {
+                    Files.copy(part, outputStream);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory mergerThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "chromosome-merger-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
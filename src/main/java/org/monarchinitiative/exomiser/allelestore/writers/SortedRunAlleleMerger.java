@@ -0,0 +1,113 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.writers.SortedRunRecordWriter.SortedRun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Merges chromosome temp files written as sorted runs by the {@link SortedRunRecordWriter} in a single sequential
+ * pass, without holding the alleles in RAM. Each run is read from its own position in the file and the runs are
+ * k-way merged by the {@link AlleleRunMerger}, equal alleles being combined in the order they were written. The result
+ * is exactly the same as the {@link InMemoryAlleleMerger}.
+ * <p>
+ * Files with no recorded runs, or with too many runs to read at once, are merged by the fallback {@link AlleleMerger}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class SortedRunAlleleMerger implements AlleleMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(SortedRunAlleleMerger.class);
+
+    static final int MAX_RUNS = 64;
+    // the read buffer of each run reader
+    private static final long BYTES_PER_RUN = 64 * 1024;
+
+    private final Map<Path, List<SortedRun>> sortedRuns;
+    private final AlleleMerger fallbackMerger;
+
+    /**
+     * @param sortedRuns     the sorted runs of each chromosome temp file
+     * @param fallbackMerger used to merge the files without sorted runs
+     */
+    SortedRunAlleleMerger(Map<Path, List<SortedRun>> sortedRuns, AlleleMerger fallbackMerger) {
+        this.sortedRuns = sortedRuns;
+        this.fallbackMerger = fallbackMerger;
+    }
+
+    private boolean canStream(Path chromosomeFile) {
+        List<SortedRun> runs = sortedRuns.get(chromosomeFile);
+        return runs != null && runs.size() <= MAX_RUNS;
+    }
+
+    @Override
+    public void merge(Path chromosomeFile, Consumer<Allele> sortedAlleleConsumer) throws IOException {
+        if (!canStream(chromosomeFile)) {
+            logger.info("{} has no sorted runs or too many to stream, using {}", chromosomeFile.getFileName(), fallbackMerger.getClass().getSimpleName());
+            fallbackMerger.merge(chromosomeFile, sortedAlleleConsumer);
+            return;
+        }
+        List<SortedRun> runs = sortedRuns.get(chromosomeFile);
+        logger.info("Streaming {} sorted runs of {}", runs.size(), chromosomeFile.getFileName());
+        TempFileFormat tempFileFormat = TempFileFormat.of(chromosomeFile);
+        List<AlleleRecordReader> runReaders = new ArrayList<>(runs.size());
+        try {
+            for (SortedRun run : runs) {
+                runReaders.add(new RunRecordReader(tempFileFormat.newReader(chromosomeFile, run.getOffset()), run.getNumAlleles()));
+            }
+        } catch (IOException e) {
+            for (AlleleRecordReader runReader : runReaders) {
+                runReader.close();
+            }
+            throw e;
+        }
+        AlleleRunMerger.mergeSortedRuns(runReaders, sortedAlleleConsumer);
+    }
+
+    @Override
+    public long estimateHeapUsage(Path chromosomeFile) throws IOException {
+        if (canStream(chromosomeFile)) {
+            return sortedRuns.get(chromosomeFile).size() * BYTES_PER_RUN;
+        }
+        return fallbackMerger.estimateHeapUsage(chromosomeFile);
+    }
+
+    /**
+     * Reads the alleles of a single run, stopping at the start of the next run.
+     */
+    private static class RunRecordReader implements AlleleRecordReader {
+
+        private final AlleleRecordReader reader;
+        private long remaining;
+
+        RunRecordReader(AlleleRecordReader reader, long numAlleles) {
+            this.reader = reader;
+            this.remaining = numAlleles;
+        }
+
+        @Override
+        public Allele read() throws IOException {
+            if (remaining == 0) {
+                return null;
+            }
+            Allele allele = reader.read();
+            if (allele == null) {
+                throw new IOException("Sorted run ended " + remaining + " alleles early");
+            }
+            remaining--;
+            return allele;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
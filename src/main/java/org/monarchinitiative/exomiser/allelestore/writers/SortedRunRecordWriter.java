@@ -0,0 +1,158 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the alleles of a chromosome temp file as a series of sorted runs, recording where each run starts so that the
+ * {@link SortedRunAlleleMerger} can merge the file in a single streaming pass.
+ * <p>
+ * The sources are sorted by chr and pos, but not quite in the natural order of the alleles: minimisation can move an
+ * allele a few bases along and the alts of multi-allelic lines are not sorted. The alleles are therefore passed through
+ * a small window which writes out the lowest allele once full. An allele lower than the last one written, such as the
+ * first allele of the next source, starts a new run. Equal alleles leave the window in the order they were written.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class SortedRunRecordWriter implements AlleleRecordWriter {
+
+    private final Path path;
+    private final AlleleRecordWriter recordWriter;
+    private final int windowSize;
+    private final PriorityQueue<WindowEntry> window;
+    private final List<SortedRun> runs = new ArrayList<>();
+
+    private long sequence;
+    private Allele lastWritten;
+    private long runOffset;
+    private long runAlleles;
+
+    /**
+     * @param path         the temp file written by the recordWriter
+     * @param recordWriter writer appending to the end of the path
+     * @param windowSize   number of alleles held back to be sorted
+     */
+    SortedRunRecordWriter(Path path, AlleleRecordWriter recordWriter, int windowSize) throws IOException {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be greater than 0");
+        }
+        this.path = path;
+        this.recordWriter = recordWriter;
+        this.windowSize = windowSize;
+        this.window = new PriorityQueue<>(windowSize + 1);
+        this.runOffset = Files.size(path);
+    }
+
+    @Override
+    public void write(Allele allele) throws IOException {
+        window.add(new WindowEntry(allele, sequence++));
+        if (window.size() > windowSize) {
+            writeLowest();
+        }
+    }
+
+    private void writeLowest() throws IOException {
+        Allele allele = window.poll().allele;
+        if (lastWritten != null && allele.compareTo(lastWritten) < 0) {
+            endRun();
+        }
+        recordWriter.write(allele);
+        runAlleles++;
+        lastWritten = allele;
+    }
+
+    private void endRun() throws IOException {
+        if (runAlleles == 0) {
+            return;
+        }
+        runs.add(new SortedRun(runOffset, runAlleles));
+        recordWriter.flush();
+        runOffset = Files.size(path);
+        runAlleles = 0;
+    }
+
+    /**
+     * Writes out the window. Any alleles written afterwards which are lower than the last one written start a new run.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!window.isEmpty()) {
+            writeLowest();
+        }
+        recordWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        endRun();
+        recordWriter.close();
+    }
+
+    /**
+     * @return the sorted runs of the file, complete once the writer has been closed.
+     */
+    List<SortedRun> getRuns() {
+        return Collections.unmodifiableList(runs);
+    }
+
+    /**
+     * A sorted sequence of alleles within a temp file.
+     */
+    static final class SortedRun {
+
+        private final long offset;
+        private final long numAlleles;
+
+        SortedRun(long offset, long numAlleles) {
+            this.offset = offset;
+            this.numAlleles = numAlleles;
+        }
+
+        /**
+         * @return the position in bytes of the first allele of the run
+         */
+        long getOffset() {
+            return offset;
+        }
+
+        long getNumAlleles() {
+            return numAlleles;
+        }
+
+        @Override
+        public String toString() {
+            return "SortedRun{" +
+                    "offset=" + offset +
+                    ", numAlleles=" + numAlleles +
+                    '}';
+        }
+    }
+
+    private static final class WindowEntry implements Comparable<WindowEntry> {
+
+        private final Allele allele;
+        private final long sequence;
+
+        WindowEntry(Allele allele, long sequence) {
+            this.allele = allele;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(WindowEntry other) {
+            int result = allele.compareTo(other.allele);
+            if (result == 0) {
+                return Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+    }
+}
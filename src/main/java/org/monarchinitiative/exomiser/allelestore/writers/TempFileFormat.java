@@ -0,0 +1,113 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format of the chromosome temp files written by the {@link AlleleAppendingFileWriter}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public enum TempFileFormat {
+
+    /**
+     * VCF lines without a header, identical to the lines of the merged file. Easy to inspect, but each allele has to
+     * be formatted and then parsed again when it is merged.
+     */
+    TEXT(".allele", 50),
+    /**
+     * Compact binary records, see {@link BinaryAlleleRecordWriter}. Smaller than the text format and much cheaper to
+     * read back in.
+     */
+    BINARY(".allele.bin", 21),
+    /**
+     * The binary records with each value quantised to 16 bits, see {@link Quantisation} for the error of each
+     * property. The merged file holds the quantised values.
+     */
+    QUANTISED(".allele.qbin", 19);
+
+    private final String extension;
+    private final int typicalRecordSize;
+
+    TempFileFormat(String extension, int typicalRecordSize) {
+        this.extension = extension;
+        this.typicalRecordSize = typicalRecordSize;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return the usual number of bytes used by a dbSNP allele, used to estimate the number of alleles in a file.
+     */
+    public int getTypicalRecordSize() {
+        return typicalRecordSize;
+    }
+
+    /**
+     * @return the format of the file, judging by its extension
+     */
+    public static TempFileFormat of(Path path) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(BINARY.extension)) {
+            return BINARY;
+        }
+        if (fileName.endsWith(QUANTISED.extension)) {
+            return QUANTISED;
+        }
+        return TEXT;
+    }
+
+    AlleleRecordWriter newWriter(Path path, int bufferSize) throws IOException {
+        switch (this) {
+            case BINARY:
+                return new BinaryAlleleRecordWriter(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), bufferSize);
+            case QUANTISED:
+                return new BinaryAlleleRecordWriter(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), bufferSize, true);
+            case TEXT:
+            default:
+                return new TextAlleleRecordWriter(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), bufferSize);
+        }
+    }
+
+    AlleleRecordReader newReader(Path path) throws IOException {
+        switch (this) {
+            case BINARY:
+                return new BinaryAlleleRecordReader(Files.newInputStream(path));
+            case QUANTISED:
+                return new BinaryAlleleRecordReader(Files.newInputStream(path), true);
+            case TEXT:
+            default:
+                return new TextAlleleRecordReader(Files.newBufferedReader(path));
+        }
+    }
+
+    /**
+     * @param offset the number of bytes to skip, which must be the start of a record
+     */
+    AlleleRecordReader newReader(Path path, long offset) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        fileChannel.position(offset);
+        InputStream inputStream = Channels.newInputStream(fileChannel);
+        switch (this) {
+            case BINARY:
+                return new BinaryAlleleRecordReader(inputStream);
+            case QUANTISED:
+                return new BinaryAlleleRecordReader(inputStream, true);
+            case TEXT:
+            default:
+                return new TextAlleleRecordReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        }
+    }
+}
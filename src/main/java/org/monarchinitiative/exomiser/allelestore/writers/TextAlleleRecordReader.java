@@ -0,0 +1,44 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.parsers.AlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.ExomiserAlleleParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads alleles from VCF lines using the {@link ExomiserAlleleParser}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class TextAlleleRecordReader implements AlleleRecordReader {
+
+    private final BufferedReader reader;
+    private final AlleleParser alleleParser = new ExomiserAlleleParser();
+    private final Deque<Allele> buffer = new ArrayDeque<>();
+
+    TextAlleleRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Allele read() throws IOException {
+        String line;
+        while (buffer.isEmpty() && (line = reader.readLine()) != null) {
+            try {
+                buffer.addAll(alleleParser.parseLine(line));
+            } catch (RuntimeException e) {
+                throw new IOException("Could not parse line " + line, e);
+            }
+        }
+        return buffer.poll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,37 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes alleles as VCF lines in the same format as the merged file.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+class TextAlleleRecordWriter implements AlleleRecordWriter {
+
+    private final Writer writer;
+
+    TextAlleleRecordWriter(OutputStream outputStream, int bufferSize) {
+        // buffer the encoded bytes as the OutputStreamWriter encoder only holds 8KB
+        OutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, bufferSize);
+        this.writer = new BufferedWriter(new OutputStreamWriter(bufferedOutputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(Allele allele) throws IOException {
+        writer.write(AlleleAppendingFileWriter.toLine(allele));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
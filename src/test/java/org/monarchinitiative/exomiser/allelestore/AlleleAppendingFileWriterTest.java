@@ -6,12 +6,18 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
 import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
 import org.monarchinitiative.exomiser.allelestore.parsers.ExomiserAlleleParser;
 import org.monarchinitiative.exomiser.allelestore.writers.AlleleAppendingFileWriter;
+import org.monarchinitiative.exomiser.allelestore.writers.ExternalSortAlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.InMemoryAlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.OffHeapAlleleMerger;
+import org.monarchinitiative.exomiser.allelestore.writers.TempFileFormat;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -24,6 +30,9 @@ import static org.junit.Assert.assertThat;
  * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
  */
 public class AlleleAppendingFileWriterTest {
+
+    private static final TempFileFormat[] LOSSLESS_FORMATS = {TempFileFormat.TEXT, TempFileFormat.BINARY};
+
     @Rule
     public TemporaryFolder tmpFolder = new TemporaryFolder();
 
@@ -135,4 +144,188 @@ public class AlleleAppendingFileWriterTest {
         assertThat(lines.get(0), equalTo("1\t234565\t.\tA\tT\t.\t.\tKG=0.0123;ESP_AA=0.0456"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMergeToFileKeepsRsIdOfMergedAlleles() throws Exception {
+        Allele allele = new Allele(1, 234565, "A", "T");
+        allele.setRsId("rs12345");
+        allele.addValue(AlleleProperty.KG, 0.0123f);
+
+        Allele allele1 = new Allele(1, 234565, "A", "T");
+        allele1.addValue(AlleleProperty.ESP_AA, 0.0456f);
+
+        AlleleAppendingFileWriter instance = getInstanceWithSavedAlleles(allele, allele1);
+
+        Path outFile = instance.mergeToFile("results.allele");
+
+        List<String> lines = Files.readAllLines(outFile);
+        assertThat(lines.size(), equalTo(1));
+        assertThat(lines.get(0), equalTo("1\t234565\trs12345\tA\tT\t.\t.\tRS=rs12345;KG=0.0123;ESP_AA=0.0456"));
+    }
+
+    private List<Allele> makeOverlappingAlleles() {
+        List<Allele> alleles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            for (String alt : Arrays.asList("C", "G", "T")) {
+                //each allele is written ten times over five different lines
+                Allele kgAllele = new Allele(1 + i % 2, 1000 + i % 10, "A", alt);
+                kgAllele.addValue(AlleleProperty.KG, i / 100f);
+                alleles.add(kgAllele);
+                Allele espAllele = new Allele(1 + i % 2, 1000 + i % 10, "A", alt);
+                espAllele.setRsId(i % 3 == 0 ? "rs" + i : ".");
+                espAllele.addValue(AlleleProperty.ESP_AA, i / 200f);
+                alleles.add(espAllele);
+            }
+        }
+        return alleles;
+    }
+
+    @Test
+    public void testMergeToFileUsingSortedRunsProducesSameFileAsInMemoryMerge() throws Exception {
+        Path expectedFile = getInstanceWithSavedAlleles(makeOverlappingAlleles()).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        for (int maxAllelesPerRun : new int[]{1, 2, 7, 1000}) {
+            AlleleAppendingFileWriter instance = getInstanceWithSavedAlleles(makeOverlappingAlleles());
+            Path runDir = tmpFolder.newFolder().toPath();
+            Path outFile = instance.mergeToFile("results.allele", new ExternalSortAlleleMerger(runDir, maxAllelesPerRun));
+
+            assertThat(Files.readAllLines(outFile), equalTo(expected));
+            //run files are deleted after merging
+            assertThat(runDir.toFile().list().length, equalTo(0));
+        }
+        assertThat(expected.size(), equalTo(30));
+    }
+
+    @Test
+    public void testMergeToFileMergingChromosomesInParallelProducesSameFileAsSequentialMerge() throws Exception {
+        Path expectedFile = getInstanceWithSavedAlleles(makeOverlappingAlleles()).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        //a budget of 1 byte only allows one chromosome to be merged at a time
+        for (long memoryBudget : new long[]{1, 1024L * 1024 * 1024}) {
+            Path workingDir = tmpFolder.newFolder().toPath();
+            AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(workingDir);
+            makeOverlappingAlleles().forEach(instance::write);
+
+            Path outFile = instance.mergeToFile("results.allele", new InMemoryAlleleMerger(), 4, memoryBudget);
+
+            assertThat(Files.readAllLines(outFile), equalTo(expected));
+            //the merged chromosome parts are deleted after concatenation
+            assertThat(Files.list(workingDir).anyMatch(path -> path.toString().endsWith(".merged")), is(false));
+        }
+    }
+
+    @Test
+    public void testWriteIsBufferedUntilFlush() throws Exception {
+        Path workingDir = tmpFolder.newFolder().toPath();
+        AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(workingDir, 1024);
+        instance.write(new Allele(1, 234565, "A", "T"));
+
+        Path chr1 = workingDir.resolve("temp_chr1.allele");
+        assertThat(Files.size(chr1), equalTo(0L));
+
+        instance.flush();
+        assertThat(Files.readAllLines(chr1), equalTo(Collections.singletonList("1\t234565\t.\tA\tT\t.\t.\t.")));
+        instance.close();
+    }
+
+    @Test
+    public void testMergeToFileFromBinaryTempFilesProducesSameFileAsText() throws Exception {
+        Path expectedFile = getInstanceWithSavedAlleles(makeOverlappingAlleles()).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        Path workingDir = tmpFolder.newFolder().toPath();
+        AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(workingDir, 1024, TempFileFormat.BINARY);
+        makeOverlappingAlleles().forEach(instance::write);
+        Path outFile = instance.mergeToFile("results.allele", new ExternalSortAlleleMerger(workingDir, 7));
+
+        assertThat(Files.exists(workingDir.resolve("temp_chr1.allele.bin")), is(true));
+        assertThat(Files.readAllLines(outFile), equalTo(expected));
+    }
+
+    @Test
+    public void testMergeToFileFromQuantisedTempFilesHasQuantisedValues() throws Exception {
+        List<Allele> quantisedAlleles = makeOverlappingAlleles();
+        for (Allele allele : quantisedAlleles) {
+            allele.getValues().forEach((property, value) -> allele.addValue(property, Quantisation.of(property).quantise(value)));
+        }
+        Path expectedFile = getInstanceWithSavedAlleles(quantisedAlleles).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        Path workingDir = tmpFolder.newFolder().toPath();
+        AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(workingDir, 1024, TempFileFormat.QUANTISED);
+        makeOverlappingAlleles().forEach(instance::write);
+        Path outFile = instance.mergeToFile("results.allele", new InMemoryAlleleMerger());
+
+        assertThat(Files.exists(workingDir.resolve("temp_chr1.allele.qbin")), is(true));
+        assertThat(Files.readAllLines(outFile), equalTo(expected));
+    }
+
+    @Test
+    public void testMergeToFileOffHeapProducesSameFileAsInMemoryMerge() throws Exception {
+        List<Allele> alleles = makeOverlappingAlleles();
+        //alleles without an exact packed key are merged on the heap and written in order with the others
+        for (String alt : Arrays.asList("<DEL>", "AAAAAAAAAAAAAAAAAAAA", "N")) {
+            Allele allele = new Allele(1, 1005, "A", alt);
+            allele.addValue(AlleleProperty.KG, 0.5f);
+            alleles.add(allele);
+            alleles.add(new Allele(2, 999, "A", alt));
+            alleles.add(new Allele(2, 2000, "A", alt));
+        }
+        Allele rsIdOnly = new Allele(1, 1005, "A", "N");
+        rsIdOnly.setRsId("rs42");
+        alleles.add(rsIdOnly);
+
+        Path expectedFile = getInstanceWithSavedAlleles(alleles).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        for (TempFileFormat tempFileFormat : LOSSLESS_FORMATS) {
+            AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(tmpFolder.newFolder().toPath(), 1024, tempFileFormat);
+            alleles.forEach(instance::write);
+            Path outFile = instance.mergeToFile("results.allele", new OffHeapAlleleMerger());
+
+            assertThat(Files.readAllLines(outFile), equalTo(expected));
+        }
+        assertThat(expected.size(), equalTo(39));
+    }
+
+    @Test
+    public void testStreamingMergeOfSortedRunsProducesSameFileAsInMemoryMerge() throws Exception {
+        Path expectedFile = getInstanceWithSavedAlleles(makeOverlappingAlleles()).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        for (TempFileFormat tempFileFormat : LOSSLESS_FORMATS) {
+            //a window of 1 writes a new run whenever an allele is out of order
+            for (int sortWindowSize : new int[]{1, 5, AlleleAppendingFileWriter.DEFAULT_SORT_WINDOW_SIZE}) {
+                AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(tmpFolder.newFolder().toPath(), 1024, tempFileFormat, sortWindowSize);
+                makeOverlappingAlleles().forEach(instance::write);
+                Path outFile = instance.mergeToFile("results.allele", new InMemoryAlleleMerger());
+
+                assertThat(Files.readAllLines(outFile), equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingMergeFallsBackWhenThereAreTooManyRuns() throws Exception {
+        List<Allele> alleles = new ArrayList<>();
+        //every allele starts a new run
+        for (int pos = 500; pos > 0; pos--) {
+            Allele allele = new Allele(1, pos, "A", "T");
+            allele.addValue(AlleleProperty.KG, pos / 1000f);
+            alleles.add(allele);
+            alleles.add(new Allele(1, pos, "A", "T"));
+        }
+        Path expectedFile = getInstanceWithSavedAlleles(alleles).mergeToFile("expected.allele");
+        List<String> expected = Files.readAllLines(expectedFile);
+
+        Path workingDir = tmpFolder.newFolder().toPath();
+        AlleleAppendingFileWriter instance = new AlleleAppendingFileWriter(workingDir, 1024, TempFileFormat.BINARY, 1);
+        alleles.forEach(instance::write);
+        Path outFile = instance.mergeToFile("results.allele", new ExternalSortAlleleMerger(workingDir, 7), 4, 1024L * 1024 * 1024);
+
+        assertThat(Files.readAllLines(outFile), equalTo(expected));
+        assertThat(expected.size(), equalTo(500));
+    }
+
+}
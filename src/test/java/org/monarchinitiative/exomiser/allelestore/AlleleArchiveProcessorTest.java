@@ -2,13 +2,16 @@ package org.monarchinitiative.exomiser.allelestore;
 
 import org.junit.Test;
 import org.monarchinitiative.exomiser.allelestore.archive.AlleleArchive;
+import org.monarchinitiative.exomiser.allelestore.archive.DbNsfpAlleleArchive;
 import org.monarchinitiative.exomiser.allelestore.archive.TabixAlleleArchive;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.parsers.DbNsfpAlleleParser;
 import org.monarchinitiative.exomiser.allelestore.parsers.DbSnpAlleleParser;
 import org.monarchinitiative.exomiser.allelestore.writers.AlleleWriter;
 
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -31,6 +34,57 @@ public class AlleleArchiveProcessorTest {
         testAlleleWriter.getAlleles().forEach(System.out::println);
     }
 
+    @Test
+    public void processSingleFileArchiveWithSeveralWorkers() throws Exception {
+        AlleleArchive dbsnpArchive = new TabixAlleleArchive(Paths.get("src/test/resources/test_first_ten_dbsnp.vcf.gz"));
+        AlleleArchiveProcessor instance = new AlleleArchiveProcessor(dbsnpArchive, new DbSnpAlleleParser());
+
+        TestAlleleWriter sequentialWriter = new TestAlleleWriter();
+        instance.process(sequentialWriter);
+
+        TestAlleleWriter pipelineWriter = new TestAlleleWriter();
+        instance.process(pipelineWriter, 4);
+
+        assertThat(pipelineWriter.count(), equalTo(10L));
+        assertThat(pipelineWriter.getAlleles(), equalTo(sequentialWriter.getAlleles()));
+    }
+
+    @Test
+    public void processBgzfArchiveWithSeveralWorkers() throws Exception {
+        AlleleArchive dbsnpArchive = new TabixAlleleArchive(Paths.get("src/test/resources/test_dbsnp_bgzf.vcf.gz"));
+        AlleleArchiveProcessor instance = new AlleleArchiveProcessor(dbsnpArchive, new DbSnpAlleleParser());
+
+        TestAlleleWriter sequentialWriter = new TestAlleleWriter();
+        instance.process(sequentialWriter);
+
+        TestAlleleWriter parallelWriter = new TestAlleleWriter();
+        instance.process(parallelWriter, 4);
+
+        assertThat(parallelWriter.count(), equalTo(3000L));
+        assertThat(parallelWriter.getAlleles(), equalTo(sequentialWriter.getAlleles()));
+    }
+
+    @Test
+    public void processInParallelProducesSameAllelesAsSequential() throws Exception {
+        AlleleArchive dbNsfpArchive = new DbNsfpAlleleArchive(Paths.get("src/test/resources/test_dbnsfp.zip"));
+        AlleleArchiveProcessor instance = new AlleleArchiveProcessor(dbNsfpArchive, DbNsfpAlleleParser::new);
+
+        TestAlleleWriter sequentialWriter = new TestAlleleWriter();
+        instance.process(sequentialWriter);
+
+        TestAlleleWriter parallelWriter = new TestAlleleWriter();
+        instance.process(parallelWriter, 4);
+
+        assertThat(sequentialWriter.count(), equalTo(6L));
+        assertThat(parallelWriter.count(), equalTo(6L));
+
+        List<Allele> expected = new ArrayList<>(sequentialWriter.getAlleles());
+        Collections.sort(expected);
+        List<Allele> actual = new ArrayList<>(parallelWriter.getAlleles());
+        Collections.sort(actual);
+        assertThat(actual, equalTo(expected));
+    }
+
     private class TestAlleleWriter implements AlleleWriter {
 
         private final List<Allele> alleles = new ArrayList<>();
@@ -40,12 +94,12 @@ public class AlleleArchiveProcessorTest {
         }
 
         @Override
-        public void write(Allele allele) {
+        public synchronized void write(Allele allele) {
             alleles.add(allele);
         }
 
         @Override
-        public long count() {
+        public synchronized long count() {
             return alleles.size();
         }
     }
@@ -0,0 +1,158 @@
+package org.monarchinitiative.exomiser.allelestore;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.parsers.AlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.DbNsfpAlleleParser;
+import org.monarchinitiative.exomiser.allelestore.parsers.DbSnpAlleleParser;
+import org.monarchinitiative.exomiser.allelestore.writers.AlleleWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class AlleleParsingPipelineTest {
+
+    private String makeVcf(int numLines) {
+        StringJoiner stringJoiner = new StringJoiner("\n");
+        stringJoiner.add("##fileformat=VCFv4.0");
+        stringJoiner.add("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO");
+        for (int i = 1; i <= numLines; i++) {
+            stringJoiner.add("1\t" + (1000 + i) + "\trs" + i + "\tA\tT,G\t.\t.\tCAF=0.9,0.05,0.05");
+        }
+        return stringJoiner.toString();
+    }
+
+    private List<Allele> parseSequentially(AlleleParser alleleParser, String input) {
+        List<Allele> alleles = new ArrayList<>();
+        new BufferedReader(new StringReader(input)).lines().forEach(line -> alleles.addAll(alleleParser.parseLine(line)));
+        return alleles;
+    }
+
+    @Test
+    public void writesAllelesInInputOrder() throws Exception {
+        String vcf = makeVcf(1000);
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(new DbSnpAlleleParser(), 4, 7, 3);
+
+        TestAlleleWriter alleleWriter = new TestAlleleWriter();
+        instance.run(new BufferedReader(new StringReader(vcf)), alleleWriter, allele -> {});
+
+        assertThat(alleleWriter.count(), equalTo(2000L));
+        assertThat(alleleWriter.getAlleles(), equalTo(parseSequentially(new DbSnpAlleleParser(), vcf)));
+    }
+
+    @Test
+    public void writesSameAllelesWhenReadingBytes() throws Exception {
+        String vcf = makeVcf(1000);
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(new DbSnpAlleleParser(), 4, 7, 3);
+
+        TestAlleleWriter alleleWriter = new TestAlleleWriter();
+        AsciiLineReader asciiLineReader = new AsciiLineReader(new ByteArrayInputStream(vcf.getBytes(StandardCharsets.US_ASCII)), 16);
+        instance.run(asciiLineReader, alleleWriter, allele -> {});
+
+        List<Allele> expected = parseSequentially(new DbSnpAlleleParser(), vcf);
+        assertThat(alleleWriter.getAlleles(), equalTo(expected));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(alleleWriter.getAlleles().get(i).generateInfoField(), equalTo(expected.get(i).generateInfoField()));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readingBytesRequiresAsciiParser() throws Exception {
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(line -> Collections.emptyList(), 2);
+        instance.run(new AsciiLineReader(new ByteArrayInputStream(new byte[0])), new TestAlleleWriter(), allele -> {});
+    }
+
+    @Test
+    public void emptyInput() throws Exception {
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(new DbSnpAlleleParser(), 2);
+
+        TestAlleleWriter alleleWriter = new TestAlleleWriter();
+        instance.run(new BufferedReader(new StringReader("")), alleleWriter, allele -> {});
+
+        assertThat(alleleWriter.count(), equalTo(0L));
+    }
+
+    @Test
+    public void headerIsParsedBeforeDataLines() throws Exception {
+        String dbNsfp = "#chr\tpos(1-based)\tref\talt\trs_dbSNP147\thg19_chr\thg19_pos(1-based)\tSIFT_score\tPolyphen2_HVAR_score\tMutationTaster_score\tMutationTaster_pred\n" +
+                "1\t69091\tA\tC\t.\t1\t69091\t0.001\t0.999\t1\tN\n" +
+                "1\t69091\tA\tG\trs201219564\t1\t69091\t.\t.\t.\t.\n" +
+                "1\t69092\tT\tC\t.\t1\t69092\t0.05\t0.457\t0.99\tA\n";
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(new DbNsfpAlleleParser(), 3, 1, 2);
+
+        TestAlleleWriter alleleWriter = new TestAlleleWriter();
+        instance.run(new BufferedReader(new StringReader(dbNsfp)), alleleWriter, allele -> {});
+
+        assertThat(alleleWriter.getAlleles(), equalTo(parseSequentially(new DbNsfpAlleleParser(), dbNsfp)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parserExceptionIsRethrown() throws Exception {
+        AlleleParser failingParser = line -> {
+            throw new IllegalStateException("Bad line " + line);
+        };
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(failingParser, 2, 10, 2);
+        instance.run(new BufferedReader(new StringReader(makeVcf(100))), new TestAlleleWriter(), allele -> {});
+    }
+
+    @Test(expected = NoSuchMethodError.class, timeout = 10_000)
+    public void headerErrorIsRethrown() throws Exception {
+        AlleleParser failingParser = line -> {
+            if (line.startsWith("#")) {
+                throw new NoSuchMethodError("Bad header " + line);
+            }
+            return Collections.emptyList();
+        };
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(failingParser, 2, 10, 2);
+        instance.run(new BufferedReader(new StringReader(makeVcf(100))), new TestAlleleWriter(), allele -> {});
+    }
+
+    @Test(expected = IOException.class)
+    public void readerExceptionIsRethrown() throws Exception {
+        Reader failingReader = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("Unexpected end of ZLIB input stream");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AlleleParsingPipeline instance = new AlleleParsingPipeline(new DbSnpAlleleParser(), 2);
+        instance.run(new BufferedReader(failingReader), new TestAlleleWriter(), allele -> {});
+    }
+
+    private static class TestAlleleWriter implements AlleleWriter {
+
+        private final List<Allele> alleles = Collections.synchronizedList(new ArrayList<>());
+
+        public List<Allele> getAlleles() {
+            return alleles;
+        }
+
+        @Override
+        public void write(Allele allele) {
+            alleles.add(allele);
+        }
+
+        @Override
+        public long count() {
+            return alleles.size();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.monarchinitiative.exomiser.allelestore;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.parsers.AsciiLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class AsciiLineReaderTest {
+
+    private List<String> readLines(String input, int bufferSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (AsciiLineReader instance = new AsciiLineReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), bufferSize)) {
+            AsciiLine line;
+            while ((line = instance.readLine()) != null) {
+                lines.add(line.toString());
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void emptyInput() throws Exception {
+        assertThat(readLines("", 8), equalTo(new ArrayList<String>()));
+    }
+
+    @Test
+    public void readsLinesWithAndWithoutFinalNewline() throws Exception {
+        assertThat(readLines("1\tA\n2\tC\n", 8), equalTo(Arrays.asList("1\tA", "2\tC")));
+        assertThat(readLines("1\tA\n2\tC", 8), equalTo(Arrays.asList("1\tA", "2\tC")));
+    }
+
+    @Test
+    public void readsEmptyLinesAndWindowsLineEndings() throws Exception {
+        assertThat(readLines("1\r\n\n2\r\n", 8), equalTo(Arrays.asList("1", "", "2")));
+    }
+
+    @Test
+    public void readsLinesLongerThanTheBuffer() throws Exception {
+        String longLine = "1\t8036291\trs72854879\tT\tC\t.\t.\tRS=72854879;CAF=0.9413,0.05871";
+        assertThat(readLines("#header\n" + longLine + "\n" + longLine, 4), equalTo(Arrays.asList("#header", longLine, longLine)));
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -35,6 +36,13 @@ public class AlleleArchiveFileReaderTest {
         assertThat(stringStream.count(), equalTo(0L));
     }
 
+    @Test
+    public void supportsConcurrentReads() throws Exception {
+        assertThat(new ArchiveFileReader(archive).supportsConcurrentReads(), is(true));
+        assertThat(new ArchiveFileReader(new DbNsfpAlleleArchive(Paths.get("dbNSFP.zip"))).supportsConcurrentReads(), is(true));
+        assertThat(new ArchiveFileReader(new EspAlleleArchive(Paths.get("ESP.tar.gz"))).supportsConcurrentReads(), is(false));
+    }
+
     @Test
     public void test() throws Exception {
         TabixAlleleArchive archive = new TabixAlleleArchive(Paths.get("C:/Users/hhx640/Documents/exomiser-build/data/download/00-All.vcf.gz"));
@@ -0,0 +1,115 @@
+package org.monarchinitiative.exomiser.allelestore.archive;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class ParallelBgzfInputStreamTest {
+
+    private final Path bgzfFile = Paths.get("src/test/resources/test_dbsnp_bgzf.vcf.gz");
+    private final Path gzipFile = Paths.get("src/test/resources/test_first_ten_dbsnp.vcf.gz");
+
+    private byte[] readFully(InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1000];
+            int numRead;
+            while ((numRead = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, numRead);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    @Test
+    public void isBgzf() {
+        assertThat(ParallelBgzfInputStream.isBgzf(bgzfFile), is(true));
+    }
+
+    @Test
+    public void plainGzipIsNotBgzf() {
+        assertThat(ParallelBgzfInputStream.isBgzf(gzipFile), is(false));
+    }
+
+    @Test
+    public void missingFileIsNotBgzf() {
+        assertThat(ParallelBgzfInputStream.isBgzf(Paths.get("wibble.vcf.gz")), is(false));
+    }
+
+    @Test
+    public void readsSameBytesAsGzipInputStream() throws Exception {
+        byte[] expected = readFully(new GZIPInputStream(Files.newInputStream(bgzfFile)));
+
+        for (int numThreads : new int[]{1, 2, 8}) {
+            byte[] actual = readFully(new ParallelBgzfInputStream(Files.newInputStream(bgzfFile), numThreads));
+            assertThat(actual, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void readSingleBytes() throws Exception {
+        byte[] expected = readFully(new GZIPInputStream(Files.newInputStream(bgzfFile)));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream instance = new ParallelBgzfInputStream(Files.newInputStream(bgzfFile), 4)) {
+            int value;
+            while ((value = instance.read()) != -1) {
+                outputStream.write(value);
+            }
+        }
+        assertThat(outputStream.toByteArray(), equalTo(expected));
+    }
+
+    @Test(expected = IOException.class)
+    public void plainGzipThrowsException() throws Exception {
+        readFully(new ParallelBgzfInputStream(Files.newInputStream(gzipFile), 2));
+    }
+
+    private byte[] readFirstBlock() throws IOException {
+        byte[] bgzf = Files.readAllBytes(bgzfFile);
+        // BSIZE is the last field of the BC subfield, which is the only extra subfield written by bgzip
+        int blockSize = (bgzf[16] & 0xff) | (bgzf[17] & 0xff) << 8;
+        byte[] block = new byte[blockSize + 1];
+        System.arraycopy(bgzf, 0, block, 0, block.length);
+        return block;
+    }
+
+    @Test(expected = IOException.class)
+    public void blockSizeSmallerThanHeaderThrowsException() throws Exception {
+        byte[] block = readFirstBlock();
+        block[16] = 5;
+        block[17] = 0;
+        readFully(new ParallelBgzfInputStream(new ByteArrayInputStream(block), 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void inflatedSizeLargerThanBlockThrowsException() throws Exception {
+        byte[] block = readFirstBlock();
+        // ISIZE of 2GB
+        block[block.length - 1] = 0x7f;
+        readFully(new ParallelBgzfInputStream(new ByteArrayInputStream(block), 2));
+    }
+
+    @Test
+    public void readBgzfArchiveFileWithSeveralThreads() throws Exception {
+        TabixAlleleArchive archive = new TabixAlleleArchive(bgzfFile);
+        ArchiveFileReader instance = new ArchiveFileReader(archive, 4);
+        InputStream inputStream = instance.readFileObject(instance.getFileObjects().get(0));
+        assertThat(inputStream instanceof ParallelBgzfInputStream, is(true));
+        assertThat(readFully(inputStream), equalTo(readFully(new GZIPInputStream(Files.newInputStream(bgzfFile)))));
+    }
+}
@@ -2,6 +2,7 @@ package org.monarchinitiative.exomiser.allelestore.indexers;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
@@ -13,6 +14,7 @@ import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.*;
 
 /**
@@ -88,4 +90,22 @@ public class LuceneAlleleIndexerTest {
         reader.close();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRsIdStoredAsNumber() throws Exception {
+        Directory index = new RAMDirectory();
+        LuceneAlleleIndexer instance = new LuceneAlleleIndexer(index);
+        for (Allele allele : makeAlleles()) {
+            instance.writeAllele(allele);
+        }
+        instance.getIndexWriter().close();
+
+        try (IndexReader reader = DirectoryReader.open(index)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            TopDocs docs = searcher.search(LongPoint.newExactQuery("rsId", 12345L), 10);
+            assertThat(docs.totalHits, equalTo(1));
+            Document doc = searcher.doc(docs.scoreDocs[0].doc);
+            assertThat(doc.getField("rsId").numericValue().longValue(), equalTo(12345L));
+        }
+    }
+
+}
@@ -7,6 +7,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleKey;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
 
 import java.nio.file.Path;
 
@@ -44,4 +46,32 @@ public class MvStoreAlleleIndexerTest {
         assertThat(alleleMap.get("1-12345-A-T"), equalTo(""));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void writeAlleleUsingPackedKeys() throws Exception {
+        Path outPath = tempFolder.newFolder().toPath();
+        MvStoreAlleleIndexer instance = new MvStoreAlleleIndexer(outPath, true);
+
+        Allele allele = new Allele(1, 12345, "A", "T");
+        allele.addValue(AlleleProperty.KG, 0.12f);
+        Allele longInsertion = new Allele(1, 12345, "A", "ATTTTTTTTTTTTTTT");
+        instance.writeAllele(allele);
+        instance.writeAllele(longInsertion);
+        instance.commit();
+        instance.close();
+
+        MVStore mvStore = new MVStore.Builder()
+                .fileName(outPath.resolve("alleles.mv.db").toString())
+                .readOnly()
+                .open();
+
+        assertThat(mvStore.getMapNames(), equalTo(Sets.newHashSet("alleles", "alleles_overflow")));
+        MVMap<Long, String> alleleMap = mvStore.openMap("alleles");
+        assertThat(alleleMap.size(), equalTo(1));
+        assertThat(alleleMap.get(AlleleKey.of(1, 12345, "A", "T")), equalTo("KG=0.12"));
+
+        MVMap<String, String> overflowMap = mvStore.openMap("alleles_overflow");
+        assertThat(overflowMap.size(), equalTo(1));
+        assertThat(overflowMap.get("01-000012345-A-ATTTTTTTTTTTTTTT"), equalTo(""));
+    }
+
+}
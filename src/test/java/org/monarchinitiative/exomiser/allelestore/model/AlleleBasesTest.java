@@ -0,0 +1,67 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class AlleleBasesTest {
+
+    @Test
+    public void testCanonicalSharesInstances() {
+        String first = AlleleBases.canonical(new String("ACGTA"));
+        String second = AlleleBases.canonical(new String("ACGTA"));
+        assertThat(first, equalTo("ACGTA"));
+        assertThat(first, sameInstance(second));
+        assertThat(AlleleBases.isCanonical(first), is(true));
+    }
+
+    @Test
+    public void testCanonicalReturnsOtherSequencesUnchanged() {
+        String tooLong = new String("ACGTAC");
+        assertThat(AlleleBases.canonical(tooLong), sameInstance(tooLong));
+        String notBases = new String("A*");
+        assertThat(AlleleBases.canonical(notBases), sameInstance(notBases));
+        String lowerCase = new String("a");
+        assertThat(AlleleBases.canonical(lowerCase), sameInstance(lowerCase));
+        assertThat(AlleleBases.canonical(""), equalTo(""));
+        assertThat(AlleleBases.isCanonical(tooLong), is(false));
+    }
+
+    @Test
+    public void testCanonicalRange() {
+        String line = "1\t12345\tAT\tA";
+        assertThat(AlleleBases.canonical(line, 8, 10), sameInstance(AlleleBases.canonical(new String("AT"))));
+        assertThat(AlleleBases.canonical(line, 11, 12), sameInstance(AlleleBases.canonical(new String("A"))));
+        assertThat(AlleleBases.canonical(line, 2, 7), equalTo("12345"));
+    }
+
+    @Test
+    public void testUpperCase() {
+        String line = "acgTn";
+        assertThat(AlleleBases.upperCase(line, 0, 4), sameInstance(AlleleBases.canonical(new String("ACGT"))));
+        assertThat(AlleleBases.upperCase(line, 0, 5), equalTo("ACGTN"));
+        assertThat(AlleleBases.upperCase("a`", 0, 2), equalTo("A`"));
+    }
+
+    @Test
+    public void testEveryCanonicalSequence() {
+        char[] bases = {'A', 'C', 'G', 'T'};
+        for (int length = 1; length <= AlleleBases.MAX_LENGTH; length++) {
+            for (int code = 0; code < 1 << (2 * length); code++) {
+                StringBuilder stringBuilder = new StringBuilder();
+                for (int i = length - 1; i >= 0; i--) {
+                    stringBuilder.append(bases[(code >>> (2 * i)) & 0b11]);
+                }
+                String sequence = stringBuilder.toString();
+                assertThat(AlleleBases.canonical(sequence), equalTo(sequence));
+                assertThat(AlleleBases.isCanonical(AlleleBases.canonical(sequence)), is(true));
+            }
+        }
+    }
+}
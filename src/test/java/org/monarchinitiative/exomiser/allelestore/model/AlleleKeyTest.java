@@ -0,0 +1,140 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class AlleleKeyTest {
+
+    private void assertExactRoundTrip(int chr, int pos, String ref, String alt) {
+        long key = AlleleKey.of(chr, pos, ref, alt);
+        assertThat(AlleleKey.isExact(key), is(true));
+        assertThat(AlleleKey.chr(key), equalTo(chr));
+        assertThat(AlleleKey.pos(key), equalTo(pos));
+        assertThat(AlleleKey.ref(key), equalTo(ref));
+        assertThat(AlleleKey.alt(key), equalTo(alt));
+    }
+
+    @Test
+    public void snp() {
+        assertExactRoundTrip(1, 12345, "A", "T");
+        assertExactRoundTrip(25, AlleleKey.MAX_POS, "G", "C");
+    }
+
+    @Test
+    public void shortIndels() {
+        assertExactRoundTrip(23, 249_250_621, "A", "ACGTACGT");
+        assertExactRoundTrip(2, 1, "TTTTTTTT", "T");
+        assertExactRoundTrip(2, 1, "ACGTA", "TGCAAC");
+    }
+
+    @Test
+    public void longIndelIsHashed() {
+        long key = AlleleKey.of(1, 12345, "A", "ACGTACGTA");
+        assertThat(AlleleKey.isExact(key), is(false));
+        assertThat(AlleleKey.chr(key), equalTo(1));
+        assertThat(AlleleKey.pos(key), equalTo(12345));
+        assertThat(key, equalTo(AlleleKey.of(1, 12345, "A", "ACGTACGTA")));
+    }
+
+    @Test
+    public void nonAcgtIsHashed() {
+        assertThat(AlleleKey.isExact(AlleleKey.of(1, 12345, "A", "N")), is(false));
+        assertThat(AlleleKey.isExact(AlleleKey.of(1, 12345, "A", "<DEL>")), is(false));
+        assertThat(AlleleKey.isExact(AlleleKey.of(1, 12345, "a", "t")), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotDecodeHashedKey() {
+        AlleleKey.ref(AlleleKey.of(1, 12345, "A", "N"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chrOutOfRange() {
+        AlleleKey.of(32, 12345, "A", "T");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void posOutOfRange() {
+        AlleleKey.of(1, AlleleKey.MAX_POS + 1, "A", "T");
+    }
+
+    @Test
+    public void keysArePositiveAndSortByChrThenPos() {
+        long key1 = AlleleKey.of(1, 20000, "T", "TTTTTT");
+        long key2 = AlleleKey.of(2, 10000, "A", "C");
+        long key3 = AlleleKey.of(25, 10000, "A", "C");
+        long key4 = AlleleKey.of(25, 10001, "A", "C");
+        assertThat(key1 > 0, is(true));
+        assertThat(key1 < key2, is(true));
+        assertThat(key2 < key3, is(true));
+        assertThat(key3 < key4, is(true));
+    }
+
+    @Test
+    public void differentAllelesAtSamePositionHaveDifferentKeys() {
+        String[] bases = {"A", "C", "G", "T", "AC", "CA", "AAA", "ACGTACGTAC"};
+        Set<Long> keys = new HashSet<>();
+        for (String ref : bases) {
+            for (String alt : bases) {
+                keys.add(AlleleKey.of(1, 12345, ref, alt));
+            }
+        }
+        assertThat(keys.size(), equalTo(bases.length * bases.length));
+        assertThat(AlleleKey.of(1, 12345, "A", "T"), not(equalTo(AlleleKey.of(1, 12345, "T", "A"))));
+    }
+
+    @Test
+    public void alleleGeneratePackedKey() {
+        Allele allele = new Allele(1, 12345, "A", "T");
+        assertThat(allele.generatePackedKey(), equalTo(AlleleKey.of(1, 12345, "A", "T")));
+        assertThat(AllelePosition.minimise(12345, "AT", "TT").toPackedKey(1), equalTo(allele.generatePackedKey()));
+    }
+
+    @Test
+    public void positionKeysBoundAllKeysAtPosition() {
+        long first = AlleleKey.firstKeyAt(1, 12345);
+        long last = AlleleKey.lastKeyAt(1, 12345);
+        for (long key : new long[]{AlleleKey.of(1, 12345, "A", "T"), AlleleKey.of(1, 12345, "TTTTTTTT", "TTT"), AlleleKey.of(1, 12345, "A", "N")}) {
+            assertThat(key >= first && key <= last, is(true));
+        }
+        assertThat(AlleleKey.lastKeyAt(1, 12344) < first, is(true));
+        assertThat(AlleleKey.firstKeyAt(1, 12346) > last, is(true));
+        assertThat(AlleleKey.chr(last), equalTo(1));
+        assertThat(AlleleKey.pos(last), equalTo(12345));
+    }
+
+    @Test
+    public void sortableKeysSortByChrThenPos() {
+        assertThat(AlleleKey.sortableKey(1, 12345, "A", "N"), equalTo("01-000012345-A-N"));
+        assertThat(new Allele(1, 12345, "A", "N").generateSortableKey(), equalTo("01-000012345-A-N"));
+        String key1 = AlleleKey.sortableKey(1, 9, "A", "N");
+        String key2 = AlleleKey.sortableKey(1, 10, "A", "N");
+        String key3 = AlleleKey.sortableKey(2, 1, "A", "N");
+        String key4 = AlleleKey.sortableKey(10, 1, "A", "N");
+        assertThat(key1.compareTo(key2) < 0, is(true));
+        assertThat(key2.compareTo(key3) < 0, is(true));
+        assertThat(key3.compareTo(key4) < 0, is(true));
+    }
+
+    @Test
+    public void sortablePositionKeysBoundAllKeysAtPosition() {
+        String first = AlleleKey.firstSortableKeyAt(1, 12345);
+        String last = AlleleKey.lastSortableKeyAt(1, 12345);
+        for (String key : new String[]{AlleleKey.sortableKey(1, 12345, "A", "N"), AlleleKey.sortableKey(1, 12345, "TTTTTTTT", "<DEL>")}) {
+            assertThat(key.compareTo(first) >= 0 && key.compareTo(last) <= 0, is(true));
+        }
+        assertThat(AlleleKey.lastSortableKeyAt(1, 12344).compareTo(first) < 0, is(true));
+        assertThat(AlleleKey.firstSortableKeyAt(1, 12346).compareTo(last) > 0, is(true));
+        assertThat(AlleleKey.lastSortableKeyAt(1, AlleleKey.MAX_POS).compareTo(AlleleKey.firstSortableKeyAt(2, 0)) < 0, is(true));
+    }
+}
@@ -3,6 +3,7 @@ package org.monarchinitiative.exomiser.allelestore.model;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.monarchinitiative.exomiser.allelestore.model.AllelePosition.minimise;
 
@@ -322,4 +323,31 @@ public class AllelePositionTest {
         assertThat(instance.getAlt(), equalTo("CCC"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testTrimSnv() {
+        assertThat(AllelePosition.trim("A", "T"), equalTo(AllelePosition.NO_TRIM));
+    }
+
+    @Test
+    public void testTrimRightAndLeft() {
+        long trim = AllelePosition.trim("TTTTATATGCATTCTTATCTTTTTATATGCATTCTTA", "TTTTATATGCATTCTTACCCTTTTATATGCATTCTTA");
+        assertThat(AllelePosition.leftTrim(trim), equalTo(17));
+        assertThat(AllelePosition.rightTrim(trim), equalTo(17));
+    }
+
+    @Test
+    public void testTrimDeletion() {
+        // AGTTC -> AGCC minimises to 1002 TT C
+        long trim = AllelePosition.trim("AGTTC", "AGCC");
+        assertThat(AllelePosition.leftTrim(trim), equalTo(2));
+        assertThat(AllelePosition.rightTrim(trim), equalTo(1));
+    }
+
+    @Test
+    public void testMinimiseSharesCommonBases() {
+        AllelePosition instance = minimise(1000, "AGTTC", "AGCC");
+        assertThat(instance.getRef(), sameInstance(AlleleBases.canonical(new String("TT"))));
+        assertThat(instance.getAlt(), sameInstance(AlleleBases.canonical(new String("C"))));
+    }
+
+}
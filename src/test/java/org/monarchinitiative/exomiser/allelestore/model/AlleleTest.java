@@ -4,10 +4,14 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -26,6 +30,14 @@ public class AlleleTest {
         assertThat(instance.getValues().isEmpty(), is(true));
     }
 
+    @Test
+    public void alleleSharesCommonBases() {
+        Allele snv = new Allele(1, 123435, new String("A"), new String("T"));
+        Allele other = new Allele(2, 5678, new String("A"), new String("T"));
+        assertThat(snv.getRef(), sameInstance(other.getRef()));
+        assertThat(snv.getAlt(), sameInstance(other.getAlt()));
+    }
+
     @Test
     public void allelesSortedNaturally() {
         Allele instance0 = new Allele(1, 123435, "A", "C");
@@ -57,6 +69,24 @@ public class AlleleTest {
         assertThat(instance.getRsId(), equalTo("."));
     }
 
+    @Test
+    public void testRsIdHeldAsNumber() {
+        Allele instance = new Allele(1, 123456, "A", "C");
+        instance.setRsId("rs2147483648");
+        assertThat(instance.getRsNumber(), equalTo(2147483648L));
+        assertThat(instance.getRsId(), equalTo("rs2147483648"));
+        assertThat(instance.hasRsId(), is(true));
+    }
+
+    @Test
+    public void testNonDbSnpIdIsMissingRsId() {
+        Allele instance = new Allele(1, 123456, "A", "C");
+        instance.setRsId("TMP_ESP_1_123456");
+        assertThat(instance.getRsNumber(), equalTo(RsId.NONE));
+        assertThat(instance.getRsId(), equalTo("."));
+        assertThat(instance.hasRsId(), is(false));
+    }
+
     @Test
     public void testGenerateInfoFieldNoRsId() {
         Allele instance = new Allele(1, 123456, "A", "C");
@@ -95,6 +125,61 @@ public class AlleleTest {
         assertThat(instance.getValues().size(), equalTo(1));
     }
 
+    @Test
+    public void testAddValuesOutOfOrder() {
+        Allele instance = new Allele(1, 123456, "A", "C");
+        instance.addValue(AlleleProperty.SIFT, 0.01f);
+        instance.addValue(AlleleProperty.KG, 0.12f);
+        instance.addValue(AlleleProperty.EXAC_AFR, 0.5f);
+        instance.addValue(AlleleProperty.KG, 0.13f);
+
+        Map<AlleleProperty, Float> expected = new EnumMap<>(AlleleProperty.class);
+        expected.put(AlleleProperty.KG, 0.13f);
+        expected.put(AlleleProperty.EXAC_AFR, 0.5f);
+        expected.put(AlleleProperty.SIFT, 0.01f);
+        assertThat(instance.getValues(), equalTo(expected));
+        assertThat(instance.getValueCount(), equalTo(3));
+        assertThat(instance.getValueMask(), equalTo(1 | 1 << AlleleProperty.EXAC_AFR.ordinal() | 1 << AlleleProperty.SIFT.ordinal()));
+        assertThat(instance.generateInfoField(), equalTo("KG=0.13;EXAC_AFR=0.5;SIFT=0.01"));
+    }
+
+    @Test
+    public void testGetMissingValue() {
+        Allele instance = new Allele(1, 123456, "A", "C");
+        instance.addValue(AlleleProperty.ESP_AA, 0.12f);
+        assertThat(instance.hasValue(AlleleProperty.KG), is(false));
+        assertThat(instance.getValue(AlleleProperty.KG), nullValue());
+        assertThat(instance.getValueOrDefault(AlleleProperty.KG, -1f), equalTo(-1f));
+        assertThat(instance.getValueOrDefault(AlleleProperty.ESP_AA, -1f), equalTo(0.12f));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetValuesIsUnmodifiable() {
+        Allele instance = new Allele(1, 123456, "A", "C");
+        instance.getValues().put(AlleleProperty.KG, 0.12f);
+    }
+
+    @Test
+    public void testAddMissingValues() {
+        Allele instance = new Allele(1, 123456, "A", "C");
+        instance.addValue(AlleleProperty.ESP_AA, 0.1f);
+        instance.addValue(AlleleProperty.SIFT, 0.2f);
+
+        Allele other = new Allele(1, 123456, "A", "C");
+        other.addValue(AlleleProperty.KG, 0.3f);
+        other.addValue(AlleleProperty.SIFT, 0.4f);
+        other.addValue(AlleleProperty.POLYPHEN, 0.5f);
+
+        instance.addMissingValues(other);
+
+        Map<AlleleProperty, Float> expected = new EnumMap<>(AlleleProperty.class);
+        expected.put(AlleleProperty.KG, 0.3f);
+        expected.put(AlleleProperty.ESP_AA, 0.1f);
+        expected.put(AlleleProperty.SIFT, 0.2f);
+        expected.put(AlleleProperty.POLYPHEN, 0.5f);
+        assertThat(instance.getValues(), equalTo(expected));
+    }
+
     @Test
     public void testEquality() {
         Allele instance0 = new Allele(1, 123456, "A", "C");
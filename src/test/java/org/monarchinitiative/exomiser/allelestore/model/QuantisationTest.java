@@ -0,0 +1,72 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class QuantisationTest {
+
+    @Test
+    public void propertiesUseTheQuantisationOfTheirRange() {
+        for (AlleleProperty property : AlleleProperty.FREQUENCY_PROPERTIES) {
+            assertThat(Quantisation.of(property), equalTo(Quantisation.HALF_PRECISION));
+        }
+        for (AlleleProperty property : AlleleProperty.PATHOGENIC_PROPERTIES) {
+            assertThat(Quantisation.of(property), equalTo(Quantisation.UNIT_FIXED_POINT));
+        }
+    }
+
+    @Test
+    public void halfPrecisionDecodesEveryEncoding() {
+        for (int bits = 0; bits <= 0xffff; bits++) {
+            short half = (short) bits;
+            float value = Quantisation.HALF_PRECISION.decode(half);
+            if (!Float.isNaN(value)) {
+                assertThat(Quantisation.HALF_PRECISION.encode(value), equalTo(half));
+            }
+        }
+    }
+
+    @Test
+    public void halfPrecisionMatchesKnownValues() {
+        assertThat(Quantisation.HALF_PRECISION.quantise(1f), equalTo(1f));
+        assertThat(Quantisation.HALF_PRECISION.quantise(100f), equalTo(100f));
+        assertThat(Quantisation.HALF_PRECISION.quantise(0.1f), equalTo(0.099975586f));
+        assertThat(Quantisation.HALF_PRECISION.quantise(65504f), equalTo(65504f));
+        assertThat(Quantisation.HALF_PRECISION.quantise(70000f), equalTo(Float.POSITIVE_INFINITY));
+        assertThat(Quantisation.HALF_PRECISION.quantise(0x1p-24f), equalTo(0x1p-24f));
+        assertThat(Quantisation.HALF_PRECISION.quantise(0x1p-26f), equalTo(0f));
+        assertThat(Float.isNaN(Quantisation.HALF_PRECISION.quantise(Float.NaN)), equalTo(true));
+    }
+
+    @Test
+    public void halfPrecisionErrorIsWithinMaxError() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            // frequencies from 100% down to 1e-8%
+            float value = (float) Math.pow(10, 2 - random.nextDouble() * 10);
+            float error = Math.abs(Quantisation.HALF_PRECISION.quantise(value) - value);
+            assertThat(error, lessThanOrEqualTo(Quantisation.HALF_PRECISION.maxError(value)));
+        }
+    }
+
+    @Test
+    public void unitFixedPointErrorIsWithinMaxError() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            float value = random.nextFloat();
+            float error = Math.abs(Quantisation.UNIT_FIXED_POINT.quantise(value) - value);
+            assertThat(error, lessThanOrEqualTo(Quantisation.UNIT_FIXED_POINT.maxError(value)));
+        }
+        assertThat(Quantisation.UNIT_FIXED_POINT.quantise(0f), equalTo(0f));
+        assertThat(Quantisation.UNIT_FIXED_POINT.quantise(1f), equalTo(1f));
+        assertThat(Quantisation.UNIT_FIXED_POINT.quantise(1.5f), equalTo(1f));
+    }
+}
@@ -0,0 +1,37 @@
+package org.monarchinitiative.exomiser.allelestore.model;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class RsIdTest {
+
+    @Test
+    public void testParse() {
+        assertThat(RsId.parse("rs12345"), equalTo(12345L));
+        assertThat(RsId.parse("rs999999999999999999"), equalTo(999_999_999_999_999_999L));
+    }
+
+    @Test
+    public void testParseRange() {
+        assertThat(RsId.parse("1\t12345\trs200118651;rs202059104", 8, 19), equalTo(200118651L));
+    }
+
+    @Test
+    public void testParseNotAnRsId() {
+        String[] values = {"", ".", "rs", "rs12a", "RS123", "ss123", "TMP_ESP_1_12345", "rs1234567890123456789"};
+        for (String value : values) {
+            assertThat(value, RsId.parse(value), equalTo(RsId.NONE));
+        }
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(RsId.toString(12345L), equalTo("rs12345"));
+        assertThat(RsId.toString(RsId.NONE), equalTo("."));
+    }
+}
@@ -1,5 +1,14 @@
 package org.monarchinitiative.exomiser.allelestore.parsers;
 
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 
 /**
@@ -7,6 +16,67 @@ import static org.junit.Assert.*;
  */
 public class DbNsfpAlleleParserTest {
 
+    private static final String HEADER = "#chr\tpos(1-based)\tref\talt\trs_dbSNP147\thg19_chr\thg19_pos(1-based)\tSIFT_score\tPolyphen2_HVAR_score\tMutationTaster_score\tMutationTaster_pred\tgenename\tEnsembl_transcriptid";
+
+    private DbNsfpAlleleParser newParser() {
+        DbNsfpAlleleParser instance = new DbNsfpAlleleParser();
+        assertThat(instance.parseLine(HEADER).isEmpty(), is(true));
+        return instance;
+    }
+
+    @Test
+    public void testParseLineReadsHeaderColumns() {
+        DbNsfpAlleleParser instance = newParser();
+        List<Allele> alleles = instance.parseLine("1\t69092\tT\tC\trs123\t1\t69092\t0.05;0.01\t0.457\t0.99;0.5\tA;N\tOR4F5\tENST00000335137");
+
+        assertThat(alleles.size(), equalTo(1));
+        Allele allele = alleles.get(0);
+        assertThat(allele.getChr(), equalTo(1));
+        assertThat(allele.getPos(), equalTo(69092));
+        assertThat(allele.getRef(), equalTo("T"));
+        assertThat(allele.getAlt(), equalTo("C"));
+        assertThat(allele.getRsId(), equalTo("rs123"));
+        assertThat(allele.getValue(AlleleProperty.SIFT), equalTo(0.01f));
+        assertThat(allele.getValue(AlleleProperty.POLYPHEN), equalTo(0.457f));
+        assertThat(allele.getValue(AlleleProperty.MUT_TASTER), equalTo(0.99f));
+    }
+
+    @Test
+    public void testParseLineIgnoresColumnsAfterLastRequired() {
+        DbNsfpAlleleParser instance = newParser();
+        String line = "1\t69092\tT\tC\t.\t1\t69092\t.\t0.457\t.\t.\tOR4F5\tnot\tan\tinteresting\tcolumn";
+        List<Allele> alleles = instance.parseLine(line);
+
+        assertThat(alleles.size(), equalTo(1));
+        assertThat(alleles.get(0).getValues().size(), equalTo(1));
+        assertThat(instance.parseLine(new AsciiLine(line.getBytes(StandardCharsets.US_ASCII))), equalTo(alleles));
+    }
+
+    @Test
+    public void testRowCounts() {
+        DbNsfpAlleleParser instance = newParser();
+        // empty rsId and score columns
+        instance.parseLine("1\t69092\tT\tC\t.\t1\t69092\t.;.\t.\t.;.\t.;.\tOR4F5\t.");
+        // no hg19 position
+        instance.parseLine("1\t69092\tT\tC\trs123\t.\t.\t0.05\t0.457\t0.99\tA\tOR4F5\t.");
+        // scores present but none are usable
+        instance.parseLine("1\t69092\tT\tC\t.\t1\t69092\t.\t.\t0.99\tN\tOR4F5\t.");
+        instance.parseLine("1\t69092\tT\tC\trs123\t1\t69092\t0.05\t0.457\t0.99\tA\tOR4F5\t.");
+
+        DbNsfpAlleleParser.RowCounts rowCounts = instance.getRowCounts();
+        assertThat(rowCounts.getRows(), equalTo(4L));
+        assertThat(rowCounts.getEmptyRows(), equalTo(1L));
+        assertThat(rowCounts.getUnknownChromosomeRows(), equalTo(1L));
+        assertThat(rowCounts.getNoScoreRows(), equalTo(1L));
+        assertThat(rowCounts.getAlleles(), equalTo(1L));
+    }
+
+    @Test
+    public void testParseLineWithoutRsIdOrScores() {
+        DbNsfpAlleleParser instance = newParser();
+        assertThat(instance.parseLine("1\t69092\tT\tC\t.\t1\t69092\t.\t.\t.\t.\tOR4F5\t.").isEmpty(), is(true));
+    }
+
 
     //##chr	pos(1-based)	ref	alt	aaref	aaalt	rs_dbSNP147	hg19_chr	hg19_pos(1-based)	hg18_chr	hg18_pos(1-based)	genename	cds_strand	refcodon	codonpos	codon_degeneracy	Ancestral_allele	AltaiNeandertal	Denisova	Ensembl_geneid	Ensembl_transcriptid	Ensembl_proteinid	aapos	SIFT_score	SIFT_converted_rankscore	SIFT_pred	Uniprot_acc_Polyphen2	Uniprot_id_Polyphen2	Uniprot_aapos_Polyphen2	Polyphen2_HDIV_score	Polyphen2_HDIV_rankscore	Polyphen2_HDIV_pred	Polyphen2_HVAR_score	Polyphen2_HVAR_rankscore	Polyphen2_HVAR_pred	LRT_score	LRT_converted_rankscore	LRT_pred	LRT_Omega	MutationTaster_score	MutationTaster_converted_rankscore	MutationTaster_pred	MutationTaster_model	MutationTaster_AAE	MutationAssessor_UniprotID	MutationAssessor_variant	MutationAssessor_score	MutationAssessor_score_rankscore	MutationAssessor_pred	FATHMM_score	FATHMM_converted_rankscore	FATHMM_pred	PROVEAN_score	PROVEAN_converted_rankscore	PROVEAN_pred	Transcript_id_VEST3	Transcript_var_VEST3	VEST3_score	VEST3_rankscore	MetaSVM_score	MetaSVM_rankscore	MetaSVM_pred	MetaLR_score	MetaLR_rankscore	MetaLR_pred	Reliability_index	M-CAP_score	M-CAP_rankscore	M-CAP_pred	CADD_raw	CADD_raw_rankscore	CADD_phred	DANN_score	DANN_rankscore	fathmm-MKL_coding_score	fathmm-MKL_coding_rankscore	fathmm-MKL_coding_pred	fathmm-MKL_coding_group	Eigen_coding_or_noncoding	Eigen-raw	Eigen-phred	Eigen-PC-raw	Eigen-PC-phred	Eigen-PC-raw_rankscore	GenoCanyon_score	GenoCanyon_score_rankscore	integrated_fitCons_score	integrated_fitCons_score_rankscore	integrated_confidence_value	GM12878_fitCons_score	GM12878_fitCons_score_rankscore	GM12878_confidence_value	H1-hESC_fitCons_score	H1-hESC_fitCons_score_rankscore	H1-hESC_confidence_value	HUVEC_fitCons_score	HUVEC_fitCons_score_rankscore	HUVEC_confidence_value	GERP++_NR	GERP++_RS	GERP++_RS_rankscore	phyloP100way_vertebrate	phyloP100way_vertebrate_rankscore	phyloP20way_mammalian	phyloP20way_mammalian_rankscore	phastCons100way_vertebrate	phastCons100way_vertebrate_rankscore	phastCons20way_mammalian	phastCons20way_mammalian_rankscore	SiPhy_29way_pi	SiPhy_29way_logOdds	SiPhy_29way_logOdds_rankscore	1000Gp3_AC	1000Gp3_AF	1000Gp3_AFR_AC	1000Gp3_AFR_AF	1000Gp3_EUR_AC	1000Gp3_EUR_AF	1000Gp3_AMR_AC	1000Gp3_AMR_AF	1000Gp3_EAS_AC	1000Gp3_EAS_AF	1000Gp3_SAS_AC	1000Gp3_SAS_AF	TWINSUK_AC	TWINSUK_AF	ALSPAC_AC	ALSPAC_AF	ESP6500_AA_AC	ESP6500_AA_AF	ESP6500_EA_AC	ESP6500_EA_AF	ExAC_AC	ExAC_AF	ExAC_Adj_AC	ExAC_Adj_AF	ExAC_AFR_AC	ExAC_AFR_AF	ExAC_AMR_AC	ExAC_AMR_AF	ExAC_EAS_AC	ExAC_EAS_AF	ExAC_FIN_AC	ExAC_FIN_AF	ExAC_NFE_AC	ExAC_NFE_AF	ExAC_SAS_AC	ExAC_SAS_AF	ExAC_nonTCGA_AC	ExAC_nonTCGA_AF	ExAC_nonTCGA_Adj_AC	ExAC_nonTCGA_Adj_AF	ExAC_nonTCGA_AFR_AC	ExAC_nonTCGA_AFR_AF	ExAC_nonTCGA_AMR_AC	ExAC_nonTCGA_AMR_AF	ExAC_nonTCGA_EAS_AC	ExAC_nonTCGA_EAS_AF	ExAC_nonTCGA_FIN_AC	ExAC_nonTCGA_FIN_AF	ExAC_nonTCGA_NFE_AC	ExAC_nonTCGA_NFE_AF	ExAC_nonTCGA_SAS_AC	ExAC_nonTCGA_SAS_AF	ExAC_nonpsych_AC	ExAC_nonpsych_AF	ExAC_nonpsych_Adj_AC	ExAC_nonpsych_Adj_AF	ExAC_nonpsych_AFR_AC	ExAC_nonpsych_AFR_AF	ExAC_nonpsych_AMR_AC	ExAC_nonpsych_AMR_AF	ExAC_nonpsych_EAS_AC	ExAC_nonpsych_EAS_AF	ExAC_nonpsych_FIN_AC	ExAC_nonpsych_FIN_AF	ExAC_nonpsych_NFE_AC	ExAC_nonpsych_NFE_AF	ExAC_nonpsych_SAS_AC	ExAC_nonpsych_SAS_AF	clinvar_rs	clinvar_clnsig	clinvar_trait	clinvar_golden_stars	Interpro_domain	GTEx_V6_gene	GTEx_V6_tissue
 
@@ -382,4 +382,30 @@ public class ExacAlleleParserTest {
 //        assertThat(frequencies.field("EXAC_OTH", OType.DOUBLE), equalTo(0.0));
 //        assertThat(frequencies.field("EXAC_SAS", OType.DOUBLE), equalTo(0.0));
     }
+
+    @Test
+    public void testParseMultiAllelicCountsBeforeCsq() throws Exception {
+        String line = "1\t1000\t.\tC\tA,T\t100.0\tPASS\tAC=3;AC_AFR=1,0;AC_AMR=0,0;AC_Adj=3;AC_EAS=0,0;AC_FIN=0,0;AC_Het=1,2,0;AC_NFE=0,2;AC_OTH=0,0;AC_SAS=0,0;" +
+                "AN_AFR=100;AN_AMR=100;AN_Adj=700;AN_EAS=100;AN_FIN=100;AN_NFE=400;AN_OTH=100;AN_SAS=100;CSQ=A|missense_variant|MODERATE,T|missense_variant|MODERATE";
+        List<Allele> alleles = parseLine(line);
+
+        assertThat(alleles.size(), equalTo(2));
+        Map<AlleleProperty, Float> first = alleles.get(0).getValues();
+        assertThat(first.size(), equalTo(1));
+        assertThat(first.get(AlleleProperty.EXAC_AFR), equalTo(1f));
+        Map<AlleleProperty, Float> second = alleles.get(1).getValues();
+        assertThat(second.size(), equalTo(1));
+        assertThat(second.get(AlleleProperty.EXAC_NFE), equalTo(0.5f));
+    }
+
+    @Test
+    public void testParseMissingPopulationCounts() throws Exception {
+        String line = "1\t1000\t.\tC\tA\t100.0\tPASS\tAC=1;AC_AFR=1;AN_AFR=200";
+        List<Allele> alleles = parseLine(line);
+
+        assertThat(alleles.size(), equalTo(1));
+        Map<AlleleProperty, Float> frequencies = alleles.get(0).getValues();
+        assertThat(frequencies.size(), equalTo(1));
+        assertThat(frequencies.get(AlleleProperty.EXAC_AFR), equalTo(0.5f));
+    }
 }
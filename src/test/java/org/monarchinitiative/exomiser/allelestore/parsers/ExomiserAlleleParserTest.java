@@ -1,7 +1,14 @@
 package org.monarchinitiative.exomiser.allelestore.parsers;
 
 import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.*;
 
 /**
@@ -16,4 +23,19 @@ public class ExomiserAlleleParserTest {
         instance.parseLine(line);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParseLineIgnoresRsInfoField() {
+        String line = "1\t12345\trs12345\tA\tT\t.\t.\tRS=rs12345;KG=0.12;ESP_EA=0.03";
+        ExomiserAlleleParser instance = new ExomiserAlleleParser();
+        List<Allele> alleles = instance.parseLine(line);
+        assertThat(alleles.size(), equalTo(1));
+
+        Allele allele = alleles.get(0);
+        assertThat(allele.getRsId(), equalTo("rs12345"));
+        Map<AlleleProperty, Float> expected = new EnumMap<>(AlleleProperty.class);
+        expected.put(AlleleProperty.KG, 0.12f);
+        expected.put(AlleleProperty.ESP_EA, 0.03f);
+        assertThat(allele.getValues(), equalTo(expected));
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class FloatParserTest {
+
+    private void assertParsesAsJdk(String value) {
+        int expected = Float.floatToRawIntBits(Float.parseFloat(value));
+        int actual = Float.floatToRawIntBits(FloatParser.parseFloat(value));
+        assertThat(value, actual, equalTo(expected));
+    }
+
+    @Test
+    public void testFrequenciesAndScores() {
+        String[] values = {"0", "1", "0.0", "-0.0", "0.9413", "0.05871", "44.9781", "5.8710003", "0.001", "0.999",
+                "100", "1.0E-4", "8.249e-06", "-5.200e-01", "+0.5", ".5", "5.", "1e10", "3.4028235E38", "1.4E-45",
+                "0.000000000000000000000000001", "123456789012345678", "NaN", "-Infinity", " 0.5 ", "0.5f", "0x1p3"};
+        for (String value : values) {
+            assertParsesAsJdk(value);
+        }
+    }
+
+    @Test
+    public void testValuesHalfWayBetweenFloats() {
+        // 2^24 + 1 and 2^24 + 3 are exact doubles exactly half way between two floats, so round to even
+        assertParsesAsJdk("16777217");
+        assertParsesAsJdk("16777219");
+        assertParsesAsJdk("1677721.7e1");
+    }
+
+    @Test
+    public void testRange() {
+        assertThat(FloatParser.parseFloat("CAF=0.9413,0.05871", 11, 18), equalTo(0.05871f));
+    }
+
+    @Test
+    public void testRandomFloats() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            assertParsesAsJdk(Float.toString(Float.intBitsToFloat(random.nextInt())));
+            assertParsesAsJdk(Float.toString(random.nextFloat() * 100));
+            assertParsesAsJdk(Double.toString(random.nextDouble()));
+            assertParsesAsJdk(randomDecimal(random));
+        }
+    }
+
+    private String randomDecimal(Random random) {
+        StringBuilder stringBuilder = new StringBuilder();
+        int numDigits = 1 + random.nextInt(16);
+        int point = random.nextInt(numDigits + 1);
+        for (int i = 0; i < numDigits; i++) {
+            if (i == point) {
+                stringBuilder.append('.');
+            }
+            stringBuilder.append(random.nextInt(10));
+        }
+        if (random.nextInt(4) == 0) {
+            stringBuilder.append('e').append(random.nextInt(50) - 25);
+        }
+        return stringBuilder.toString();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testEmpty() {
+        FloatParser.parseFloat("");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testNotANumber() {
+        FloatParser.parseFloat(".");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testMissingExponent() {
+        FloatParser.parseFloat("1e");
+    }
+}
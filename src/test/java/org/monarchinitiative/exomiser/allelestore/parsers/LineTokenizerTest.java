@@ -0,0 +1,45 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class LineTokenizerTest {
+
+    @Test
+    public void testOnlyScansRequestedColumns() {
+        LineTokenizer instance = new LineTokenizer(3).reset("1\t69091\tA\tC\t.\t0.001");
+        assertThat(instance.hasColumn(2), is(true));
+        assertThat(instance.hasColumn(3), is(false));
+        assertThat(instance.column(0), equalTo("1"));
+        assertThat(instance.column(1), equalTo("69091"));
+        // the last requested column ends at the next tab
+        assertThat(instance.column(2), equalTo("A"));
+    }
+
+    @Test
+    public void testShortLine() {
+        LineTokenizer instance = new LineTokenizer(10).reset("1\t69091");
+        assertThat(instance.hasColumn(1), is(true));
+        assertThat(instance.hasColumn(2), is(false));
+        assertThat(instance.column(1), equalTo("69091"));
+    }
+
+    @Test
+    public void testEmptyColumns() {
+        LineTokenizer instance = new LineTokenizer(4).reset("1\t\t\tC");
+        assertThat(instance.column(1), equalTo(""));
+        assertThat(instance.column(2), equalTo(""));
+        assertThat(instance.column(3), equalTo("C"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingColumn() {
+        new LineTokenizer(4).reset("1\t69091").column(3);
+    }
+}
@@ -0,0 +1,84 @@
+package org.monarchinitiative.exomiser.allelestore.parsers;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class VcfLineTokenizerTest {
+
+    private static final String LINE = "1\t8036291\trs72854879\tT\tC,G\t.\t.\tRS=72854879;VC=SNV;SLO;CAF=0.9413,0.05871,.;COMMON=1\tGT\t0/1";
+
+    @Test
+    public void testColumns() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        assertThat(instance.column(VcfLineTokenizer.CHROM), equalTo("1"));
+        assertThat(instance.column(VcfLineTokenizer.POS), equalTo("8036291"));
+        assertThat(instance.column(VcfLineTokenizer.ID), equalTo("rs72854879"));
+        assertThat(instance.column(VcfLineTokenizer.REF), equalTo("T"));
+        assertThat(instance.column(VcfLineTokenizer.ALT), equalTo("C,G"));
+        assertThat(instance.column(VcfLineTokenizer.INFO), equalTo("RS=72854879;VC=SNV;SLO;CAF=0.9413,0.05871,.;COMMON=1"));
+    }
+
+    @Test
+    public void testNoInfoColumn() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset("1\t12345\t.\tA\tT");
+        assertThat(instance.hasColumn(VcfLineTokenizer.ALT), is(true));
+        assertThat(instance.hasColumn(VcfLineTokenizer.INFO), is(false));
+        assertThat(instance.findInfoValue("CAF"), equalTo(-1));
+    }
+
+    @Test
+    public void testResetReusesInstance() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        instance.reset("2\t12345\t.\tA\tT\t.\t.\tCAF=0.5,0.5");
+        assertThat(instance.column(VcfLineTokenizer.CHROM), equalTo("2"));
+        assertThat(instance.column(VcfLineTokenizer.INFO), equalTo("CAF=0.5,0.5"));
+    }
+
+    @Test
+    public void testParseInt() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        assertThat(instance.parseInt(instance.start(VcfLineTokenizer.POS), instance.end(VcfLineTokenizer.POS)), equalTo(8036291));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseIntNotANumber() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        instance.parseInt(instance.start(VcfLineTokenizer.ID), instance.end(VcfLineTokenizer.ID));
+    }
+
+    @Test
+    public void testFindInfoValue() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        int start = instance.findInfoValue("CAF");
+        assertThat(instance.substring(start, instance.infoValueEnd(start)), equalTo("0.9413,0.05871,."));
+        int commonStart = instance.findInfoValue("COMMON");
+        assertThat(instance.substring(commonStart, instance.infoValueEnd(commonStart)), equalTo("1"));
+    }
+
+    @Test
+    public void testFindInfoValueOnlyMatchesWholeKeys() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        assertThat(instance.findInfoValue("CA"), equalTo(-1));
+        assertThat(instance.findInfoValue("SLO"), equalTo(-1));
+        assertThat(instance.findInfoValue("VC=SNV"), equalTo(-1));
+    }
+
+    @Test
+    public void testSubfieldStart() {
+        VcfLineTokenizer instance = new VcfLineTokenizer().reset(LINE);
+        int start = instance.findInfoValue("CAF");
+        int end = instance.infoValueEnd(start);
+        assertThat(instance.subfieldStart(start, end, ',', 0), equalTo(start));
+        int second = instance.subfieldStart(start, end, ',', 1);
+        assertThat(instance.substring(second, instance.indexOf(',', second, end)), equalTo("0.05871"));
+        int third = instance.subfieldStart(start, end, ',', 2);
+        assertThat(instance.substring(third, instance.indexOf(',', third, end)), equalTo("."));
+        assertThat(instance.subfieldStart(start, end, ',', 3), equalTo(-1));
+    }
+}
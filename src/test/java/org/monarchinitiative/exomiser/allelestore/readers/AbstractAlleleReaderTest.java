@@ -0,0 +1,176 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.exomiser.allelestore.indexers.AlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that the alleles written by an {@link AlleleIndexer} are read back unchanged by its {@link AlleleReader}.
+ *
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public abstract class AbstractAlleleReaderTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    protected abstract AlleleIndexer newIndexer(Path indexPath);
+
+    protected abstract AlleleReader newReader(Path indexPath) throws IOException;
+
+    static List<Allele> makeAlleles() {
+        List<Allele> alleles = new ArrayList<>();
+        Allele snp = new Allele(1, 12345, "A", "T");
+        snp.setRsId("rs12345");
+        snp.addValue(AlleleProperty.KG, 0.12f);
+        snp.addValue(AlleleProperty.SIFT, 0.001f);
+        alleles.add(snp);
+        alleles.add(new Allele(1, 12345, "A", "G"));
+        Allele longInsertion = new Allele(1, 12345, "A", "ATTTTTTTTTTTTTTT");
+        longInsertion.setRsId("rs999");
+        longInsertion.addValue(AlleleProperty.ESP_ALL, 1.5f);
+        alleles.add(longInsertion);
+        Allele deletion = new Allele(1, 12350, "TA", "T");
+        deletion.addValue(AlleleProperty.EXAC_NFE, 0.0034f);
+        alleles.add(deletion);
+        alleles.add(new Allele(1, 12360, "N", "C"));
+        alleles.add(new Allele(2, 12345, "C", "G"));
+        Collections.sort(alleles);
+        return alleles;
+    }
+
+    AlleleReader buildIndex(List<Allele> alleles) throws IOException {
+        return buildIndex(alleles, this::newIndexer);
+    }
+
+    AlleleReader buildIndex(List<Allele> alleles, Function<Path, AlleleIndexer> indexerFactory) throws IOException {
+        Path alleleFile = tempFolder.newFile("exomiser-all.vcf").toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(alleleFile)) {
+            for (Allele allele : alleles) {
+                String info = allele.generateInfoField();
+                writer.write(allele.getChr() + "\t" + allele.getPos() + "\t" + allele.getRsId() + "\t" + allele.getRef() + "\t" + allele.getAlt() + "\t.\t.\t" + (info.isEmpty() ? "." : info) + "\n");
+            }
+        }
+        Path indexPath = tempFolder.newFolder("index").toPath();
+        indexerFactory.apply(indexPath).buildIndex(alleleFile, indexPath);
+        return newReader(indexPath);
+    }
+
+    static List<String> toStrings(Collection<Allele> alleles) {
+        return alleles.stream().map(Allele::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles)) {
+            for (Allele allele : alleles) {
+                Allele indexed = instance.get(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt());
+                assertThat(String.valueOf(indexed), equalTo(allele.toString()));
+            }
+            assertThat(instance.get(1, 12345, "A", "C"), nullValue());
+            assertThat(instance.get(3, 12345, "A", "T"), nullValue());
+            assertThat(instance.get(1, 12345, "A", "ATTTTTTTTTTTTTTTT"), nullValue());
+        }
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles)) {
+            Allele missing = new Allele(1, 12345, "A", "C");
+            Map<Allele, Allele> found = instance.getAll(Arrays.asList(alleles.get(0), missing, alleles.get(5)));
+            assertThat(found.size(), equalTo(2));
+            assertThat(found.get(alleles.get(0)).toString(), equalTo(alleles.get(0).toString()));
+            assertThat(found.get(alleles.get(5)).toString(), equalTo(alleles.get(5).toString()));
+            assertThat(found.get(missing), nullValue());
+        }
+    }
+
+    @Test
+    public void testGetRegion() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles)) {
+            assertThat(toStrings(instance.getRegion(1, 1, 100_000)), equalTo(toStrings(alleles.subList(0, 5))));
+            assertThat(toStrings(instance.getRegion(1, 12345, 12350)), equalTo(toStrings(alleles.subList(0, 4))));
+            assertThat(toStrings(instance.getRegion(1, 12346, 12360)), equalTo(toStrings(alleles.subList(3, 5))));
+            assertThat(toStrings(instance.getRegion(2, 12345, 12345)), equalTo(toStrings(alleles.subList(5, 6))));
+            assertThat(instance.getRegion(1, 12351, 12359).isEmpty(), equalTo(true));
+            assertThat(instance.getRegion(3, 1, 100_000).isEmpty(), equalTo(true));
+        }
+    }
+
+    @Test
+    public void testOutOfRangeAllelesAreMissing() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles)) {
+            assertThat(instance.get(99, 12345, "A", "T"), nullValue());
+            assertThat(instance.get(-1, 12345, "A", "T"), nullValue());
+            assertThat(instance.get(1, -1, "A", "T"), nullValue());
+            assertThat(instance.get(1, Integer.MAX_VALUE, "A", "ATTTTTTTTTTTTTTT"), nullValue());
+            List<Allele> requested = Arrays.asList(new Allele(99, 12345, "A", "T"), alleles.get(0), new Allele(1, -1, "A", "T"), new Allele(1, Integer.MAX_VALUE, "N", "C"));
+            Map<Allele, Allele> found = instance.getAll(requested);
+            assertThat(found.size(), equalTo(1));
+            assertThat(found.get(alleles.get(0)).toString(), equalTo(alleles.get(0).toString()));
+        }
+    }
+
+    @Test
+    public void testGetRegionOutOfRange() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles)) {
+            assertThat(toStrings(instance.getRegion(1, -100, Integer.MAX_VALUE)), equalTo(toStrings(alleles.subList(0, 5))));
+            assertThat(instance.getRegion(99, 1, 100_000).isEmpty(), equalTo(true));
+            assertThat(instance.getRegion(-1, 1, 100_000).isEmpty(), equalTo(true));
+            assertThat(instance.getRegion(1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE).isEmpty(), equalTo(true));
+        }
+    }
+
+    @Test
+    public void testGetAllMatchesGet() throws Exception {
+        Random random = new Random(42);
+        String[] bases = {"A", "C", "G", "T"};
+        Set<Allele> indexed = new TreeSet<>(makeAlleles());
+        List<Allele> requested = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // clusters of close alleles separated by large gaps, so both the steps and seeks of a sweep are used
+            int pos = 1 + (i / 50) * 100_000 + random.nextInt(500);
+            Allele allele = new Allele(1 + random.nextInt(2), pos, bases[random.nextInt(4)], bases[random.nextInt(4)] + (i % 40 == 0 ? "TTTTTTTTTTTTTTT" : ""));
+            allele.addValue(AlleleProperty.KG, random.nextFloat());
+            if (random.nextBoolean()) {
+                indexed.add(allele);
+            }
+            requested.add(allele);
+        }
+        requested.addAll(makeAlleles());
+        Collections.shuffle(requested, random);
+        try (AlleleReader instance = buildIndex(new ArrayList<>(indexed))) {
+            Map<Allele, Allele> expected = new HashMap<>();
+            for (Allele allele : requested) {
+                Allele found = instance.get(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt());
+                if (found != null) {
+                    expected.put(allele, found);
+                }
+            }
+            Map<Allele, Allele> found = instance.getAll(requested);
+            assertThat(found.size(), equalTo(expected.size()));
+            assertThat(toStrings(new TreeSet<>(found.values())), equalTo(toStrings(new TreeSet<>(expected.values()))));
+            assertThat(instance.getAll(Collections.emptyList()).isEmpty(), equalTo(true));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.AlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.indexers.LuceneAlleleIndexer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class LuceneAlleleReaderTest extends AbstractAlleleReaderTest {
+
+    @Override
+    protected AlleleIndexer newIndexer(Path indexPath) {
+        return new LuceneAlleleIndexer(indexPath);
+    }
+
+    @Override
+    protected AlleleReader newReader(Path indexPath) throws IOException {
+        return new LuceneAlleleReader(indexPath);
+    }
+}
@@ -0,0 +1,40 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.AlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.indexers.MapDBAlleleIndexer;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MapDBAlleleReaderTest extends AbstractAlleleReaderTest {
+
+    @Override
+    protected AlleleIndexer newIndexer(Path indexPath) {
+        return new MapDBAlleleIndexer(indexPath, true);
+    }
+
+    @Override
+    protected AlleleReader newReader(Path indexPath) throws IOException {
+        return new MapDBAlleleReader(indexPath);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStringKeysCannotBeReadByRegion() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles, MapDBAlleleIndexer::new)) {
+            Allele snp = alleles.get(0);
+            assertThat(instance.get(snp.getChr(), snp.getPos(), snp.getRef(), snp.getAlt()).toString(), equalTo(snp.toString()));
+            instance.getRegion(1, 12345, 12360);
+        }
+    }
+}
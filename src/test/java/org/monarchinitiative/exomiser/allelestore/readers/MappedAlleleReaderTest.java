@@ -0,0 +1,91 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.indexers.AlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.indexers.MappedAlleleFormat;
+import org.monarchinitiative.exomiser.allelestore.indexers.MappedAlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MappedAlleleReaderTest extends AbstractAlleleReaderTest {
+
+    @Override
+    protected AlleleIndexer newIndexer(Path indexPath) {
+        return new MappedAlleleIndexer(indexPath);
+    }
+
+    @Override
+    protected AlleleReader newReader(Path indexPath) throws IOException {
+        return new MappedAlleleReader(indexPath);
+    }
+
+    @Test
+    public void testAllelesSpanningBlocks() throws Exception {
+        List<Allele> alleles = new ArrayList<>();
+        String[] bases = {"A", "C", "G", "T"};
+        int numAlleles = MappedAlleleFormat.BLOCK_SIZE * 3 + 10;
+        for (int i = 0; i < numAlleles; i++) {
+            // runs of 16 alleles share a pos, so some of them cross the block boundaries
+            int pos = 1000 + (i / 16) * 10;
+            String alt = bases[i % 4] + (i % 16 < 4 ? "" : "TTTTTTTTTTTTTTTTTTTT".substring(0, i % 16));
+            Allele allele = new Allele(1, pos, "N", alt);
+            allele.setRsNumber(i + 1);
+            allele.addValue(AlleleProperty.KG, i);
+            if (i % 3 == 0) {
+                // sparse values, counted across the rank blocks
+                allele.addValue(AlleleProperty.SIFT, i / 1000f);
+            }
+            alleles.add(allele);
+        }
+        Collections.sort(alleles);
+        try (AlleleReader instance = buildIndex(alleles)) {
+            for (Allele allele : alleles) {
+                Allele found = instance.get(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt());
+                assertThat(found.toString(), equalTo(allele.toString()));
+            }
+            assertThat(instance.get(1, 1005, "N", "A"), nullValue());
+            assertThat(toStrings(instance.getRegion(1, 0, Integer.MAX_VALUE)), equalTo(toStrings(alleles)));
+            assertThat(instance.getAll(alleles).size(), equalTo(numAlleles));
+        }
+    }
+
+    @Test
+    public void testReadsOnlySelectedProperties() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        buildIndex(alleles).close();
+        Path indexPath = tempFolder.getRoot().toPath().resolve("index");
+        Allele snp = new Allele(1, 12345, "A", "T");
+        try (AlleleReader instance = new MappedAlleleReader(indexPath, AlleleProperty.FREQUENCY_PROPERTIES)) {
+            Allele frequencies = instance.get(snp.getChr(), snp.getPos(), snp.getRef(), snp.getAlt());
+            assertThat(frequencies.getValue(AlleleProperty.KG), equalTo(0.12f));
+            assertThat(frequencies.hasValue(AlleleProperty.SIFT), equalTo(false));
+            assertThat(frequencies.getRsId(), equalTo("rs12345"));
+        }
+        try (AlleleReader instance = new MappedAlleleReader(indexPath, AlleleProperty.PATHOGENIC_PROPERTIES)) {
+            Allele pathogenicity = instance.get(snp.getChr(), snp.getPos(), snp.getRef(), snp.getAlt());
+            assertThat(pathogenicity.getValueCount(), equalTo(1));
+            assertThat(pathogenicity.getValue(AlleleProperty.SIFT), equalTo(0.001f));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsortedAllelesAreRejected() throws Exception {
+        List<Allele> alleles = new ArrayList<>();
+        alleles.add(new Allele(1, 12345, "A", "T"));
+        alleles.add(new Allele(1, 12300, "A", "T"));
+        buildIndex(alleles);
+    }
+}
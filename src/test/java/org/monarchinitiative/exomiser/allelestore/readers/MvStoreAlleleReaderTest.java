@@ -0,0 +1,48 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.monarchinitiative.exomiser.allelestore.indexers.AlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.indexers.MvStoreAlleleIndexer;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class MvStoreAlleleReaderTest extends AbstractAlleleReaderTest {
+
+    @Override
+    protected AlleleIndexer newIndexer(Path indexPath) {
+        return new MvStoreAlleleIndexer(indexPath, true);
+    }
+
+    @Override
+    protected AlleleReader newReader(Path indexPath) throws IOException {
+        return new MvStoreAlleleReader(indexPath);
+    }
+
+    @Test
+    public void testStringKeys() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader instance = buildIndex(alleles, MvStoreAlleleIndexer::new)) {
+            Allele snp = alleles.get(0);
+            assertThat(instance.get(snp.getChr(), snp.getPos(), snp.getRef(), snp.getAlt()).toString(), equalTo(snp.toString()));
+            assertThat(toStrings(new TreeSet<>(instance.getAll(alleles).values())), equalTo(toStrings(alleles)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStringKeysCannotBeReadByRegion() throws Exception {
+        try (AlleleReader instance = buildIndex(makeAlleles(), MvStoreAlleleIndexer::new)) {
+            instance.getRegion(1, 12345, 12360);
+        }
+    }
+}
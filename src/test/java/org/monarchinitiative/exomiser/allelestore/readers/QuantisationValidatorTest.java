@@ -0,0 +1,91 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.exomiser.allelestore.indexers.MappedAlleleIndexer;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class QuantisationValidatorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path buildIndex(List<Allele> alleles, boolean quantised) throws IOException {
+        Path alleleFile = tempFolder.newFile().toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(alleleFile)) {
+            for (Allele allele : alleles) {
+                writer.write(allele.getChr() + "\t" + allele.getPos() + "\t" + allele.getRsId() + "\t" + allele.getRef() + "\t" + allele.getAlt() + "\t.\t.\t" + allele.generateInfoField() + "\n");
+            }
+        }
+        Path indexPath = tempFolder.newFolder().toPath();
+        new MappedAlleleIndexer(indexPath, quantised).buildIndex(alleleFile, indexPath);
+        return indexPath;
+    }
+
+    private static List<Allele> makeAlleles() {
+        List<Allele> alleles = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            Allele allele = new Allele(1 + i / 500, 100_000 * i, "A", "T");
+            allele.addValue(AlleleProperty.KG, 100f / i);
+            allele.addValue(AlleleProperty.SIFT, i / 1000f);
+            alleles.add(allele);
+        }
+        return alleles;
+    }
+
+    @Test
+    public void testQuantisedIndexIsWithinMaxError() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader fullPrecisionReader = new MappedAlleleReader(buildIndex(alleles, false));
+             AlleleReader quantisedReader = new MappedAlleleReader(buildIndex(alleles, true))) {
+            Map<AlleleProperty, QuantisationValidator.PropertyErrors> errors = new QuantisationValidator(fullPrecisionReader, quantisedReader).validate();
+
+            assertThat(errors.keySet().size(), equalTo(2));
+            for (QuantisationValidator.PropertyErrors propertyErrors : errors.values()) {
+                assertThat(propertyErrors.getNumValues(), equalTo(1000L));
+                assertThat(propertyErrors.getNumMissing(), equalTo(0L));
+                assertThat(propertyErrors.getNumOverMaxError(), equalTo(0L));
+                assertThat(propertyErrors.getMaxError(), greaterThan(0f));
+            }
+        }
+    }
+
+    @Test
+    public void testFullPrecisionIndexHasNoError() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        try (AlleleReader fullPrecisionReader = new MappedAlleleReader(buildIndex(alleles, false));
+             AlleleReader otherReader = new MappedAlleleReader(buildIndex(alleles, false))) {
+            Map<AlleleProperty, QuantisationValidator.PropertyErrors> errors = new QuantisationValidator(fullPrecisionReader, otherReader).validate();
+
+            assertThat(errors.get(AlleleProperty.KG).getMaxError(), equalTo(0f));
+            assertThat(errors.get(AlleleProperty.SIFT).getMaxError(), equalTo(0f));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDifferentAllelesAreRejected() throws Exception {
+        List<Allele> alleles = makeAlleles();
+        List<Allele> fewerAlleles = alleles.subList(0, 999);
+        try (AlleleReader fullPrecisionReader = new MappedAlleleReader(buildIndex(alleles, false));
+             AlleleReader quantisedReader = new MappedAlleleReader(buildIndex(fewerAlleles, true))) {
+            new QuantisationValidator(fullPrecisionReader, quantisedReader).validate();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.monarchinitiative.exomiser.allelestore.readers;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class SortedKeySweepTest {
+
+    private final NavigableMap<Integer, String> store = new TreeMap<>();
+    private int seeks;
+    private int gets;
+
+    private SortedKeySweep<Integer, String> newSweep() {
+        return new SortedKeySweep<>(Comparator.naturalOrder(), key -> {
+            seeks++;
+            return store.tailMap(key, true).entrySet().iterator();
+        }, key -> {
+            gets++;
+            return store.get(key);
+        });
+    }
+
+    @Test
+    public void findsKeysByStepping() {
+        for (int i = 0; i < 100; i += 2) {
+            store.put(i, "value" + i);
+        }
+        SortedKeySweep<Integer, String> instance = newSweep();
+        for (int i = 0; i < 100; i++) {
+            assertThat(instance.find(i), equalTo(i % 2 == 0 ? "value" + i : null));
+        }
+        assertThat(seeks, equalTo(1));
+        assertThat(gets, equalTo(0));
+    }
+
+    @Test
+    public void usesPointLookupsForDistantKeys() {
+        for (int i = 0; i < 10_000; i++) {
+            store.put(i, "value" + i);
+        }
+        SortedKeySweep<Integer, String> instance = newSweep();
+        assertThat(instance.find(0), equalTo("value0"));
+        assertThat(instance.find(SortedKeySweep.MAX_STEPS - 1), equalTo("value" + (SortedKeySweep.MAX_STEPS - 1)));
+        assertThat(seeks, equalTo(1));
+        int key = 500;
+        for (int i = 0; i < SortedKeySweep.RETRY_INTERVAL; i++, key += 100) {
+            assertThat(instance.find(key), equalTo("value" + key));
+        }
+        assertThat(seeks, equalTo(1));
+        assertThat(gets, equalTo(SortedKeySweep.RETRY_INTERVAL));
+        // then tries a cursor again
+        assertThat(instance.find(key), equalTo("value" + key));
+        assertThat(instance.find(key + 1), equalTo("value" + (key + 1)));
+        assertThat(seeks, equalTo(2));
+        assertThat(gets, equalTo(SortedKeySweep.RETRY_INTERVAL));
+    }
+
+    @Test
+    public void findsNothingPastEndOfStore() {
+        store.put(1, "one");
+        SortedKeySweep<Integer, String> instance = newSweep();
+        assertThat(instance.find(1), equalTo("one"));
+        assertThat(instance.find(2), nullValue());
+        assertThat(instance.find(3000), nullValue());
+        assertThat(seeks, equalTo(1));
+        assertThat(gets, equalTo(0));
+    }
+
+    @Test
+    public void lookupFindsUnsortedAlleles() {
+        store.put(1, "one");
+        store.put(3, "three");
+        Map<String, String> found = new LinkedHashMap<>();
+        List<Allele> alleles = new ArrayList<>();
+        for (int pos : new int[]{3, 2, 1}) {
+            alleles.add(new Allele(1, pos, "A", "T"));
+        }
+        SortedKeySweep.lookup(alleles, Allele::getPos, Comparator.naturalOrder(),
+                key -> store.tailMap(key, true).entrySet().iterator(), store::get,
+                (allele, value) -> found.put(allele.getPos() + "", value));
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("1", "one");
+        expected.put("3", "three");
+        assertThat(found, equalTo(expected));
+    }
+}
@@ -0,0 +1,117 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+import org.monarchinitiative.exomiser.allelestore.model.Quantisation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class BinaryAlleleRecordWriterTest {
+
+    private byte[] writeAlleles(List<Allele> alleles) throws IOException {
+        return writeAlleles(alleles, false);
+    }
+
+    private byte[] writeAlleles(List<Allele> alleles, boolean quantised) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BinaryAlleleRecordWriter instance = new BinaryAlleleRecordWriter(outputStream, 1024, quantised)) {
+            for (Allele allele : alleles) {
+                instance.write(allele);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private List<Allele> readAlleles(byte[] bytes) throws IOException {
+        return readAlleles(bytes, false);
+    }
+
+    private List<Allele> readAlleles(byte[] bytes, boolean quantised) throws IOException {
+        List<Allele> alleles = new ArrayList<>();
+        try (BinaryAlleleRecordReader reader = new BinaryAlleleRecordReader(new ByteArrayInputStream(bytes), quantised)) {
+            Allele allele;
+            while ((allele = reader.read()) != null) {
+                alleles.add(allele);
+            }
+        }
+        return alleles;
+    }
+
+    private void assertSameAlleles(List<Allele> actual, List<Allele> expected) {
+        assertThat(actual, equalTo(expected));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getRsId(), equalTo(expected.get(i).getRsId()));
+            assertThat(actual.get(i).getValues(), equalTo(expected.get(i).getValues()));
+        }
+    }
+
+    @Test
+    public void readsBackWrittenAlleles() throws Exception {
+        Allele snp = new Allele(1, 12345, "A", "T");
+        snp.setRsId("rs1234567890");
+        snp.addValue(AlleleProperty.KG, 0.012f);
+
+        Allele deletion = new Allele(23, 249_000_000, "ATTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTT", "A");
+        deletion.setRsId("rs2147483648");
+        for (AlleleProperty property : AlleleProperty.values()) {
+            deletion.addValue(property, property.ordinal() / 3f);
+        }
+
+        Allele noRsId = new Allele(25, 1, "C", "<DEL>");
+
+        List<Allele> alleles = Arrays.asList(snp, deletion, noRsId);
+        assertSameAlleles(readAlleles(writeAlleles(alleles)), alleles);
+    }
+
+    @Test
+    public void snpIsSmallerThanVcfLine() throws Exception {
+        Allele snp = new Allele(1, 10019, "TA", "T");
+        snp.setRsId("rs775809821");
+        snp.addValue(AlleleProperty.KG, 0.012f);
+
+        assertThat(writeAlleles(Arrays.asList(snp)).length, equalTo(21));
+        assertThat(AlleleAppendingFileWriter.toLine(snp).length(), equalTo(53));
+    }
+
+    @Test
+    public void readsBackQuantisedValues() throws Exception {
+        Allele snp = new Allele(1, 10019, "TA", "T");
+        snp.setRsId("rs775809821");
+        snp.addValue(AlleleProperty.KG, 0.012f);
+        snp.addValue(AlleleProperty.SIFT, 0.3f);
+        byte[] bytes = writeAlleles(Arrays.asList(snp), true);
+
+        Allele quantised = new Allele(1, 10019, "TA", "T");
+        quantised.setRsId("rs775809821");
+        quantised.addValue(AlleleProperty.KG, Quantisation.HALF_PRECISION.quantise(0.012f));
+        quantised.addValue(AlleleProperty.SIFT, Quantisation.UNIT_FIXED_POINT.quantise(0.3f));
+        assertSameAlleles(readAlleles(bytes, true), Arrays.asList(quantised));
+        assertThat(bytes.length, equalTo(21));
+    }
+
+    @Test
+    public void emptyInputHasNoAlleles() throws Exception {
+        try (BinaryAlleleRecordReader reader = new BinaryAlleleRecordReader(new ByteArrayInputStream(new byte[0]))) {
+            assertThat(reader.read(), nullValue());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedRecordThrowsException() throws Exception {
+        byte[] bytes = writeAlleles(Arrays.asList(new Allele(1, 12345, "A", "T")));
+        readAlleles(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+}
@@ -0,0 +1,107 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.junit.Test;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.model.AlleleProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class OffHeapAlleleTableTest {
+
+    private void merge(OffHeapAlleleTable instance, Allele allele) {
+        instance.merge(allele.generatePackedKey(), allele);
+    }
+
+    @Test
+    public void testGetMissingAllele() {
+        OffHeapAlleleTable instance = new OffHeapAlleleTable(10);
+        assertThat(instance.get(new Allele(1, 12345, "A", "T").generatePackedKey()), nullValue());
+        assertThat(instance.size(), equalTo(0L));
+    }
+
+    @Test
+    public void testMergeKeepsFirstValueAndLastRsId() {
+        OffHeapAlleleTable instance = new OffHeapAlleleTable(10);
+        Allele first = new Allele(1, 12345, "A", "T");
+        first.setRsId("rs123");
+        first.addValue(AlleleProperty.KG, 0.1f);
+        merge(instance, first);
+
+        Allele second = new Allele(1, 12345, "A", "T");
+        second.setRsId("rs456");
+        second.addValue(AlleleProperty.KG, 0.2f);
+        second.addValue(AlleleProperty.MUT_TASTER, 1f);
+        merge(instance, second);
+
+        Allele third = new Allele(1, 12345, "A", "T");
+        merge(instance, third);
+
+        Allele expected = new Allele(1, 12345, "A", "T");
+        expected.setRsId("rs123");
+        expected.addValue(AlleleProperty.KG, 0.1f);
+        AlleleMerger.mergeAllele(expected, second);
+        AlleleMerger.mergeAllele(expected, third);
+
+        Allele merged = instance.get(first.generatePackedKey());
+        assertThat(merged, equalTo(expected));
+        assertThat(merged.getRsId(), equalTo("rs456"));
+        assertThat(merged.getValues(), equalTo(expected.getValues()));
+        assertThat(instance.size(), equalTo(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHashedKeyIsRejected() {
+        OffHeapAlleleTable instance = new OffHeapAlleleTable(10);
+        merge(instance, new Allele(1, 12345, "A", "<DEL>"));
+    }
+
+    @Test
+    public void testGrowsAndMatchesInMemoryMerge() {
+        Random random = new Random(42);
+        String[] bases = {"A", "C", "G", "T", "AT", "TTA"};
+        AlleleProperty[] properties = AlleleProperty.values();
+        // sized far too small, so the table has to grow several times
+        OffHeapAlleleTable instance = new OffHeapAlleleTable(1);
+        Map<Allele, Allele> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            Allele allele = new Allele(1 + random.nextInt(3), 1 + random.nextInt(2000), bases[random.nextInt(bases.length)], bases[random.nextInt(bases.length)]);
+            if (random.nextBoolean()) {
+                allele.setRsNumber(1 + random.nextInt(1000));
+            }
+            allele.addValue(properties[random.nextInt(properties.length)], random.nextFloat());
+            merge(instance, allele);
+            Allele copy = new Allele(allele.getChr(), allele.getPos(), allele.getRef(), allele.getAlt());
+            AlleleMerger.mergeAllele(copy, allele);
+            expected.merge(copy, copy, AlleleMerger::mergeAllele);
+        }
+        assertThat(instance.size(), equalTo((long) expected.size()));
+
+        List<Allele> actual = new ArrayList<>();
+        long previousKey = -1;
+        for (long key : instance.sortedKeys()) {
+            assertThat(key > previousKey, equalTo(true));
+            previousKey = key;
+            Allele allele = instance.get(key);
+            Allele expectedAllele = expected.get(allele);
+            assertThat(allele.getRsId(), equalTo(expectedAllele.getRsId()));
+            assertThat(allele.getValues(), equalTo(expectedAllele.getValues()));
+            actual.add(allele);
+        }
+        Collections.sort(actual);
+        List<Allele> expectedSorted = new ArrayList<>(expected.keySet());
+        Collections.sort(expectedSorted);
+        assertThat(actual, equalTo(expectedSorted));
+    }
+}
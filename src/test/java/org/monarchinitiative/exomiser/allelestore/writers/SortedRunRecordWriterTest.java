@@ -0,0 +1,110 @@
+package org.monarchinitiative.exomiser.allelestore.writers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.monarchinitiative.exomiser.allelestore.model.Allele;
+import org.monarchinitiative.exomiser.allelestore.writers.SortedRunRecordWriter.SortedRun;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Jules Jacobsen <j.jacobsen@qmul.ac.uk>
+ */
+public class SortedRunRecordWriterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private List<SortedRun> writeRuns(Path path, int windowSize, List<Allele> alleles) throws IOException {
+        Files.createFile(path);
+        SortedRunRecordWriter instance = new SortedRunRecordWriter(path, TempFileFormat.of(path).newWriter(path, 1024), windowSize);
+        for (Allele allele : alleles) {
+            instance.write(allele);
+        }
+        instance.close();
+        return instance.getRuns();
+    }
+
+    private List<Allele> readRun(Path path, SortedRun run) throws IOException {
+        List<Allele> alleles = new ArrayList<>();
+        try (AlleleRecordReader reader = TempFileFormat.of(path).newReader(path, run.getOffset())) {
+            for (long i = 0; i < run.getNumAlleles(); i++) {
+                alleles.add(reader.read());
+            }
+        }
+        return alleles;
+    }
+
+    @Test
+    public void testWindowSortsNearlySortedAlleles() throws Exception {
+        // the alts of a multi-allelic line followed by a minimised allele moved along by one base
+        List<Allele> alleles = Arrays.asList(
+                new Allele(1, 100, "A", "T"),
+                new Allele(1, 100, "A", "C"),
+                new Allele(1, 102, "T", "G"),
+                new Allele(1, 101, "G", "A"),
+                new Allele(1, 103, "C", "T"));
+
+        for (TempFileFormat tempFileFormat : TempFileFormat.values()) {
+            Path path = tmpFolder.getRoot().toPath().resolve("temp_chr1" + tempFileFormat.getExtension());
+            List<SortedRun> runs = writeRuns(path, 2, alleles);
+
+            assertThat(runs.size(), equalTo(1));
+            assertThat(readRun(path, runs.get(0)), equalTo(Arrays.asList(
+                    new Allele(1, 100, "A", "C"),
+                    new Allele(1, 100, "A", "T"),
+                    new Allele(1, 101, "G", "A"),
+                    new Allele(1, 102, "T", "G"),
+                    new Allele(1, 103, "C", "T"))));
+        }
+    }
+
+    @Test
+    public void testEachSourceStartsNewRun() throws Exception {
+        List<Allele> alleles = new ArrayList<>();
+        // two sorted sources of the same chromosome
+        for (int source = 0; source < 2; source++) {
+            for (int pos = 1; pos <= 100; pos++) {
+                alleles.add(new Allele(1, pos * 10 + source, "A", "T"));
+            }
+        }
+        for (TempFileFormat tempFileFormat : TempFileFormat.values()) {
+            Path path = tmpFolder.getRoot().toPath().resolve("temp_chr1" + tempFileFormat.getExtension());
+            List<SortedRun> runs = writeRuns(path, 10, alleles);
+
+            // the end of the first source is still in the window when the second source starts the next run
+            List<Allele> secondRun = new ArrayList<>(alleles.subList(90, 200));
+            Collections.sort(secondRun);
+            assertThat(runs.size(), equalTo(2));
+            assertThat(readRun(path, runs.get(0)), equalTo(alleles.subList(0, 90)));
+            assertThat(readRun(path, runs.get(1)), equalTo(secondRun));
+        }
+    }
+
+    @Test
+    public void testEqualAllelesLeaveWindowInWrittenOrder() throws Exception {
+        List<Allele> alleles = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Allele allele = new Allele(1, 100, "A", "T");
+            allele.setRsNumber(i);
+            alleles.add(allele);
+        }
+        Path path = tmpFolder.getRoot().toPath().resolve("temp_chr1.allele.bin");
+        List<SortedRun> runs = writeRuns(path, 10, alleles);
+
+        List<Allele> actual = readRun(path, runs.get(0));
+        for (int i = 0; i < alleles.size(); i++) {
+            assertThat(actual.get(i).getRsNumber(), equalTo(i + 1L));
+        }
+    }
+}